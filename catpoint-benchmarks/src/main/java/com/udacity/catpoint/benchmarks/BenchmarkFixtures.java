@@ -0,0 +1,74 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+/**
+ * Data shared by the benchmarks. Everything is generated from fixed seeds so runs are
+ * comparable.
+ */
+final class BenchmarkFixtures {
+
+    /**
+     * Preferences node below the repository's default node used by benchmarks, so they never
+     * touch the state of an installed application.
+     */
+    static final String PREFERENCES_NODE = "catpoint-benchmark";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * @return Inactive sensors named "Sensor 0" to "Sensor count-1", types in rotation
+     */
+    static List<Sensor> sensors(int count) {
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sensors.add(new Sensor("Sensor " + i, types[i % types.length]));
+        }
+        return sensors;
+    }
+
+    /**
+     * @return An opaque image of the given size with some noise and shapes, so it does not
+     * compress unrealistically well
+     */
+    static BufferedImage cameraImage(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.DARK_GRAY);
+            g.fillRect(0, 0, width, height);
+            for (int i = 0; i < 200; i++) {
+                g.setColor(new Color(random.nextInt(0xFFFFFF)));
+                g.fillOval(random.nextInt(width), random.nextInt(height),
+                        1 + random.nextInt(width / 4), 1 + random.nextInt(height / 4));
+            }
+        } finally {
+            g.dispose();
+        }
+        for (int i = 0; i < width * height / 20; i++) {
+            image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xFFFFFF));
+        }
+        return image;
+    }
+
+    /**
+     * Removes the preferences written by a benchmark.
+     */
+    static void clearPreferences() throws BackingStoreException {
+        Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(PREFERENCES_NODE).removeNode();
+    }
+}
@@ -0,0 +1,34 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.LockSupport;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+
+/**
+ * Stand-in for a remote classifier that answers after a fixed delay, alternating between
+ * a cat and no cat. Keeps network variance out of the measurements while still showing what
+ * a blocking detector costs the caller.
+ */
+final class FixedLatencyImageService implements IService {
+
+    private static final DetectionResult CAT = DetectionResult.of("Cat", 95.0f);
+
+    private final long latencyNanos;
+    private boolean cat;
+
+    FixedLatencyImageService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        long deadline = System.nanoTime() + latencyNanos;
+        for (long remaining = latencyNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+        cat = !cat;
+        return cat ? CAT : DetectionResult.none();
+    }
+}
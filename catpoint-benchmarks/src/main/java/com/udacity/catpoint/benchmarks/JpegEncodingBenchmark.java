@@ -0,0 +1,74 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.udacity.catpoint.image.service.JpegImageEncoder;
+
+/**
+ * Encoding of camera images before they are sent to a remote classifier. The
+ * {@link JpegImageEncoder} settings match the defaults of AwsImageService; the plain ImageIO
+ * call is what the service did before the encoder existed and is kept as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JpegEncodingBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    String resolution;
+
+    @Param({"1024"})
+    int maxEdge;
+
+    @Param({"0.85"})
+    float quality;
+
+    private BufferedImage image;
+    private JpegImageEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        String[] size = resolution.split("x");
+        image = BenchmarkFixtures.cameraImage(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        encoder = new JpegImageEncoder(maxEdge, quality);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoder.close();
+    }
+
+    @Benchmark
+    public ByteBuffer jpegImageEncoder() throws IOException {
+        return encoder.encode(image);
+    }
+
+    @Benchmark
+    public byte[] imageIoWrite() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
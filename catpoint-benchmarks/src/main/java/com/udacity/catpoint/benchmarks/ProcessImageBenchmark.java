@@ -0,0 +1,66 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * {@link SecurityService#processImage} with the random {@link FakeImageService} and with a
+ * detector answering after a fixed delay. With the fake detector the numbers show the cost
+ * of the alarm decision itself; with the delayed one they should stay close to the delay.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessImageBenchmark {
+
+    @Param({"1", "100", "1000"})
+    int sensorCount;
+
+    @Param({"fake", "fixedLatency"})
+    String detector;
+
+    @Param({"200"})
+    long detectorLatencyMicros;
+
+    private SecurityService securityService;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        IService imageService = "fake".equals(detector)
+                ? new FakeImageService()
+                : new FixedLatencyImageService(TimeUnit.MICROSECONDS.toNanos(detectorLatencyMicros));
+        securityService = new SecurityService(new InMemorySecurityRepository(), imageService);
+        BenchmarkFixtures.sensors(sensorCount).forEach(securityService::addSensor);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        image = BenchmarkFixtures.cameraImage(640, 480);
+    }
+
+    @Benchmark
+    public AlarmStatus processImage() {
+        securityService.processImage(image);
+        return securityService.getAlarmStatus();
+    }
+}
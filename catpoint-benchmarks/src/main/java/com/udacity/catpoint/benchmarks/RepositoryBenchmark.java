@@ -0,0 +1,82 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * Persistence of {@link PretendDatabaseSecurityRepositoryImpl}. Every sensor update writes
+ * the whole sensor set as JSON, so updateSensor should grow linearly with sensorCount.
+ * <p>
+ * Preferences values are limited to 8 KB, which the JSON of about 75 sensors exceeds, so
+ * the sensor counts stay below that.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+    @Param({"1", "10", "70"})
+    int sensorCount;
+
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private Sensor updatedSensor;
+    private boolean alarm;
+
+    @Setup
+    public void setUp() throws BackingStoreException {
+        BenchmarkFixtures.clearPreferences();
+        repository = new PretendDatabaseSecurityRepositoryImpl(BenchmarkFixtures.PREFERENCES_NODE);
+        List<Sensor> sensors = BenchmarkFixtures.sensors(sensorCount);
+        sensors.forEach(repository::addSensor);
+        updatedSensor = sensors.get(sensorCount / 2);
+    }
+
+    @TearDown
+    public void tearDown() throws BackingStoreException {
+        BenchmarkFixtures.clearPreferences();
+    }
+
+    @Benchmark
+    public PretendDatabaseSecurityRepositoryImpl updateSensor() {
+        updatedSensor.setActive(!updatedSensor.getActive());
+        repository.updateSensor(updatedSensor);
+        return repository;
+    }
+
+    @Benchmark
+    public PretendDatabaseSecurityRepositoryImpl setAlarmStatus() {
+        alarm = !alarm;
+        repository.setAlarmStatus(alarm ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM);
+        return repository;
+    }
+
+    /**
+     * Reads and parses the persisted state, as on application start.
+     */
+    @Benchmark
+    public PretendDatabaseSecurityRepositoryImpl loadPreferences() {
+        repository.loadPreferences();
+        return repository;
+    }
+}
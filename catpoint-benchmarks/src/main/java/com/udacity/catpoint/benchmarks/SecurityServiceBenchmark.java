@@ -0,0 +1,80 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Sensor and arming changes of {@link SecurityService}. The in-memory repository keeps
+ * persistence out of the numbers; {@link RepositoryBenchmark} covers that separately.
+ * Both operations look at every sensor, so the cost per operation should grow with
+ * sensorCount no faster than linearly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityServiceBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    int sensorCount;
+
+    @Param({"DISARMED", "ARMED_AWAY"})
+    ArmingStatus armingStatus;
+
+    private SecurityService securityService;
+    private Sensor toggledSensor;
+    private boolean active;
+
+    @Setup
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService());
+        List<Sensor> sensors = BenchmarkFixtures.sensors(sensorCount);
+        sensors.forEach(securityService::addSensor);
+        toggledSensor = sensors.get(sensorCount / 2);
+        securityService.setArmingStatus(armingStatus);
+    }
+
+    /**
+     * Activates and deactivates one sensor in turn. When armed, this moves the alarm between
+     * NO_ALARM and PENDING_ALARM and checks whether all sensors are inactive.
+     */
+    @Benchmark
+    public AlarmStatus changeSensorActivationStatus() {
+        active = !active;
+        securityService.changeSensorActivationStatus(toggledSensor, active);
+        return securityService.getAlarmStatus();
+    }
+
+    /**
+     * Arms the system and returns it to the benchmark's arming status. Arming resets every
+     * sensor.
+     */
+    @Benchmark
+    public AlarmStatus setArmingStatus() {
+        securityService.setArmingStatus(armingStatus == ArmingStatus.ARMED_HOME
+                ? ArmingStatus.ARMED_AWAY : ArmingStatus.ARMED_HOME);
+        securityService.setArmingStatus(armingStatus);
+        return securityService.getAlarmStatus();
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.catpoint.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * {@link Sensor#compareTo} and {@link Sensor#hashCode}, which every sorted and hashed sensor
+ * collection relies on, and the sorted copies built from them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int sensorCount;
+
+    private Sensor[] sensors;
+    private List<Sensor> shuffled;
+    private Set<Sensor> sorted;
+
+    @Setup
+    public void setUp() {
+        List<Sensor> list = BenchmarkFixtures.sensors(sensorCount);
+        sensors = list.toArray(new Sensor[0]);
+        shuffled = new ArrayList<>(list);
+        Collections.shuffle(shuffled, new Random(42));
+        sorted = new TreeSet<>(list);
+    }
+
+    /**
+     * Compares every sensor with its neighbour; the names share a prefix, as in practice.
+     */
+    @Benchmark
+    public void compareTo(Blackhole blackhole) {
+        for (int i = 1; i < sensors.length; i++) {
+            blackhole.consume(sensors[i - 1].compareTo(sensors[i]));
+        }
+    }
+
+    @Benchmark
+    public void hashCode(Blackhole blackhole) {
+        for (Sensor sensor : sensors) {
+            blackhole.consume(sensor.hashCode());
+        }
+    }
+
+    /**
+     * Sorts unordered sensors, as loading the repository does.
+     */
+    @Benchmark
+    public Set<Sensor> treeSetFromUnsorted() {
+        return new TreeSet<>(shuffled);
+    }
+
+    /**
+     * The sorted snapshot SecurityService takes when the arming status changes.
+     */
+    @Benchmark
+    public Set<Sensor> concurrentSkipListSetCopy() {
+        return new ConcurrentSkipListSet<>(sorted);
+    }
+}
@@ -0,0 +1,96 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Reads and writes event traces as CSV with the columns offsetMicros, home, type, sensor and
+ * value, where value is true/false for sensors, cat/none for images and the arming status for
+ * arming changes. Traces can be recorded by the load generator or converted from production
+ * logs.
+ */
+final class EventTrace {
+
+    static final String HEADER = "offsetMicros,home,type,sensor,value";
+
+    private EventTrace() {
+    }
+
+    static void write(Path file, List<LoadEvent> events) throws IOException {
+        List<LoadEvent> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingLong(event -> event.offsetNanos));
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            for (LoadEvent event : sorted) {
+                out.write(Long.toString(event.offsetNanos / 1_000));
+                out.write(',');
+                out.write(Integer.toString(event.home));
+                out.write(',');
+                out.write(event.type.name());
+                out.write(',');
+                out.write(Integer.toString(event.sensor));
+                out.write(',');
+                switch (event.type) {
+                    case SENSOR:
+                        out.write(Boolean.toString(event.flag));
+                        break;
+                    case IMAGE:
+                        out.write(event.flag ? "cat" : "none");
+                        break;
+                    default:
+                        out.write(event.armingStatus.name());
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return The events of the trace in time order
+     */
+    static List<LoadEvent> read(Path file) throws IOException {
+        List<LoadEvent> events = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("offsetMicros")) {
+                    continue;
+                }
+                events.add(parse(line, lineNumber));
+            }
+        }
+        events.sort(Comparator.comparingLong(event -> event.offsetNanos));
+        return events;
+    }
+
+    private static LoadEvent parse(String line, int lineNumber) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 5) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected 5 columns: " + line);
+        }
+        long offsetNanos = Long.parseLong(columns[0].trim()) * 1_000;
+        int home = Integer.parseInt(columns[1].trim());
+        String value = columns[4].trim();
+        switch (LoadEvent.Type.valueOf(columns[2].trim().toUpperCase(Locale.ROOT))) {
+            case SENSOR:
+                return LoadEvent.sensor(offsetNanos, home, Integer.parseInt(columns[3].trim()), Boolean.parseBoolean(value));
+            case IMAGE:
+                return LoadEvent.image(offsetNanos, home, "cat".equalsIgnoreCase(value));
+            default:
+                return LoadEvent.arming(offsetNanos, home, ArmingStatus.valueOf(value.toUpperCase(Locale.ROOT)));
+        }
+    }
+}
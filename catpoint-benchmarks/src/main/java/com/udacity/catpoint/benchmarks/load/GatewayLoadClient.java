@@ -0,0 +1,269 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.server.SensorFrame;
+import com.udacity.catpoint.security.server.SensorGatewayServer;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Measures the throughput of the sensor gateway over loopback. Starts a SensorGatewayServer in
+ * this process and sends it random readings of its sensors from several connections as fast as
+ * possible, or at a fixed rate. Run it from the benchmarks jar with
+ * <pre>
+ * java -cp benchmarks.jar com.udacity.catpoint.benchmarks.load.GatewayLoadClient
+ *      [--sensors n] [--connections n] [--duration seconds] [--warmup seconds]
+ *      [--rate framesPerSecondPerConnection] [--frames-per-write n] [--batch-size n]
+ *      [--max-pending n] [--repository memory|prefs] [--seed n]
+ * </pre>
+ * A rate of 0 (default) sends without pause. Readings of a sensor that arrive after a later
+ * reading of it from another connection are dropped as stale, which is common when several
+ * unthrottled connections share few sensors. Readings of a sensor still waiting in the
+ * {@link AdmissionController} are merged into its entry. The report lists frames sent and
+ * decoded per second, readings merged and applied, batch sizes and apply times, the age of
+ * readings when they were decoded, and the bytes allocated per frame by each gateway and
+ * admission thread during the measured part of the run.
+ */
+public class GatewayLoadClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GatewayLoadClient.class);
+
+    private static final String PREFERENCES_NODE = "catpoint-gateway-load";
+
+    private final LongAdder sent = new LongAdder();
+    private volatile boolean stopped;
+
+    public static void main(String[] args) throws Exception {
+        int sensorCount = 100;
+        int connections = 4;
+        double durationSeconds = 10;
+        double warmupSeconds = 2;
+        double rate = 0;
+        int framesPerWrite = 64;
+        int batchSize = AdmissionController.DEFAULT_BATCH_SIZE;
+        int maxPending = 4096;
+        String repository = "memory";
+        long seed = 42;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--sensors":
+                    sensorCount = Integer.parseInt(value);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationSeconds = Double.parseDouble(value);
+                    break;
+                case "--warmup":
+                    warmupSeconds = Double.parseDouble(value);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "--frames-per-write":
+                    framesPerWrite = Integer.parseInt(value);
+                    break;
+                case "--batch-size":
+                    batchSize = Integer.parseInt(value);
+                    break;
+                case "--max-pending":
+                    maxPending = Integer.parseInt(value);
+                    break;
+                case "--repository":
+                    repository = value;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        SecurityRepository securityRepository;
+        if ("memory".equals(repository)) {
+            securityRepository = new InMemorySecurityRepository();
+        } else if ("prefs".equals(repository)) {
+            removePreferences();
+            securityRepository = new PretendDatabaseSecurityRepositoryImpl(PREFERENCES_NODE);
+        } else {
+            throw new IllegalArgumentException("Unknown repository " + repository);
+        }
+        try {
+            System.out.println(new GatewayLoadClient().run(securityRepository, sensorCount, connections,
+                    secondsToNanos(warmupSeconds), secondsToNanos(durationSeconds), rate, framesPerWrite, batchSize,
+                    maxPending, seed));
+        } finally {
+            if ("prefs".equals(repository)) {
+                removePreferences();
+            }
+        }
+    }
+
+    String run(SecurityRepository repository, int sensorCount, int connections, long warmupNanos, long durationNanos,
+               double rate, int framesPerWrite, int batchSize, int maxPending, long seed)
+            throws IOException, InterruptedException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        SecurityService securityService = new SecurityService(repository, image -> null, metrics);
+        UUID[] sensorIds = new UUID[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("Gateway " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensor);
+            sensorIds[i] = sensor.getSensorId();
+        }
+
+        List<Thread> senders = new ArrayList<>();
+        try (AdmissionController admission = new AdmissionController(securityService, maxPending,
+                     AdmissionController.SensorOverflow.BLOCK, batchSize, maxPending, metrics);
+             SensorGatewayServer server = new SensorGatewayServer(securityService, admission,
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), metrics)) {
+            admission.start();
+            server.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                SplittableRandom random = new SplittableRandom(seed + i);
+                Thread sender = new Thread(() -> send(channel, sensorIds, random, rate, framesPerWrite),
+                        "gateway-client-" + (i + 1));
+                sender.setDaemon(true);
+                sender.start();
+                senders.add(sender);
+            }
+
+            TimeUnit.NANOSECONDS.sleep(warmupNanos);
+            LatencyHistogram batchApply = metrics.histogram("admission.batchApply");
+            LatencyHistogram readingAge = metrics.histogram("gateway.readingAge");
+            batchApply.reset();
+            readingAge.reset();
+            Map<String, Long> allocatedBefore = gatewayThreadAllocation();
+            long sentBefore = sent.sum();
+            long framesBefore = metrics.counter("gateway.frames").sum();
+            long staleBefore = metrics.counter("gateway.staleFrames").sum();
+            long unknownBefore = metrics.counter("gateway.unknownFrames").sum();
+            long collapsedBefore = metrics.counter("admission.sensorsCollapsed").sum();
+            long start = System.nanoTime();
+
+            TimeUnit.NANOSECONDS.sleep(durationNanos);
+            Map<String, Long> allocatedAfter = gatewayThreadAllocation();
+            long frames = metrics.counter("gateway.frames").sum() - framesBefore;
+            long stale = metrics.counter("gateway.staleFrames").sum() - staleBefore;
+            long unknown = metrics.counter("gateway.unknownFrames").sum() - unknownBefore;
+            long collapsed = metrics.counter("admission.sensorsCollapsed").sum() - collapsedBefore;
+            long applied = frames - stale - unknown - collapsed;
+            int pending = admission.getPendingSensors();
+            long sentFrames = sent.sum() - sentBefore;
+            double seconds = (System.nanoTime() - start) / 1e9;
+            stopped = true;
+            for (Thread sender : senders) {
+                sender.join();
+            }
+
+            StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                    "Sensor gateway over loopback: %d sensors, %d connections, %s, batches of up to %d, %s repository%n",
+                    sensorCount, connections, rate > 0 ? rate + " frames/s per connection" : "unthrottled",
+                    batchSize, repository instanceof InMemorySecurityRepository ? "memory" : "prefs"));
+            report.append(String.format(Locale.ROOT,
+                    "Sent %.0f frames/s, decoded %.0f frames/s, applied %.0f readings/s, dropped %d stale and %d unknown%n",
+                    sentFrames / seconds, frames / seconds, applied / seconds, stale, unknown));
+            report.append(String.format(Locale.ROOT, "Merged %d readings into waiting sensors, %d sensors waiting at the end%n",
+                    collapsed, pending));
+            report.append(String.format(Locale.ROOT, "Batches: %d, %.1f readings each, apply p50/p99/max %.3f/%.3f/%.3f ms%n",
+                    batchApply.getCount(), batchApply.getCount() == 0 ? 0.0 : (double) applied / batchApply.getCount(),
+                    batchApply.percentileNanos(0.50) / 1e6, batchApply.percentileNanos(0.99) / 1e6,
+                    batchApply.getMaxNanos() / 1e6));
+            report.append(String.format(Locale.ROOT, "Reading age at decode p50/p99/max: %.0f/%.0f/%.0f ms%n",
+                    readingAge.percentileNanos(0.50) / 1e6, readingAge.percentileNanos(0.99) / 1e6,
+                    readingAge.getMaxNanos() / 1e6));
+            for (Map.Entry<String, Long> thread : allocatedAfter.entrySet()) {
+                long bytes = thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+                report.append(String.format(Locale.ROOT, "Allocation of %s: %.1f bytes per frame%n",
+                        thread.getKey(), frames == 0 ? 0.0 : (double) bytes / frames));
+            }
+            return report.toString();
+        }
+    }
+
+    private void send(SocketChannel channel, UUID[] sensorIds, SplittableRandom random, double rate, int framesPerWrite) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(framesPerWrite * SensorFrame.BYTES);
+        long intervalNanos = rate > 0 ? (long) (framesPerWrite * 1e9 / rate) : 0;
+        long next = System.nanoTime();
+        try (channel) {
+            while (!stopped) {
+                buffer.clear();
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < framesPerWrite; i++) {
+                    SensorFrame.write(buffer, sensorIds[random.nextInt(sensorIds.length)], random.nextBoolean(), now);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                sent.add(framesPerWrite);
+                if (intervalNanos > 0) {
+                    next += intervalNanos;
+                    LockSupport.parkNanos(next - System.nanoTime());
+                }
+            }
+        } catch (IOException ex) {
+            if (!stopped) {
+                logger.error("Gateway connection failed", ex);
+            }
+        }
+    }
+
+    /**
+     * @return Bytes allocated so far by each thread of the gateway and the admission controller,
+     * by thread name
+     */
+    private static Map<String, Long> gatewayThreadAllocation() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<String, Long> allocated = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ((thread.getName().startsWith("gateway-") && !thread.getName().startsWith("gateway-client-"))
+                    || thread.getName().startsWith("admission-")) {
+                allocated.put(thread.getName(), threadBean.getThreadAllocatedBytes(thread.getId()));
+            }
+        }
+        return allocated;
+    }
+
+    private static long secondsToNanos(double seconds) {
+        return (long) (seconds * 1_000_000_000L);
+    }
+
+    private static void removePreferences() throws BackingStoreException {
+        Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(PREFERENCES_NODE).removeNode();
+    }
+}
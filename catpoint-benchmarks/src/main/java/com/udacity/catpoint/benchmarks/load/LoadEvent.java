@@ -0,0 +1,51 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * One event sent to a home's SecurityService, at a fixed offset from the start of the run.
+ */
+final class LoadEvent {
+
+    enum Type {
+        SENSOR, IMAGE, ARMING
+    }
+
+    final long offsetNanos;
+    final int home;
+    final Type type;
+    // sensor index of SENSOR events, -1 otherwise
+    final int sensor;
+    // new sensor state of SENSOR events, cat verdict of IMAGE events
+    final boolean flag;
+    // new status of ARMING events, null otherwise
+    final ArmingStatus armingStatus;
+
+    private LoadEvent(long offsetNanos, int home, Type type, int sensor, boolean flag, ArmingStatus armingStatus) {
+        this.offsetNanos = offsetNanos;
+        this.home = home;
+        this.type = type;
+        this.sensor = sensor;
+        this.flag = flag;
+        this.armingStatus = armingStatus;
+    }
+
+    static LoadEvent sensor(long offsetNanos, int home, int sensor, boolean active) {
+        return new LoadEvent(offsetNanos, home, Type.SENSOR, sensor, active, null);
+    }
+
+    static LoadEvent image(long offsetNanos, int home, boolean cat) {
+        return new LoadEvent(offsetNanos, home, Type.IMAGE, -1, cat, null);
+    }
+
+    static LoadEvent arming(long offsetNanos, int home, ArmingStatus armingStatus) {
+        return new LoadEvent(offsetNanos, home, Type.ARMING, -1, false, armingStatus);
+    }
+
+    /**
+     * @return The same event, due at offset / speed
+     */
+    LoadEvent atSpeed(double speed) {
+        return new LoadEvent((long) (offsetNanos / speed), home, type, sensor, flag, armingStatus);
+    }
+}
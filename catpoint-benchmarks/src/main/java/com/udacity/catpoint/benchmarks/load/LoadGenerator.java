@@ -0,0 +1,430 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Drives one SecurityService per simulated home with synthetic or recorded events and reports
+ * what the host sustained. Run it from the benchmarks jar with
+ * <pre>
+ * java -cp benchmarks.jar com.udacity.catpoint.benchmarks.load.LoadGenerator
+ *      [--homes n] [--sensors n] [--duration seconds] [--threads n]
+ *      [--sensor-rate perSecond] [--image-rate perSecond] [--arming-interval seconds]
+ *      [--cat-probability p] [--sensor-skew s] [--seed n]
+ *      [--repository memory|prefs] [--detector-latency micros] [--warmup events]
+ *      [--record trace.csv] [--replay trace.csv --speed factor]
+ * </pre>
+ * Rates are per home; see {@link LoadProfile} for the distributions. Each home is served by
+ * one of {@code --threads} workers, which sends its events at their scheduled time. Latency
+ * is measured from that time, not from when the worker got around to it, so a host falling
+ * behind shows up as growing latency instead of silently lowering the load. Before the run,
+ * {@code --warmup} unmeasured events on a separate home get class loading and compilation
+ * out of the way.
+ * <p>
+ * {@code --record} writes the events of a generated run as a trace; {@code --replay} runs a
+ * trace instead, {@code --speed} times faster than recorded. The report lists achieved
+ * throughput, latency and service time percentiles per event type, heap usage, allocation
+ * rate and garbage collection.
+ */
+public class LoadGenerator {
+
+    private final int homeCount;
+    private final int sensorsPerHome;
+    private final int threads;
+    private final String repository;
+    private final long detectorLatencyNanos;
+    private int warmupEvents = 10_000;
+
+    // latency from the scheduled time and pure service time, per event type
+    private final Map<LoadEvent.Type, LatencyHistogram> latency = new EnumMap<>(LoadEvent.Type.class);
+    private final Map<LoadEvent.Type, LatencyHistogram> serviceTime = new EnumMap<>(LoadEvent.Type.class);
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    LoadGenerator(int homeCount, int sensorsPerHome, int threads, String repository, long detectorLatencyNanos) {
+        this.homeCount = homeCount;
+        this.sensorsPerHome = sensorsPerHome;
+        this.threads = Math.min(threads, homeCount);
+        this.repository = repository;
+        this.detectorLatencyNanos = detectorLatencyNanos;
+        for (LoadEvent.Type type : LoadEvent.Type.values()) {
+            latency.put(type, new LatencyHistogram());
+            serviceTime.put(type, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int homes = 10;
+        int sensors = 20;
+        double durationSeconds = 30;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double sensorRate = 5;
+        double imageRate = 1;
+        double armingInterval = 60;
+        double catProbability = 0.05;
+        double sensorSkew = 1.0;
+        long seed = 42;
+        String repository = "memory";
+        long detectorLatencyMicros = 0;
+        Path record = null;
+        Path replay = null;
+        double speed = 1.0;
+        int warmup = 10_000;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--homes":
+                    homes = Integer.parseInt(value);
+                    break;
+                case "--sensors":
+                    sensors = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationSeconds = Double.parseDouble(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--sensor-rate":
+                    sensorRate = Double.parseDouble(value);
+                    break;
+                case "--image-rate":
+                    imageRate = Double.parseDouble(value);
+                    break;
+                case "--arming-interval":
+                    armingInterval = Double.parseDouble(value);
+                    break;
+                case "--cat-probability":
+                    catProbability = Double.parseDouble(value);
+                    break;
+                case "--sensor-skew":
+                    sensorSkew = Double.parseDouble(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--repository":
+                    repository = value;
+                    break;
+                case "--detector-latency":
+                    detectorLatencyMicros = Long.parseLong(value);
+                    break;
+                case "--record":
+                    record = Path.of(value);
+                    break;
+                case "--replay":
+                    replay = Path.of(value);
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(value);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (!"memory".equals(repository) && !"prefs".equals(repository)) {
+            throw new IllegalArgumentException("Unknown repository " + repository);
+        }
+
+        long detectorLatencyNanos = TimeUnit.MICROSECONDS.toNanos(detectorLatencyMicros);
+        List<List<LoadEvent>> recorded = null;
+        String report;
+        if (replay != null) {
+            List<LoadEvent> events = EventTrace.read(replay);
+            int traceHomes = events.stream().mapToInt(event -> event.home + 1).max().orElse(1);
+            int traceSensors = events.stream().mapToInt(event -> event.sensor + 1).max().orElse(1);
+            LoadGenerator generator = new LoadGenerator(traceHomes, Math.max(1, traceSensors), threads, repository,
+                    detectorLatencyNanos);
+            generator.warmupEvents = warmup;
+            report = generator.replay(events, speed);
+        } else {
+            LoadProfile profile = new LoadProfile(sensors, sensorRate, imageRate, armingInterval, catProbability,
+                    sensorSkew, seed);
+            LoadGenerator generator = new LoadGenerator(homes, sensors, threads, repository, detectorLatencyNanos);
+            generator.warmupEvents = warmup;
+            if (record != null) {
+                recorded = new ArrayList<>();
+            }
+            report = generator.generate(profile, (long) (durationSeconds * 1_000_000_000L), recorded);
+        }
+        System.out.println(report);
+        if (recorded != null) {
+            List<LoadEvent> all = new ArrayList<>();
+            recorded.forEach(all::addAll);
+            EventTrace.write(record, all);
+            System.out.println("Recorded " + all.size() + " events to " + record);
+        }
+    }
+
+    /**
+     * Runs generated load for the given time.
+     *
+     * @param recorded If not null, receives the events of each worker
+     * @return The report
+     */
+    String generate(LoadProfile profile, long durationNanos, List<List<LoadEvent>> recorded)
+            throws InterruptedException {
+        List<EventStream> streams = new ArrayList<>();
+        for (int worker = 0; worker < threads; worker++) {
+            PriorityQueue<LoadProfile.HomeSchedule> schedules =
+                    new PriorityQueue<>(Comparator.comparingLong(LoadProfile.HomeSchedule::nextOffsetNanos));
+            for (int home = worker; home < homeCount; home += threads) {
+                schedules.add(profile.schedule(home));
+            }
+            List<LoadEvent> log = null;
+            if (recorded != null) {
+                log = new ArrayList<>();
+                recorded.add(log);
+            }
+            streams.add(new GeneratedStream(schedules, durationNanos, log));
+        }
+        return run(streams, String.format(Locale.ROOT,
+                "Generated load: %d homes x %d sensors, %.1f sensor events/s, %.2f images/s per home, %d threads",
+                homeCount, sensorsPerHome, profile.sensorEventsPerSecond, profile.imagesPerSecond, threads));
+    }
+
+    /**
+     * Replays recorded events, speed times faster than recorded.
+     *
+     * @return The report
+     */
+    String replay(List<LoadEvent> events, double speed) throws InterruptedException {
+        List<List<LoadEvent>> perWorker = new ArrayList<>();
+        for (int worker = 0; worker < threads; worker++) {
+            perWorker.add(new ArrayList<>());
+        }
+        for (LoadEvent event : events) {
+            perWorker.get(event.home % threads).add(event.atSpeed(speed));
+        }
+        List<EventStream> streams = new ArrayList<>();
+        for (List<LoadEvent> workerEvents : perWorker) {
+            Iterator<LoadEvent> iterator = workerEvents.iterator();
+            streams.add(() -> iterator.hasNext() ? iterator.next() : null);
+        }
+        return run(streams, String.format(Locale.ROOT, "Replayed %d events at %.1fx: %d homes, %d threads",
+                events.size(), speed, homeCount, threads));
+    }
+
+    private String run(List<EventStream> streams, String title) throws InterruptedException {
+        warmUp();
+        Home[] homes = new Home[homeCount];
+        for (int i = 0; i < homeCount; i++) {
+            homes[i] = new Home("load-" + i);
+        }
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long heapBefore = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long[] gcBefore = gcCountAndMillis();
+
+        // give the workers a moment to start, so the first events are not late by design
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < streams.size(); i++) {
+            EventStream stream = streams.get(i);
+            Thread worker = new Thread(() -> work(stream, homes, start), "load-" + (i + 1));
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long[] gcAfter = gcCountAndMillis();
+        long heapAfter = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long heapPeak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        if ("prefs".equals(repository)) {
+            for (Home home : homes) {
+                home.removePreferences();
+            }
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder(title).append('\n');
+        long total = latency.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+        report.append(String.format(Locale.ROOT, "Completed %d events in %.1f s, %.0f events/s%n", total, seconds,
+                total / seconds));
+        report.append(String.format(Locale.ROOT, "%-8s %10s %10s | %-33s | %-33s%n", "type", "events", "per sec",
+                "latency from schedule p50/p99/p99.9/max ms", "service time p50/p99/p99.9/max ms"));
+        for (LoadEvent.Type type : LoadEvent.Type.values()) {
+            LatencyHistogram histogram = latency.get(type);
+            report.append(String.format(Locale.ROOT, "%-8s %10d %10.1f | %-33s | %-33s%n", type, histogram.getCount(),
+                    histogram.getCount() / seconds, percentiles(histogram), percentiles(serviceTime.get(type))));
+        }
+        report.append(String.format(Locale.ROOT, "Max lag behind schedule: %.3f ms%n", maxLagNanos.get() / 1e6));
+        report.append(String.format(Locale.ROOT, "Heap used: %.1f MB before, %.1f MB after, %.1f MB peak%n",
+                heapBefore / 1e6, heapAfter / 1e6, heapPeak / 1e6));
+        report.append(String.format(Locale.ROOT, "Allocation: %.1f MB/s, %.0f bytes per event%n",
+                allocatedBytes.sum() / 1e6 / seconds, total == 0 ? 0.0 : (double) allocatedBytes.sum() / total));
+        report.append(String.format(Locale.ROOT, "GC: %d collections, %d ms", gcAfter[0] - gcBefore[0],
+                gcAfter[1] - gcBefore[1]));
+        return report.toString();
+    }
+
+    /**
+     * Sends unmeasured events of every type to a throwaway home as fast as possible.
+     */
+    private void warmUp() {
+        Home home = new Home("load-warmup");
+        LoadProfile.HomeSchedule schedule = new LoadProfile(sensorsPerHome, 10, 1, 1, 0.1, 1.0, 1).schedule(0);
+        for (int i = 0; i < warmupEvents; i++) {
+            home.apply(schedule.next());
+        }
+        if ("prefs".equals(repository)) {
+            home.removePreferences();
+        }
+    }
+
+    private void work(EventStream stream, Home[] homes, long start) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        LoadEvent event;
+        while ((event = stream.next()) != null) {
+            long due = start + event.offsetNanos;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            long begin = System.nanoTime();
+            maxLagNanos.accumulate(begin - due);
+            homes[event.home].apply(event);
+            long end = System.nanoTime();
+            latency.get(event.type).record(end - due);
+            serviceTime.get(event.type).record(end - begin);
+        }
+        allocatedBytes.add(threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT, "%.3f/%.3f/%.3f/%.3f", histogram.percentileNanos(0.50) / 1e6,
+                histogram.percentileNanos(0.99) / 1e6, histogram.percentileNanos(0.999) / 1e6,
+                histogram.getMaxNanos() / 1e6);
+    }
+
+    private static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    /**
+     * Events of one worker in time order; null when there are no more.
+     */
+    private interface EventStream {
+        LoadEvent next();
+    }
+
+    /**
+     * Merges the schedules of a worker's homes up to the end of the run.
+     */
+    private static final class GeneratedStream implements EventStream {
+
+        private final PriorityQueue<LoadProfile.HomeSchedule> schedules;
+        private final long durationNanos;
+        private final List<LoadEvent> log;
+
+        GeneratedStream(PriorityQueue<LoadProfile.HomeSchedule> schedules, long durationNanos, List<LoadEvent> log) {
+            this.schedules = schedules;
+            this.durationNanos = durationNanos;
+            this.log = log;
+        }
+
+        @Override
+        public LoadEvent next() {
+            LoadProfile.HomeSchedule schedule = schedules.poll();
+            if (schedule == null || schedule.nextOffsetNanos() >= durationNanos) {
+                return null;
+            }
+            LoadEvent event = schedule.next();
+            schedules.add(schedule);
+            if (log != null) {
+                log.add(event);
+            }
+            return event;
+        }
+    }
+
+    /**
+     * One simulated home: a SecurityService with its own repository and sensors.
+     */
+    private final class Home {
+
+        private final String preferencesNode;
+        private final SecurityService securityService;
+        private final Sensor[] sensors = new Sensor[sensorsPerHome];
+
+        Home(String preferencesNode) {
+            this.preferencesNode = preferencesNode;
+            SecurityRepository securityRepository = "prefs".equals(repository)
+                    ? new PretendDatabaseSecurityRepositoryImpl(preferencesNode)
+                    : new InMemorySecurityRepository();
+            securityService = new SecurityService(securityRepository, new ScriptedImageService(detectorLatencyNanos));
+            SensorType[] types = SensorType.values();
+            for (int i = 0; i < sensors.length; i++) {
+                sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+                securityService.addSensor(sensors[i]);
+            }
+        }
+
+        void apply(LoadEvent event) {
+            switch (event.type) {
+                case SENSOR:
+                    securityService.changeSensorActivationStatus(sensors[event.sensor], event.flag);
+                    break;
+                case IMAGE:
+                    securityService.processImage(event.flag ? ScriptedImageService.CAT_IMAGE : ScriptedImageService.NO_CAT_IMAGE);
+                    break;
+                default:
+                    securityService.setArmingStatus(event.armingStatus);
+            }
+        }
+
+        void removePreferences() {
+            try {
+                Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(preferencesNode).removeNode();
+            } catch (BackingStoreException ex) {
+                System.err.println("Unable to remove preferences " + preferencesNode + ": " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Statistical description of the load of one home. Sensor events, images and arming changes
+ * each arrive as a Poisson process, i.e. with exponentially distributed gaps. Sensors are
+ * picked from a Zipf distribution, so with a positive skew a few sensors (the front door, the
+ * hallway motion sensor) produce most events; each pick toggles the sensor. Images show a cat
+ * with a fixed probability, and arming changes move to one of the other two arming states.
+ */
+final class LoadProfile {
+
+    private static final ArmingStatus[] ARMING_STATES = ArmingStatus.values();
+
+    final int sensorsPerHome;
+    final double sensorEventsPerSecond;
+    final double imagesPerSecond;
+    final double armingIntervalSeconds;
+    final double catProbability;
+    final double sensorSkew;
+    final long seed;
+
+    // cumulative Zipf probabilities of the sensor indexes
+    private final double[] sensorCdf;
+
+    LoadProfile(int sensorsPerHome, double sensorEventsPerSecond, double imagesPerSecond,
+                double armingIntervalSeconds, double catProbability, double sensorSkew, long seed) {
+        this.sensorsPerHome = sensorsPerHome;
+        this.sensorEventsPerSecond = sensorEventsPerSecond;
+        this.imagesPerSecond = imagesPerSecond;
+        this.armingIntervalSeconds = armingIntervalSeconds;
+        this.catProbability = catProbability;
+        this.sensorSkew = sensorSkew;
+        this.seed = seed;
+        this.sensorCdf = new double[sensorsPerHome];
+        double total = 0;
+        for (int i = 0; i < sensorsPerHome; i++) {
+            total += 1.0 / Math.pow(i + 1, sensorSkew);
+            sensorCdf[i] = total;
+        }
+        for (int i = 0; i < sensorsPerHome; i++) {
+            sensorCdf[i] /= total;
+        }
+    }
+
+    /**
+     * @return The events of one home, generated on demand and reproducible from the seed
+     */
+    HomeSchedule schedule(int home) {
+        return new HomeSchedule(home);
+    }
+
+    /**
+     * Next events of one home in time order.
+     */
+    final class HomeSchedule {
+
+        private final int home;
+        private final Random random;
+        private final boolean[] sensorStates = new boolean[sensorsPerHome];
+        private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+        private long nextSensorNanos;
+        private long nextImageNanos;
+        private long nextArmingNanos;
+
+        private HomeSchedule(int home) {
+            this.home = home;
+            this.random = new Random(seed * 31 + home);
+            nextSensorNanos = gap(sensorEventsPerSecond);
+            nextImageNanos = gap(imagesPerSecond);
+            nextArmingNanos = armingIntervalSeconds > 0 ? gap(1.0 / armingIntervalSeconds) : Long.MAX_VALUE;
+        }
+
+        /**
+         * @return Offset of the next event from the start of the run
+         */
+        long nextOffsetNanos() {
+            return Math.min(nextSensorNanos, Math.min(nextImageNanos, nextArmingNanos));
+        }
+
+        LoadEvent next() {
+            long offset = nextOffsetNanos();
+            if (offset == nextSensorNanos) {
+                nextSensorNanos += gap(sensorEventsPerSecond);
+                int sensor = pickSensor();
+                sensorStates[sensor] = !sensorStates[sensor];
+                return LoadEvent.sensor(offset, home, sensor, sensorStates[sensor]);
+            }
+            if (offset == nextImageNanos) {
+                nextImageNanos += gap(imagesPerSecond);
+                return LoadEvent.image(offset, home, random.nextDouble() < catProbability);
+            }
+            nextArmingNanos += gap(1.0 / armingIntervalSeconds);
+            ArmingStatus next;
+            do {
+                next = ARMING_STATES[random.nextInt(ARMING_STATES.length)];
+            } while (next == armingStatus);
+            armingStatus = next;
+            if (next != ArmingStatus.DISARMED) {
+                // arming resets every sensor
+                Arrays.fill(sensorStates, false);
+            }
+            return LoadEvent.arming(offset, home, next);
+        }
+
+        private int pickSensor() {
+            int index = Arrays.binarySearch(sensorCdf, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, sensorsPerHome - 1);
+        }
+
+        private long gap(double perSecond) {
+            if (perSecond <= 0) {
+                return Long.MAX_VALUE / 2;
+            }
+            return 1 + (long) (-Math.log(1.0 - random.nextDouble()) / perSecond * 1_000_000_000L);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.udacity.catpoint.benchmarks.load;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.LockSupport;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+
+/**
+ * Image service whose verdict is decided by the event: it reports a cat exactly for
+ * {@link #CAT_IMAGE}, so generated and replayed runs see the same verdicts. An optional
+ * delay stands in for a remote classifier.
+ */
+final class ScriptedImageService implements IService {
+
+    static final BufferedImage CAT_IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    static final BufferedImage NO_CAT_IMAGE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private static final DetectionResult CAT = DetectionResult.of("Cat", 95.0f);
+
+    private final long latencyNanos;
+
+    ScriptedImageService(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        if (latencyNanos > 0) {
+            long deadline = System.nanoTime() + latencyNanos;
+            for (long remaining = latencyNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+        return image == CAT_IMAGE ? CAT : DetectionResult.none();
+    }
+}
@@ -6,17 +6,21 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.RekognitionClientBuilder;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
@@ -32,80 +36,195 @@ import java.util.stream.Collectors;
  * containing the keys referenced in this class: aws.id=[your access key id]
  * aws.secret=[your Secret access key] aws.region=[an aws region of choice. For
  * example: us-east-2]
+ * <p>
+ * Optional keys: aws.image.maxEdge=[longest edge in pixels images are downscaled to before
+ * upload, 0 to disable. Default 1024] aws.image.jpegQuality=[JPEG quality between 0.0 and
+ * 1.0. Default 0.85] aws.minConfidence=[lowest label confidence in percent requested from
+ * Rekognition; lower thresholds cannot be evaluated on the result. Default 50]
+ * aws.endpoint=[endpoint URL overriding the regional one, e.g. a local stand-in server].
+ * Timeouts, hedging, circuit breaker and rate limiting are configured with
+ * the keys listed in {@link ResilienceSettings}.
  */
-public class AwsImageService implements IService {
+public class AwsImageService implements IService, AutoCloseable {
 
     private final Logger logger = LoggerFactory.getLogger(AwsImageService.class);
 
-    // AWS recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    // AWS recommendation is to maintain only a single instance of client objects, so share
+    // the service instance rather than creating one per caller
+    private RekognitionClient rekognitionClient;
+    private ResilientInvoker invoker;
+
+    private static final int DEFAULT_MAX_EDGE = 1024;
+    private static final float DEFAULT_JPEG_QUALITY = 0.85f;
+    private static final float DEFAULT_MIN_CONFIDENCE = 50.0f;
+
+    private JpegImageEncoder imageEncoder = new JpegImageEncoder(DEFAULT_MAX_EDGE, DEFAULT_JPEG_QUALITY);
+    private float minConfidence = DEFAULT_MIN_CONFIDENCE;
+
+    // answers when Rekognition is unavailable, may be null
+    private final IService fallbackService;
 
     public AwsImageService() {
-        initializeRekognitionClient();
+        this(null);
+    }
+
+    /**
+     * @param fallbackService Service used while Rekognition is failing, timing out or
+     * rejecting calls. If null, such images are reported as not containing a cat.
+     */
+    public AwsImageService(IService fallbackService) {
+        this.fallbackService = fallbackService;
+        Properties properties = loadProperties();
+        if (properties != null) {
+            initializeRekognitionClient(properties);
+        }
+    }
+
+    /**
+     * Creates a service from explicit settings instead of config.properties, for example to
+     * point it at a local stand-in endpoint.
+     *
+     * @param properties Settings using the same keys as config.properties
+     * @param fallbackService Service used while Rekognition is unavailable, may be null
+     */
+    public AwsImageService(Properties properties, IService fallbackService) {
+        this.fallbackService = fallbackService;
+        initializeRekognitionClient(properties);
     }
 
     /**
-     * Returns true if the provided image contains a cat.
+     * Returns all labels Rekognition finds in the image with at least the configured
+     * aws.minConfidence, so thresholds down to that value can be evaluated on the result.
      *
      * @param image Image to scan
-     * @param confidenceThreshold Minimum threshold to consider for cat. For
-     * example, 90.0f would require 90% confidence minimum
-     * @return True if the image contains a cat, false otherwise
+     * @return The labels, the fallback service's result while Rekognition is unavailable, or
+     * no labels if there is no fallback
      */
-    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        if (rekognitionClient == null) {
+            logger.error("AWS Rekognition is not initialized");
+            return fallback(image);
+        }
+
         Image awsImage = createAwsImage(image);
         if (awsImage == null) {
-            return false;
+            return DetectionResult.none();
         }
 
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder()
                 .image(awsImage)
-                .minConfidence(confidenceThreshold)
+                .minConfidence(minConfidence)
                 .build();
 
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
+        DetectLabelsResponse response;
+        try {
+            response = invoker.invoke(() -> rekognitionClient.detectLabels(detectLabelsRequest));
+        } catch (ImageServiceUnavailableException ex) {
+            logger.warn("AWS Rekognition unavailable ({}), using fallback", ex.getMessage());
+            return fallback(image);
+        }
         logLabels(response);
-        return response.labels().stream()
-                .anyMatch(label -> label.name().toLowerCase().contains("cat"));
+        return new DetectionResult(response.labels().stream()
+                .map(label -> new DetectedLabel(label.name(), label.confidence()))
+                .collect(Collectors.toList()));
+    }
+
+    private DetectionResult fallback(BufferedImage image) {
+        return fallbackService == null ? DetectionResult.none() : fallbackService.detect(image);
     }
 
     /**
-     * Initializes the AWS Rekognition client using credentials from the
-     * config.properties file.
+     * Reads the config.properties file from the classpath.
+     *
+     * @return The properties, or null if the file is missing or unreadable
      */
-    private void initializeRekognitionClient() {
+    private Properties loadProperties() {
         Properties properties = new Properties();
         try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("config.properties")) {
             if (inputStream == null) {
                 throw new IOException("Config file not found");
             }
             properties.load(inputStream);
+            return properties;
         } catch (IOException ex) {
             logger.error("Unable to initialize AWS Rekognition, no properties file found", ex);
-            return;
+            return null;
         }
+    }
 
+    /**
+     * Initializes the AWS Rekognition client using credentials from the
+     * config.properties file. The client gets bounded timeouts, a retry budget and a
+     * connection pool sized to the concurrency limit; aws.endpoint optionally overrides the
+     * regional endpoint.
+     */
+    private void initializeRekognitionClient(Properties properties) {
         String awsId = properties.getProperty("aws.id");
         String awsSecret = properties.getProperty("aws.secret");
         String awsRegion = properties.getProperty("aws.region");
+        String awsEndpoint = properties.getProperty("aws.endpoint");
+
+        imageEncoder = new JpegImageEncoder(
+                Integer.parseInt(properties.getProperty("aws.image.maxEdge", String.valueOf(DEFAULT_MAX_EDGE))),
+                Float.parseFloat(properties.getProperty("aws.image.jpegQuality", String.valueOf(DEFAULT_JPEG_QUALITY))));
+        minConfidence = Float.parseFloat(properties.getProperty("aws.minConfidence",
+                String.valueOf(DEFAULT_MIN_CONFIDENCE)));
+
+        ResilienceSettings settings = new ResilienceSettings(properties);
+        invoker = new ResilientInvoker(settings);
 
         AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
+        RekognitionClientBuilder builder = RekognitionClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
-                .build();
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(settings.getMaxConcurrency())
+                        .connectionTimeout(Duration.ofMillis(settings.getConnectTimeoutMillis()))
+                        .socketTimeout(Duration.ofMillis(settings.getCallTimeoutMillis())))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(Duration.ofMillis(settings.getCallTimeoutMillis()))
+                        .retryPolicy(RetryPolicy.builder().numRetries(settings.getRetries()).build())
+                        .build());
+        if (awsEndpoint != null && !awsEndpoint.isBlank()) {
+            builder.endpointOverride(URI.create(awsEndpoint));
+        }
+        rekognitionClient = builder.build();
+    }
+
+    /**
+     * @return Lowest label confidence in percent requested from Rekognition; results cannot
+     * be evaluated against a lower threshold
+     */
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    /**
+     * Releases the HTTP connection pool, the call threads and the JPEG writers.
+     */
+    @Override
+    public void close() {
+        imageEncoder.close();
+        if (invoker != null) {
+            invoker.close();
+        }
+        if (rekognitionClient != null) {
+            rekognitionClient.close();
+        }
     }
 
     /**
-     * Converts a BufferedImage to an AWS Image object.
+     * Converts a BufferedImage to an AWS Image object. The image is downscaled and encoded by
+     * the {@link JpegImageEncoder}. This SDK version only wraps arrays of exactly the
+     * encoded size, so the encoded bytes are copied once here.
      *
      * @param bufferedImage The input BufferedImage
      * @return An AWS Image object, or null if an error occurs
      */
     private Image createAwsImage(BufferedImage bufferedImage) {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ImageIO.write(bufferedImage, "jpg", outputStream);
-            return Image.builder().bytes(SdkBytes.fromByteArray(outputStream.toByteArray())).build();
+        try {
+            return Image.builder().bytes(SdkBytes.fromByteBuffer(imageEncoder.encode(bufferedImage))).build();
         } catch (IOException ex) {
             logger.error("Error building image byte array", ex);
             return null;
@@ -0,0 +1,79 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Image service whose implementation is still being created, for example while an AWS client
+ * is built in the background during startup. Callers can be wired to it right away; images
+ * submitted before the implementation is ready wait for it, so callers on a thread that must not
+ * block, such as the Swing event thread, should wait for {@link #whenReady()} first.
+ */
+public class DeferredImageService implements IService, Closeable {
+
+    private final CompletableFuture<? extends IService> delegate;
+
+    /**
+     * @param delegate Future completing with the actual service
+     */
+    public DeferredImageService(CompletableFuture<? extends IService> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return True once the actual service is available
+     */
+    public boolean isReady() {
+        return delegate.isDone() && !delegate.isCompletedExceptionally();
+    }
+
+    /**
+     * @return Future completing once the actual service is available, or exceptionally if it
+     * could not be created
+     */
+    public CompletableFuture<Void> whenReady() {
+        return delegate.thenAccept(service -> { });
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        return delegate.join().detect(image);
+    }
+
+    /**
+     * @return The actual service once it is ready, until then this service
+     */
+    @Override
+    public IService unwrap() {
+        return isReady() ? delegate.join().unwrap() : this;
+    }
+
+    /**
+     * Closes the actual service if it was created and is closeable.
+     *
+     * @throws IOException If the actual service failed to close; checked exceptions other than
+     * IOException are wrapped
+     */
+    @Override
+    public void close() throws IOException {
+        if (!isReady()) {
+            return;
+        }
+        IService service = delegate.join();
+        if (!(service instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) service).close();
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Unable to close image service", ex);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Objects;
+
+/**
+ * A label an image service found in an image, with its confidence in percent.
+ */
+public final class DetectedLabel {
+
+    private final String name;
+    private final float confidence;
+
+    public DetectedLabel(String name, float confidence) {
+        this.name = Objects.requireNonNull(name);
+        this.confidence = confidence;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Confidence between 0 and 100
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DetectedLabel that = (DetectedLabel) o;
+        return Float.compare(that.confidence, confidence) == 0 && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, confidence);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.1f%%)", name, confidence);
+    }
+}
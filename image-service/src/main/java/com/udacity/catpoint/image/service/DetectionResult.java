@@ -0,0 +1,85 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Everything an image service found in one image. Obtaining a result is the expensive part;
+ * any number of thresholds and label rules can then be evaluated against it for free.
+ */
+public final class DetectionResult {
+
+    /**
+     * Labels that count as a cat, compared case-insensitively.
+     */
+    public static final Set<String> CAT_LABELS = Set.of("cat", "kitten", "feline");
+
+    private static final DetectionResult NONE = new DetectionResult(Collections.emptyList());
+
+    private final List<DetectedLabel> labels;
+
+    public DetectionResult(List<DetectedLabel> labels) {
+        this.labels = List.copyOf(labels);
+    }
+
+    /**
+     * @return A result without any labels
+     */
+    public static DetectionResult none() {
+        return NONE;
+    }
+
+    /**
+     * @return A result with a single label
+     */
+    public static DetectionResult of(String name, float confidence) {
+        return new DetectionResult(List.of(new DetectedLabel(name, confidence)));
+    }
+
+    public List<DetectedLabel> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @param names Label names, compared case-insensitively
+     * @return The highest confidence of any label with one of the names, or 0 if none was found
+     */
+    public float confidenceOf(Collection<String> names) {
+        float best = 0;
+        for (DetectedLabel label : labels) {
+            if (label.getConfidence() > best && names.contains(label.getName().toLowerCase(Locale.ROOT))) {
+                best = label.getConfidence();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param minConfidence Minimum confidence in percent
+     * @param names Lower case label names
+     * @return True if a label with one of the names was found with at least that confidence
+     */
+    public boolean containsAny(float minConfidence, Collection<String> names) {
+        for (DetectedLabel label : labels) {
+            if (label.getConfidence() >= minConfidence && names.contains(label.getName().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return True if one of the {@link #CAT_LABELS} was found with at least the given confidence
+     */
+    public boolean containsCat(float minConfidence) {
+        return containsAny(minConfidence, CAT_LABELS);
+    }
+
+    @Override
+    public String toString() {
+        return labels.toString();
+    }
+}
@@ -8,7 +8,7 @@ import java.util.Random;
  */
 public class FakeImageService implements IService{
     private final Random r = new Random();
-    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        return r.nextBoolean();
+    public DetectionResult detect(BufferedImage image) {
+        return r.nextBoolean() ? DetectionResult.of("Cat", 100.0f) : DetectionResult.none();
     }
 }
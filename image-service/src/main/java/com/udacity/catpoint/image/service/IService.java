@@ -3,5 +3,35 @@ package com.udacity.catpoint.image.service;
 import java.awt.image.BufferedImage;
 
 public interface IService {
-    boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
-}
\ No newline at end of file
+
+    /**
+     * Classifies an image once and returns every label found, so callers can evaluate
+     * several thresholds or label rules without classifying it again.
+     *
+     * @param image Image to classify
+     * @return Labels with their confidences, never null
+     */
+    DetectionResult detect(BufferedImage image);
+
+    /**
+     * Convenience check for a single threshold, derived from {@link #detect(BufferedImage)}.
+     *
+     * @param image Image to classify
+     * @param confidenceThreshhold Minimum confidence in percent
+     * @return True if one of the {@link DetectionResult#CAT_LABELS} was found with at least
+     * that confidence
+     */
+    default boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return detect(image).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Services that only wrap another one, for example to record metrics, return the
+     * service they wrap, so callers can tell which service actually classifies images.
+     *
+     * @return The innermost service doing the work, this service by default
+     */
+    default IService unwrap() {
+        return this;
+    }
+}
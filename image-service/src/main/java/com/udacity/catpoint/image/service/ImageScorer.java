@@ -0,0 +1,29 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap, local estimate of whether an image contains a cat. Scorers are meant to run in
+ * front of a more expensive {@link IService} and must not perform any network calls.
+ */
+public interface ImageScorer {
+
+    /**
+     * Scores the provided image.
+     *
+     * @param image Image to score
+     * @return Probability in the range [0, 1] that the image contains a cat. Values close to
+     * 0.5 mean the scorer has no opinion.
+     */
+    float score(BufferedImage image);
+
+    /**
+     * Feeds back an authoritative verdict for an image this scorer was unsure about, so it
+     * can answer on its own next time. The default implementation ignores it.
+     *
+     * @param image Image that was classified
+     * @param containsCat Verdict of the authoritative service
+     */
+    default void learn(BufferedImage image, boolean containsCat) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Thrown when a remote classification could not be completed, either because it was
+ * rejected up front (open circuit, rate limit, saturated) or because it failed or timed out.
+ */
+public class ImageServiceUnavailableException extends RuntimeException {
+
+    public ImageServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ImageServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,268 @@
+package com.udacity.catpoint.image.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Prepares images for upload to a remote classifier. Images larger than the configured
+ * maximum edge are downscaled first, and the JPEG quality is set explicitly instead of
+ * relying on the ImageIO default.
+ * <p>
+ * Writers and scratch images are kept in a small pool rather than per thread, as callers may
+ * run every scan on a new thread. A caller that finds the pool empty encodes with resources
+ * of its own, which are disposed of afterwards unless the pool has room for them. The JPEG
+ * data is written straight into an array sized after the previous frame, and that array is
+ * handed to the caller without copying it.
+ */
+public class JpegImageEncoder implements AutoCloseable {
+
+    private static final int MIN_BUFFER = 16 * 1024;
+
+    private final int maxEdge;
+    private final float quality;
+
+    private final BlockingQueue<EncoderState> idle;
+    private volatile boolean closed;
+
+    /**
+     * Creates an encoder pooling as many writers as there are processors.
+     *
+     * @param maxEdge Maximum width or height of the encoded image in pixels, 0 to keep the
+     * original size
+     * @param quality JPEG quality between 0.0 and 1.0
+     */
+    public JpegImageEncoder(int maxEdge, float quality) {
+        this(maxEdge, quality, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxEdge Maximum width or height of the encoded image in pixels, 0 to keep the
+     * original size
+     * @param quality JPEG quality between 0.0 and 1.0
+     * @param poolSize Writers kept between calls
+     */
+    public JpegImageEncoder(int maxEdge, float quality, int poolSize) {
+        if (quality < 0.0f || quality > 1.0f) {
+            throw new IllegalArgumentException("quality must be between 0.0 and 1.0");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        this.maxEdge = maxEdge;
+        this.quality = quality;
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Downscales and encodes the provided image.
+     *
+     * @param image Image to encode
+     * @return The JPEG bytes, from position 0 to the limit. The backing array is not shared
+     * with any other caller.
+     * @throws IOException If the image cannot be encoded
+     * @throws IllegalStateException If the encoder was closed
+     */
+    public ByteBuffer encode(BufferedImage image) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Encoder is closed");
+        }
+        EncoderState current = idle.poll();
+        if (current == null) {
+            current = new EncoderState();
+        }
+        try {
+            return current.encode(image, maxEdge, quality);
+        } finally {
+            if (closed || !idle.offer(current)) {
+                current.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return Writers currently kept in the pool
+     */
+    int idleWriters() {
+        return idle.size();
+    }
+
+    /**
+     * Disposes of the pooled writers. Calls still encoding dispose of theirs when done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        EncoderState state;
+        while ((state = idle.poll()) != null) {
+            state.dispose();
+        }
+    }
+
+    /**
+     * Encoding resources used by one call at a time.
+     */
+    private static final class EncoderState {
+
+        private final ImageWriter writer;
+        private BufferedImage scratch;
+        private int lastSize;
+
+        EncoderState() {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+            if (!writers.hasNext()) {
+                throw new IllegalStateException("No JPEG writer available");
+            }
+            writer = writers.next();
+        }
+
+        ByteBuffer encode(BufferedImage image, int maxEdge, float quality) throws IOException {
+            BufferedImage prepared = prepare(image, maxEdge);
+
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+
+            // frames of a camera compress to similar sizes, so the array rarely has to grow
+            ArrayImageOutputStream output = new ArrayImageOutputStream(Math.max(MIN_BUFFER, lastSize + lastSize / 8));
+            try {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(prepared, null, null), param);
+            } finally {
+                writer.setOutput(null);
+                output.close();
+            }
+            lastSize = output.size();
+            return output.toByteBuffer();
+        }
+
+        void dispose() {
+            writer.dispose();
+            scratch = null;
+        }
+
+        /**
+         * Returns an opaque RGB image no larger than maxEdge. The original image is returned
+         * as-is when it already satisfies both conditions. Transparent pixels become black.
+         */
+        BufferedImage prepare(BufferedImage image, int maxEdge) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int longest = Math.max(width, height);
+            boolean downscale = maxEdge > 0 && longest > maxEdge;
+            if (!downscale && (image.getType() == BufferedImage.TYPE_INT_RGB
+                    || image.getType() == BufferedImage.TYPE_3BYTE_BGR)) {
+                return image;
+            }
+
+            int targetWidth = downscale ? Math.max(1, (int) ((long) width * maxEdge / longest)) : width;
+            int targetHeight = downscale ? Math.max(1, (int) ((long) height * maxEdge / longest)) : height;
+            if (scratch == null || scratch.getWidth() != targetWidth || scratch.getHeight() != targetHeight) {
+                scratch = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+            }
+
+            Graphics2D graphics = scratch.createGraphics();
+            try {
+                // the scratch image still holds the previous frame, which would show through
+                // transparent pixels
+                graphics.setColor(Color.BLACK);
+                graphics.fillRect(0, 0, targetWidth, targetHeight);
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            return scratch;
+        }
+    }
+
+    /**
+     * Seekable in-memory output that the writer fills directly, without the intermediate
+     * cache of MemoryCacheImageOutputStream.
+     */
+    private static final class ArrayImageOutputStream extends ImageOutputStreamImpl {
+
+        private byte[] bytes;
+        private int size;
+
+        ArrayImageOutputStream(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            flushBits();
+            int position = reserve(1);
+            bytes[position] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            flushBits();
+            int position = reserve(len);
+            System.arraycopy(b, off, bytes, position, len);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkClosed();
+            bitOffset = 0;
+            return streamPos < size ? bytes[(int) streamPos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkClosed();
+            bitOffset = 0;
+            int available = (int) Math.min(len, size - streamPos);
+            if (available <= 0) {
+                return len == 0 ? 0 : -1;
+            }
+            System.arraycopy(bytes, (int) streamPos, b, off, available);
+            streamPos += available;
+            return available;
+        }
+
+        @Override
+        public long length() {
+            return size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        /**
+         * Makes room for len bytes at the current position and moves past them.
+         *
+         * @return Where the bytes go
+         */
+        private int reserve(int len) throws IOException {
+            checkClosed();
+            int position = (int) streamPos;
+            int end = position + len;
+            if (end > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(end, bytes.length * 2));
+            }
+            streamPos = end;
+            size = Math.max(size, end);
+            return position;
+        }
+    }
+}
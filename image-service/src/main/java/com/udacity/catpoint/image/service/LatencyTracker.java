@@ -0,0 +1,50 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent call latencies in a fixed-size window and answers percentile
+ * queries over that window. Used to decide when a hedged request is worth sending.
+ */
+public class LatencyTracker {
+
+    private final long[] window;
+
+    // guarded by "this"
+    private int size;
+    private int next;
+
+    public LatencyTracker(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.window = new long[windowSize];
+    }
+
+    public synchronized void record(long nanos) {
+        window[next] = nanos;
+        next = (next + 1) % window.length;
+        size = Math.min(size + 1, window.length);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return The latency in nanoseconds at the given percentile, or -1 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (size == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(window, size);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
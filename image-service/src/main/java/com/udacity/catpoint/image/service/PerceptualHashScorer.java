@@ -0,0 +1,142 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Local scorer based on a 64-bit difference hash (dHash) of the image. It gives a confident
+ * answer in two cases:
+ * <ul>
+ * <li>the frame has almost no detail (lens covered, lights off), which cannot show a cat</li>
+ * <li>a near-duplicate of the frame was recently classified by an authoritative service</li>
+ * </ul>
+ * Everything else scores 0.5 so that a cascade escalates it. Verdicts are remembered
+ * regardless of the confidence threshold they were produced with, so a single instance
+ * should only be shared by callers that use the same threshold.
+ */
+public class PerceptualHashScorer implements ImageScorer {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private final int maxHammingDistance;
+    private final double blankFrameStdDev;
+
+    // ring buffer of recently learned hashes, guarded by "this"
+    private final long[] hashes;
+    private final boolean[] verdicts;
+    private int size;
+    private int next;
+
+    public PerceptualHashScorer() {
+        this(256, 4, 6.0);
+    }
+
+    /**
+     * @param capacity Number of learned verdicts to remember
+     * @param maxHammingDistance Maximum number of differing hash bits for two frames to be
+     * considered the same scene
+     * @param blankFrameStdDev Luminance standard deviation (0-255 scale) under which a frame is
+     * treated as blank
+     */
+    public PerceptualHashScorer(int capacity, int maxHammingDistance, double blankFrameStdDev) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.hashes = new long[capacity];
+        this.verdicts = new boolean[capacity];
+        this.maxHammingDistance = maxHammingDistance;
+        this.blankFrameStdDev = blankFrameStdDev;
+    }
+
+    @Override
+    public float score(BufferedImage image) {
+        int[] luminance = sampleLuminance(image);
+        if (standardDeviation(luminance) < blankFrameStdDev) {
+            return 0.0f;
+        }
+
+        long hash = differenceHash(luminance);
+        synchronized (this) {
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                int distance = Long.bitCount(hashes[i] ^ hash);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = i;
+                }
+            }
+            if (best >= 0 && bestDistance <= maxHammingDistance) {
+                return verdicts[best] ? 1.0f : 0.0f;
+            }
+        }
+        return 0.5f;
+    }
+
+    @Override
+    public void learn(BufferedImage image, boolean containsCat) {
+        long hash = differenceHash(sampleLuminance(image));
+        synchronized (this) {
+            hashes[next] = hash;
+            verdicts[next] = containsCat;
+            next = (next + 1) % hashes.length;
+            size = Math.min(size + 1, hashes.length);
+        }
+    }
+
+    /**
+     * Downsamples the image to a 9x8 grid of average luminance values. Each cell is averaged
+     * from a small fixed number of samples, so the cost does not depend on the image size.
+     */
+    private static int[] sampleLuminance(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] cells = new int[HASH_WIDTH * HASH_HEIGHT];
+        for (int cy = 0; cy < HASH_HEIGHT; cy++) {
+            for (int cx = 0; cx < HASH_WIDTH; cx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((cx * SAMPLES_PER_CELL + sx) + 0.5) * width / (HASH_WIDTH * SAMPLES_PER_CELL));
+                        int y = (int) (((cy * SAMPLES_PER_CELL + sy) + 0.5) * height / (HASH_HEIGHT * SAMPLES_PER_CELL));
+                        int rgb = image.getRGB(Math.min(x, width - 1), Math.min(y, height - 1));
+                        int r = (rgb >> 16) & 0xFF;
+                        int g = (rgb >> 8) & 0xFF;
+                        int b = rgb & 0xFF;
+                        sum += (r * 299 + g * 587 + b * 114) / 1000;
+                    }
+                }
+                cells[cy * HASH_WIDTH + cx] = sum / (SAMPLES_PER_CELL * SAMPLES_PER_CELL);
+            }
+        }
+        return cells;
+    }
+
+    private static long differenceHash(int[] luminance) {
+        long hash = 0;
+        int bit = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                if (luminance[y * HASH_WIDTH + x] > luminance[y * HASH_WIDTH + x + 1]) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    private static double standardDeviation(int[] values) {
+        double mean = 0;
+        for (int value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+        double variance = 0;
+        for (int value : values) {
+            variance += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(variance / values.length);
+    }
+}
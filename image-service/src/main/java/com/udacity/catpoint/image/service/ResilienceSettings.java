@@ -0,0 +1,87 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link ResilientInvoker}, usually read from config.properties. All keys are
+ * optional:
+ * <ul>
+ * <li>aws.timeout.callMillis - deadline for a classification including hedges. Default 3000</li>
+ * <li>aws.timeout.connectMillis - TCP connect timeout. Default 1000</li>
+ * <li>aws.retries - SDK-level retries per attempt. Default 1</li>
+ * <li>aws.maxConcurrency - concurrent calls and pooled connections. Default 16</li>
+ * <li>aws.hedge.percentile - latency percentile after which a second request is sent, 0 to
+ * disable hedging. Default 0</li>
+ * <li>aws.circuit.failureThreshold - consecutive failures that open the circuit. Default 5</li>
+ * <li>aws.circuit.openMillis - how long the circuit stays open. Default 30000</li>
+ * <li>aws.rateLimit.perSecond - sustained call rate, 0 for unlimited. Default 0</li>
+ * <li>aws.rateLimit.burst - burst size of the rate limiter. Default 10</li>
+ * <li>aws.rateLimit.waitMillis - how long a call may wait for a permit. Default 0</li>
+ * </ul>
+ */
+public class ResilienceSettings {
+
+    private final long callTimeoutMillis;
+    private final long connectTimeoutMillis;
+    private final int retries;
+    private final int maxConcurrency;
+    private final double hedgePercentile;
+    private final int circuitFailureThreshold;
+    private final long circuitOpenMillis;
+    private final double rateLimitPerSecond;
+    private final int rateLimitBurst;
+    private final long rateLimitWaitMillis;
+
+    public ResilienceSettings(Properties properties) {
+        callTimeoutMillis = Long.parseLong(properties.getProperty("aws.timeout.callMillis", "3000"));
+        connectTimeoutMillis = Long.parseLong(properties.getProperty("aws.timeout.connectMillis", "1000"));
+        retries = Integer.parseInt(properties.getProperty("aws.retries", "1"));
+        maxConcurrency = Integer.parseInt(properties.getProperty("aws.maxConcurrency", "16"));
+        hedgePercentile = Double.parseDouble(properties.getProperty("aws.hedge.percentile", "0"));
+        circuitFailureThreshold = Integer.parseInt(properties.getProperty("aws.circuit.failureThreshold", "5"));
+        circuitOpenMillis = Long.parseLong(properties.getProperty("aws.circuit.openMillis", "30000"));
+        rateLimitPerSecond = Double.parseDouble(properties.getProperty("aws.rateLimit.perSecond", "0"));
+        rateLimitBurst = Integer.parseInt(properties.getProperty("aws.rateLimit.burst", "10"));
+        rateLimitWaitMillis = Long.parseLong(properties.getProperty("aws.rateLimit.waitMillis", "0"));
+    }
+
+    public long getCallTimeoutMillis() {
+        return callTimeoutMillis;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public long getCircuitOpenMillis() {
+        return circuitOpenMillis;
+    }
+
+    public double getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public long getRateLimitWaitMillis() {
+        return rateLimitWaitMillis;
+    }
+}
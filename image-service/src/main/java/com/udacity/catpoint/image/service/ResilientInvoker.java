@@ -0,0 +1,194 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs remote calls under a deadline, optionally hedges them, and protects the remote end
+ * with a circuit breaker, a token-bucket rate limiter and a concurrency cap.
+ * <p>
+ * When hedging is enabled, a second identical request is sent if the first one has not
+ * answered after the configured latency percentile of recent calls. Whichever succeeds
+ * first wins and the other one is cancelled. The call must therefore be idempotent.
+ */
+public class ResilientInvoker implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(ResilientInvoker.class);
+
+    // hedging only kicks in once the latency window holds enough samples to be meaningful
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final int QUEUED_CALLS_PER_THREAD = 4;
+
+    private final ResilienceSettings settings;
+    private final CircuitBreaker circuitBreaker;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final LatencyTracker latencyTracker = new LatencyTracker(256);
+    private final ThreadPoolExecutor executor;
+
+    public ResilientInvoker(ResilienceSettings settings) {
+        this.settings = settings;
+        this.circuitBreaker = new CircuitBreaker(settings.getCircuitFailureThreshold(), settings.getCircuitOpenMillis());
+        this.rateLimiter = settings.getRateLimitPerSecond() > 0
+                ? new TokenBucketRateLimiter(settings.getRateLimitPerSecond(), settings.getRateLimitBurst())
+                : null;
+
+        // at most maxConcurrency calls run at once; a short queue absorbs bursts and anything
+        // beyond it is rejected rather than piling up behind a slow endpoint
+        AtomicInteger threadCount = new AtomicInteger();
+        int maxConcurrency = settings.getMaxConcurrency();
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrency * QUEUED_CALLS_PER_THREAD), runnable -> {
+                    Thread thread = new Thread(runnable, "image-call-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the call with the configured protections.
+     *
+     * @param call Idempotent remote call
+     * @return The result of the first successful attempt
+     * @throws ImageServiceUnavailableException If the call was rejected, failed or missed its
+     * deadline
+     */
+    public <T> T invoke(Callable<T> call) {
+        // the breaker is asked first, so calls it rejects do not use up rate limit tokens
+        if (!circuitBreaker.allowRequest()) {
+            throw new ImageServiceUnavailableException("Circuit breaker is open");
+        }
+        if (!acquirePermit()) {
+            circuitBreaker.release();
+            throw new ImageServiceUnavailableException("Rate limit exceeded");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + settings.getCallTimeoutMillis() * 1_000_000L;
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        try {
+            attempts.add(completionService.submit(call));
+        } catch (RejectedExecutionException ex) {
+            circuitBreaker.release();
+            throw new ImageServiceUnavailableException("Too many concurrent calls", ex);
+        }
+
+        try {
+            T result = awaitFirstSuccess(completionService, call, attempts, start, deadline);
+            latencyTracker.record(System.nanoTime() - start);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (ImageServiceUnavailableException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.release();
+            throw new ImageServiceUnavailableException("Interrupted while waiting for a response", ex);
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+
+    private <T> T awaitFirstSuccess(CompletionService<T> completionService, Callable<T> call,
+                                    List<Future<T>> attempts, long start, long deadline)
+            throws InterruptedException {
+        long hedgeAt = hedgeDelayNanos();
+        boolean hedged = hedgeAt < 0;
+        int pending = 1;
+        Throwable lastFailure = null;
+
+        while (pending > 0) {
+            long now = System.nanoTime();
+            long waitUntil = hedged ? deadline : Math.min(deadline, start + hedgeAt);
+            Future<T> done = completionService.poll(Math.max(0, waitUntil - now), TimeUnit.NANOSECONDS);
+
+            if (done == null) {
+                if (!hedged && System.nanoTime() < deadline) {
+                    hedged = true;
+                    if (submitHedge(completionService, call, attempts)) {
+                        pending++;
+                    }
+                    continue;
+                }
+                throw new ImageServiceUnavailableException(
+                        "No response within " + settings.getCallTimeoutMillis() + " ms", lastFailure);
+            }
+
+            pending--;
+            try {
+                return done.get();
+            } catch (ExecutionException ex) {
+                lastFailure = ex.getCause();
+                logger.warn("Remote call attempt failed", lastFailure);
+            }
+        }
+        throw new ImageServiceUnavailableException("Remote call failed", lastFailure);
+    }
+
+    private <T> boolean submitHedge(CompletionService<T> completionService, Callable<T> call, List<Future<T>> attempts) {
+        if (rateLimiter != null && !tryAcquireQuietly()) {
+            return false;
+        }
+        try {
+            attempts.add(completionService.submit(call));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return Delay after which a hedge is sent, or -1 if hedging is off or not yet calibrated
+     */
+    private long hedgeDelayNanos() {
+        if (settings.getHedgePercentile() <= 0 || latencyTracker.size() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return latencyTracker.percentile(settings.getHedgePercentile());
+    }
+
+    private boolean acquirePermit() {
+        if (rateLimiter == null) {
+            return true;
+        }
+        try {
+            return rateLimiter.tryAcquire(settings.getRateLimitWaitMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean tryAcquireQuietly() {
+        try {
+            return rateLimiter.tryAcquire(0);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
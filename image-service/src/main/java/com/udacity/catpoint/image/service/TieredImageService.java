@@ -0,0 +1,162 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Image service that cascades two tiers: a cheap local {@link ImageScorer} answers on its own
+ * when it is confident, and the delegate service (usually {@link AwsImageService}) is only
+ * consulted when the local score falls inside the uncertainty band
+ * {@code (lowerBound, upperBound)}. Verdicts of the delegate are fed back to the scorer.
+ */
+public class TieredImageService implements IService {
+
+    private final Logger logger = LoggerFactory.getLogger(TieredImageService.class);
+
+    private static final int REPORT_INTERVAL = 1000;
+    // confidence at which a delegate verdict is taught to the local scorer as "cat" by default
+    private static final float LEARN_CONFIDENCE = 50.0f;
+
+    private final ImageScorer localScorer;
+    private final IService delegate;
+    private final float lowerBound;
+    private final float upperBound;
+    private final Predicate<DetectionResult> catRule;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localNanos = new LongAdder();
+    private final LongAdder escalations = new LongAdder();
+    private final LongAdder delegateNanos = new LongAdder();
+
+    public TieredImageService(IService delegate) {
+        this(new PerceptualHashScorer(), delegate, 0.2f, 0.8f);
+    }
+
+    /**
+     * @param localScorer Scorer consulted for every image
+     * @param delegate Service consulted when the local score is uncertain
+     * @param lowerBound Scores at or below this value are a confident "no cat"
+     * @param upperBound Scores at or above this value are a confident "cat"
+     */
+    public TieredImageService(ImageScorer localScorer, IService delegate, float lowerBound, float upperBound) {
+        this(localScorer, delegate, lowerBound, upperBound, result -> result.containsCat(LEARN_CONFIDENCE));
+    }
+
+    /**
+     * @param localScorer Scorer consulted for every image
+     * @param delegate Service consulted when the local score is uncertain
+     * @param lowerBound Scores at or below this value are a confident "no cat"
+     * @param upperBound Scores at or above this value are a confident "cat"
+     * @param catRule Decides which delegate verdicts are taught to the scorer as "cat"
+     */
+    public TieredImageService(ImageScorer localScorer, IService delegate, float lowerBound, float upperBound,
+                              Predicate<DetectionResult> catRule) {
+        if (lowerBound > upperBound) {
+            throw new IllegalArgumentException("lowerBound must not exceed upperBound");
+        }
+        this.localScorer = localScorer;
+        this.delegate = delegate;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.catRule = catRule;
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        long start = System.nanoTime();
+        float score = localScorer.score(image);
+        long scored = System.nanoTime();
+        localNanos.add(scored - start);
+
+        if (score <= lowerBound || score >= upperBound) {
+            localHits.increment();
+            reportPeriodically();
+            return score >= upperBound ? DetectionResult.of("Cat", score * 100) : DetectionResult.none();
+        }
+
+        DetectionResult result = delegate.detect(image);
+        delegateNanos.add(System.nanoTime() - scored);
+        escalations.increment();
+        localScorer.learn(image, catRule.test(result));
+        reportPeriodically();
+        return result;
+    }
+
+    /**
+     * Returns a snapshot of how often each tier answered and how long it took.
+     */
+    public TierStats getStats() {
+        return new TierStats(localHits.sum(), escalations.sum(), localNanos.sum(), delegateNanos.sum());
+    }
+
+    private void reportPeriodically() {
+        TierStats stats = getStats();
+        if (stats.getTotal() % REPORT_INTERVAL == 0) {
+            logger.info("Tiered detection: {}", stats);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the per-tier counters of a {@link TieredImageService}.
+     */
+    public static final class TierStats {
+
+        private final long localHits;
+        private final long escalations;
+        private final long localNanos;
+        private final long delegateNanos;
+
+        TierStats(long localHits, long escalations, long localNanos, long delegateNanos) {
+            this.localHits = localHits;
+            this.escalations = escalations;
+            this.localNanos = localNanos;
+            this.delegateNanos = delegateNanos;
+        }
+
+        public long getTotal() {
+            return localHits + escalations;
+        }
+
+        public long getLocalHits() {
+            return localHits;
+        }
+
+        public long getEscalations() {
+            return escalations;
+        }
+
+        /**
+         * @return Fraction of images answered by the local tier, or 0 if nothing was classified
+         */
+        public double getLocalHitRate() {
+            long total = getTotal();
+            return total == 0 ? 0.0 : (double) localHits / total;
+        }
+
+        /**
+         * @return Average local scoring time in milliseconds, measured over every image
+         */
+        public double getAverageLocalMillis() {
+            long total = getTotal();
+            return total == 0 ? 0.0 : localNanos / 1_000_000.0 / total;
+        }
+
+        /**
+         * @return Average delegate call time in milliseconds, measured over escalated images
+         */
+        public double getAverageDelegateMillis() {
+            return escalations == 0 ? 0.0 : delegateNanos / 1_000_000.0 / escalations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d images, local hit rate %.1f%% (avg %.2f ms), escalated %d (avg %.2f ms)",
+                    getTotal(), getLocalHitRate() * 100, getAverageLocalMillis(),
+                    escalations, getAverageDelegateMillis());
+        }
+    }
+}
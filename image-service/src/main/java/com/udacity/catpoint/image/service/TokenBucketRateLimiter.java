@@ -0,0 +1,74 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Tokens are refilled continuously at a fixed rate up to the
+ * bucket capacity, which bounds the size of a burst.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    // guarded by "this"
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond Sustained rate
+     * @param burst Maximum number of permits that can be taken at once after an idle period
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps; waiting for a
+     * permit sleeps in real time, so a clock that does not advance only suits a zero timeout
+     */
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.tokensPerNano = permitsPerSecond / 1_000_000_000.0;
+        this.capacity = burst;
+        this.tokens = burst;
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a permit, waiting up to the given time for one to become available.
+     *
+     * @param timeoutMillis Maximum time to wait, 0 to fail immediately
+     * @return True if a permit was taken
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean tryAcquire(long timeoutMillis) throws InterruptedException {
+        long deadline = nanoClock.getAsLong() + timeoutMillis * 1_000_000L;
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1.0) {
+                    tokens -= 1.0;
+                    return true;
+                }
+                waitNanos = (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+            }
+            long remaining = deadline - nanoClock.getAsLong();
+            if (waitNanos > remaining) {
+                return false;
+            }
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -3,6 +3,8 @@ module com.udacity.catpoint.image {
     requires org.slf4j;
     requires software.amazon.awssdk.auth;
     requires software.amazon.awssdk.core;
+    requires software.amazon.awssdk.http;
+    requires software.amazon.awssdk.http.apache;
     requires software.amazon.awssdk.regions;
     requires software.amazon.awssdk.services.rekognition;
     exports com.udacity.catpoint.image.service;
@@ -0,0 +1,128 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.RekognitionStandInServer.LatencyDistribution;
+
+/**
+ * Runs AwsImageService against the local Rekognition stand-in through the aws.endpoint
+ * override, so timeouts, fallbacks and connection reuse can be checked offline.
+ */
+class AwsImageServiceStandInTest {
+
+    private final BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+
+    private RekognitionStandInServer server;
+    private AwsImageService imageService;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new RekognitionStandInServer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (imageService != null) {
+            imageService.close();
+        }
+        server.close();
+    }
+
+    private Properties standInProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("aws.id", "stand-in");
+        properties.setProperty("aws.secret", "stand-in");
+        properties.setProperty("aws.region", "us-east-2");
+        properties.setProperty("aws.endpoint", server.getEndpoint());
+        properties.setProperty("aws.retries", "0");
+        return properties;
+    }
+
+    @Test
+    void cat_label_above_threshold_should_be_detected() {
+        server.withLabel("Animal", 99.0f).withLabel("Cat", 97.5f);
+        imageService = new AwsImageService(standInProperties(), null);
+
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+    }
+
+    @Test
+    void cat_label_below_threshold_should_not_be_detected() {
+        server.withLabel("Dog", 99.0f).withLabel("Cat", 40.0f);
+        imageService = new AwsImageService(standInProperties(), null);
+
+        assertFalse(imageService.imageContainsCat(image, 50.0f));
+    }
+
+    @Test
+    void slow_endpoint_should_fall_back_after_deadline() {
+        server.withLabel("Cat", 99.0f).withLatency(LatencyDistribution.fixed(2_000));
+        Properties properties = standInProperties();
+        properties.setProperty("aws.timeout.callMillis", "200");
+        imageService = new AwsImageService(properties, img -> DetectionResult.of("Cat", 100.0f));
+
+        long start = System.nanoTime();
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertTrue(System.nanoTime() - start < 1_500_000_000L, "call should not wait for the slow response");
+    }
+
+    @Test
+    void failing_endpoint_should_open_circuit_and_stop_sending_requests() {
+        server.withErrorRate(1.0);
+        Properties properties = standInProperties();
+        properties.setProperty("aws.circuit.failureThreshold", "3");
+        properties.setProperty("aws.circuit.openMillis", "60000");
+        imageService = new AwsImageService(properties, null);
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(imageService.imageContainsCat(image, 50.0f));
+        }
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    void concurrent_load_should_reuse_pooled_connections() throws Exception {
+        // more callers than the cap, so the cap is what limits the calls in flight
+        int threads = 16;
+        int maxConcurrency = 4;
+        int callsPerThread = 10;
+        server.withLabel("Cat", 90.0f).withLatency(LatencyDistribution.logNormal(10, 0.5));
+        Properties properties = standInProperties();
+        properties.setProperty("aws.maxConcurrency", String.valueOf(maxConcurrency));
+        imageService = new AwsImageService(properties, null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                int detected = 0;
+                for (int i = 0; i < callsPerThread; i++) {
+                    detected += imageService.imageContainsCat(image, 50.0f) ? 1 : 0;
+                }
+                return detected;
+            }));
+        }
+        int detected = 0;
+        for (Future<Integer> result : results) {
+            detected += result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * callsPerThread, detected);
+        assertTrue(server.getConnections() <= maxConcurrency, "connections should be pooled");
+        assertTrue(server.getMaxInFlight() <= maxConcurrency, "calls should be capped at aws.maxConcurrency");
+    }
+}
@@ -0,0 +1,104 @@
+package com.udacity.catpoint.image.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.CircuitBreaker.State;
+
+/**
+ * Walks the breaker through its states on a fake clock: open after consecutive failures,
+ * half-open with a single trial once the cool-down passed, and closed or open again depending
+ * on the trial.
+ */
+class CircuitBreakerTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private long now = 1_000 * MILLIS;
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 100, () -> now);
+
+    @Test
+    void consecutiveFailures_openTheCircuit() {
+        fail(2);
+        assertEquals(State.CLOSED, breaker.getState());
+
+        fail(1);
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void success_resetsTheFailureCount() {
+        fail(2);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        fail(2);
+
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void afterCoolDown_singleTrialIsAllowed() {
+        fail(3);
+        now += 99 * MILLIS;
+        assertFalse(breaker.allowRequest());
+
+        now += MILLIS;
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(), "second call while the trial is in flight");
+    }
+
+    @Test
+    void successfulTrial_closesTheCircuit() {
+        openAndStartTrial();
+
+        breaker.onSuccess();
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedTrial_opensTheCircuitAgain() {
+        openAndStartTrial();
+
+        breaker.onFailure();
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        now += 100 * MILLIS;
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void releasedTrial_letsTheNextCallTry() {
+        openAndStartTrial();
+
+        breaker.release();
+
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void nonPositiveThreshold_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 100));
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+    }
+
+    private void openAndStartTrial() {
+        fail(3);
+        now += 100 * MILLIS;
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,117 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a pooled scratch image does not leak one frame into the next, that opaque
+ * images are encoded at their own size and that the pool keeps no more writers than its size.
+ */
+class JpegImageEncoderTest {
+
+    private final JpegImageEncoder encoder = new JpegImageEncoder(32, 0.9f, 2);
+
+    @AfterEach
+    void close() {
+        encoder.close();
+    }
+
+    @Test
+    void transparentFrame_doesNotShowPreviousFrame() throws IOException {
+        encoder.encode(filled(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB), Color.WHITE));
+
+        BufferedImage decoded = decode(encoder.encode(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB)));
+
+        Color center = new Color(decoded.getRGB(16, 16));
+        assertTrue(center.getRed() < 16 && center.getGreen() < 16 && center.getBlue() < 16,
+                () -> "previous frame shows through: " + center);
+    }
+
+    @Test
+    void opaqueImagesWithinMaxEdge_keepTheirSize() throws IOException {
+        for (int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage decoded = decode(encoder.encode(filled(new BufferedImage(30, 20, type), Color.RED)));
+
+            assertEquals(30, decoded.getWidth());
+            assertEquals(20, decoded.getHeight());
+        }
+    }
+
+    @Test
+    void output_coversExactlyTheEncodedBytes() throws IOException {
+        ByteBuffer first = encoder.encode(filled(new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB), Color.RED));
+        ByteBuffer second = encoder.encode(filled(new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB), Color.BLUE));
+
+        assertEquals(0, first.position());
+        // the JPEG end of image marker
+        assertEquals((byte) 0xFF, first.get(first.limit() - 2));
+        assertEquals((byte) 0xD9, first.get(first.limit() - 1));
+        assertTrue(first.array() != second.array(), "output array reused for the next frame");
+    }
+
+    @Test
+    void concurrentCalls_keepAtMostPoolSizeWriters() throws Exception {
+        int threads = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] calls = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                calls[i] = executor.submit(() -> {
+                    start.await();
+                    return decode(encoder.encode(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB)));
+                });
+            }
+            start.countDown();
+            for (Future<?> call : calls) {
+                call.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(encoder.idleWriters() <= 2, () -> encoder.idleWriters() + " writers kept");
+    }
+
+    @Test
+    void closedEncoder_disposesWritersAndRejectsCalls() throws IOException {
+        encoder.encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        encoder.close();
+
+        assertEquals(0, encoder.idleWriters());
+        assertThrows(IllegalStateException.class,
+                () -> encoder.encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)));
+    }
+
+    private static BufferedImage filled(BufferedImage image, Color color) {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(color);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static BufferedImage decode(ByteBuffer jpeg) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg.array(), jpeg.position(), jpeg.remaining()));
+    }
+}
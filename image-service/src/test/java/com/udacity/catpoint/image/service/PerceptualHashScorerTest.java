@@ -0,0 +1,92 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the scorer only answers confidently for blank frames and for near-duplicates of
+ * frames it learned, and that it forgets the oldest verdicts once full.
+ */
+class PerceptualHashScorerTest {
+
+    private final PerceptualHashScorer scorer = new PerceptualHashScorer();
+
+    @Test
+    void blankFrame_scoresNoCat() {
+        assertEquals(0.0f, scorer.score(uniform(128)));
+        assertEquals(0.0f, scorer.score(uniform(0)));
+    }
+
+    @Test
+    void unknownScene_hasNoOpinion() {
+        assertEquals(0.5f, scorer.score(noise(1, 0)));
+    }
+
+    @Test
+    void learnedScenes_scoreTheirVerdict() {
+        BufferedImage cat = noise(1, 0);
+        BufferedImage empty = noise(2, 0);
+        scorer.learn(cat, true);
+        scorer.learn(empty, false);
+
+        assertEquals(1.0f, scorer.score(cat));
+        assertEquals(0.0f, scorer.score(empty));
+        assertEquals(0.5f, scorer.score(noise(3, 0)));
+    }
+
+    @Test
+    void brighterNearDuplicate_matchesLearnedScene() {
+        scorer.learn(noise(1, 0), true);
+
+        assertEquals(1.0f, scorer.score(noise(1, 12)));
+    }
+
+    @Test
+    void fullScorer_forgetsOldestVerdict() {
+        PerceptualHashScorer small = new PerceptualHashScorer(1, 4, 6.0);
+        small.learn(noise(1, 0), true);
+        small.learn(noise(2, 0), true);
+
+        assertEquals(0.5f, small.score(noise(1, 0)));
+        assertEquals(1.0f, small.score(noise(2, 0)));
+    }
+
+    @Test
+    void nonPositiveCapacity_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PerceptualHashScorer(0, 4, 6.0));
+    }
+
+    private static BufferedImage uniform(int gray) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        int rgb = gray << 16 | gray << 8 | gray;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Coarse random blocks, so the scene has detail at the scale the hash samples.
+     */
+    private static BufferedImage noise(long seed, int brightness) {
+        Random random = new Random(seed);
+        int[] blocks = new int[18 * 16];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = random.nextInt(200);
+        }
+        BufferedImage image = new BufferedImage(72, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int gray = Math.min(255, blocks[(y / 4) * 18 + x / 4] + brightness);
+                image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,293 @@
+package com.udacity.catpoint.image.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP/1.1 server that speaks enough of the Rekognition JSON protocol to answer
+ * {@code DetectLabels} calls from the AWS SDK. Latency, error rates and the returned labels
+ * are configurable, which makes it possible to test timeouts, retries and connection pooling
+ * of {@link AwsImageService} without network access.
+ * <p>
+ * Point a service at it with {@code aws.endpoint=}{@link #getEndpoint()}.
+ */
+public class RekognitionStandInServer implements AutoCloseable {
+
+    private static final Pattern MIN_CONFIDENCE = Pattern.compile("\"MinConfidence\"\\s*:\\s*([0-9.]+)");
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "rekognition-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Float> labels = new LinkedHashMap<>();
+    private volatile LatencyDistribution latency = LatencyDistribution.fixed(0);
+    private volatile double errorRate;
+    private volatile double throttleRate;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttles = new LongAdder();
+
+    public RekognitionStandInServer() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        connectionExecutor.execute(this::acceptLoop);
+    }
+
+    /**
+     * Sets the labels returned for every image. Labels below the request's MinConfidence are
+     * filtered out, like the real service does.
+     */
+    public synchronized RekognitionStandInServer withLabel(String name, float confidence) {
+        labels.put(name, confidence);
+        return this;
+    }
+
+    public synchronized RekognitionStandInServer clearLabels() {
+        labels.clear();
+        return this;
+    }
+
+    public RekognitionStandInServer withLatency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param errorRate Fraction of requests answered with a 500 InternalServerError
+     */
+    public RekognitionStandInServer withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param throttleRate Fraction of requests answered with a 400 ThrottlingException
+     */
+    public RekognitionStandInServer withThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+        return this;
+    }
+
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getThrottles() {
+        return throttles.sum();
+    }
+
+    /**
+     * @return Number of TCP connections accepted, which shows whether clients reuse pooled
+     * connections
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionExecutor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                return; // server closed
+            }
+        }
+    }
+
+    /**
+     * Serves keep-alive requests on one connection until the client closes it.
+     */
+    private void serve(Socket socket) {
+        try (socket; InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = socket.getOutputStream()) {
+            while (true) {
+                Map<String, String> headers = new LinkedHashMap<>();
+                String requestLine = readLine(in);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    return;
+                }
+                String line;
+                while ((line = readLine(in)) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                    }
+                }
+                if ("100-continue".equalsIgnoreCase(headers.get("expect"))) {
+                    out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+                byte[] body = in.readNBytes(Integer.parseInt(headers.getOrDefault("content-length", "0")));
+                handle(headers, new String(body, StandardCharsets.UTF_8), out);
+                if ("close".equalsIgnoreCase(headers.get("connection"))) {
+                    return;
+                }
+            }
+        } catch (SocketException ex) {
+            // client went away, e.g. a cancelled hedge or a timed out call
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void handle(Map<String, String> headers, String body, OutputStream out) throws IOException {
+        requests.increment();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            sleep(latency.sampleMillis());
+
+            if (!"RekognitionService.DetectLabels".equals(headers.get("x-amz-target"))) {
+                respond(out, 400, "{\"__type\":\"UnknownOperationException\"}");
+                return;
+            }
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate) {
+                errors.increment();
+                respond(out, 500, "{\"__type\":\"InternalServerError\",\"message\":\"stand-in error\"}");
+            } else if (roll < errorRate + throttleRate) {
+                throttles.increment();
+                respond(out, 400, "{\"__type\":\"ThrottlingException\",\"message\":\"stand-in throttle\"}");
+            } else {
+                respond(out, 200, labelsResponse(minConfidence(body)));
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private synchronized String labelsResponse(float minConfidence) {
+        List<String> entries = new ArrayList<>();
+        labels.forEach((name, confidence) -> {
+            if (confidence >= minConfidence) {
+                entries.add(String.format(Locale.ROOT,
+                        "{\"Name\":\"%s\",\"Confidence\":%.3f,\"Instances\":[],\"Parents\":[]}", name, confidence));
+            }
+        });
+        return "{\"Labels\":[" + String.join(",", entries) + "],\"LabelModelVersion\":\"2.0\"}";
+    }
+
+    private static float minConfidence(String body) {
+        Matcher matcher = MIN_CONFIDENCE.matcher(body);
+        return matcher.find() ? Float.parseFloat(matcher.group(1)) : 55.0f;
+    }
+
+    private static void respond(OutputStream out, int status, String json) throws IOException {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + (status == 200 ? " OK" : " Error") + "\r\n"
+                + "Content-Type: application/x-amz-json-1.1\r\n"
+                + "x-amzn-RequestId: stand-in\r\n"
+                + "Content-Length: " + payload.length + "\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(payload);
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Distribution the per-request latency of the stand-in is drawn from.
+     */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+
+        long sampleMillis();
+
+        static LatencyDistribution fixed(long millis) {
+            return () -> millis;
+        }
+
+        static LatencyDistribution uniform(long minMillis, long maxMillis) {
+            return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+        }
+
+        static LatencyDistribution exponential(double meanMillis) {
+            return () -> (long) (-meanMillis * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+        }
+
+        /**
+         * Log-normal latency, the usual shape of remote service latency with a long tail.
+         *
+         * @param medianMillis Median latency
+         * @param sigma Standard deviation of the underlying normal distribution, e.g. 0.5
+         */
+        static LatencyDistribution logNormal(double medianMillis, double sigma) {
+            return () -> (long) (medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the invoker with fake remote calls: a hedge rescues a stuck attempt once the latency
+ * window is calibrated, the deadline applies without one, and the breaker and rate limiter
+ * reject calls before they are sent.
+ */
+class ResilientInvokerTest {
+
+    private final CountDownLatch stuck = new CountDownLatch(1);
+    private ResilientInvoker invoker;
+
+    @AfterEach
+    void close() {
+        stuck.countDown();
+        if (invoker != null) {
+            invoker.close();
+        }
+    }
+
+    @Test
+    void slowAttempt_isHedged() {
+        invoker = new ResilientInvoker(settings("aws.hedge.percentile", "90"));
+        calibrate();
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = invoker.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                stuck.await();
+                return "first";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "waited for the deadline");
+    }
+
+    @Test
+    void withoutHedging_slowAttemptMissesTheDeadline() {
+        invoker = new ResilientInvoker(settings("aws.hedge.percentile", "0"));
+        calibrate();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ImageServiceUnavailableException.class, () -> invoker.invoke(() -> {
+            attempts.incrementAndGet();
+            stuck.await();
+            return "late";
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void failingAttempts_openTheCircuit() {
+        invoker = new ResilientInvoker(settings("aws.circuit.failureThreshold", "2"));
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ImageServiceUnavailableException.class, () -> invoker.invoke(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("remote failure");
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, invoker.getCircuitState());
+        assertEquals(2, attempts.get(), "call sent while the circuit was open");
+    }
+
+    @Test
+    void rateLimitedCall_isNotSentAndKeepsTheCircuitClosed() {
+        Properties properties = properties("aws.rateLimit.perSecond", "0.001");
+        properties.setProperty("aws.rateLimit.burst", "1");
+        invoker = new ResilientInvoker(new ResilienceSettings(properties));
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals(1, (int) invoker.invoke(attempts::incrementAndGet));
+        assertThrows(ImageServiceUnavailableException.class, () -> invoker.invoke(attempts::incrementAndGet));
+
+        assertEquals(1, attempts.get());
+        assertEquals(CircuitBreaker.State.CLOSED, invoker.getCircuitState());
+    }
+
+    /**
+     * Fills the latency window with fast calls, so hedging has a percentile to work with.
+     */
+    private void calibrate() {
+        for (int i = 0; i < 20; i++) {
+            invoker.invoke(() -> "fast");
+        }
+    }
+
+    private static ResilienceSettings settings(String key, String value) {
+        return new ResilienceSettings(properties(key, value));
+    }
+
+    private static Properties properties(String key, String value) {
+        Properties properties = new Properties();
+        properties.setProperty("aws.timeout.callMillis", "300");
+        properties.setProperty(key, value);
+        return properties;
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the cascade answers confident local scores on its own, escalates uncertain ones
+ * to the delegate and teaches the delegate's verdicts back to the scorer.
+ */
+class TieredImageServiceTest {
+
+    private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    private final StubScorer scorer = new StubScorer();
+    private final List<BufferedImage> delegateCalls = new ArrayList<>();
+    private DetectionResult delegateResult = DetectionResult.of("Cat", 90.0f);
+    private final IService delegate = image -> {
+        delegateCalls.add(image);
+        return delegateResult;
+    };
+
+    @Test
+    void confidentCat_isAnsweredLocally() {
+        scorer.score = 0.9f;
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f);
+
+        DetectionResult result = service.detect(image);
+
+        assertTrue(result.containsCat(50.0f));
+        assertTrue(delegateCalls.isEmpty());
+        assertEquals(1, service.getStats().getLocalHits());
+    }
+
+    @Test
+    void confidentNoCat_isAnsweredLocally() {
+        scorer.score = 0.1f;
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f);
+
+        assertTrue(service.detect(image).getLabels().isEmpty());
+        assertTrue(delegateCalls.isEmpty());
+    }
+
+    @Test
+    void uncertainScore_isEscalatedAndLearned() {
+        scorer.score = 0.5f;
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f);
+
+        DetectionResult result = service.detect(image);
+
+        assertSame(delegateResult, result);
+        assertEquals(List.of(image), delegateCalls);
+        assertEquals(List.of(true), scorer.learned);
+        assertEquals(1, service.getStats().getEscalations());
+        assertEquals(0.0, service.getStats().getLocalHitRate());
+    }
+
+    @Test
+    void weakDelegateVerdict_isLearnedAsNoCat() {
+        scorer.score = 0.5f;
+        delegateResult = DetectionResult.of("Cat", 30.0f);
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f);
+
+        service.detect(image);
+
+        assertEquals(List.of(false), scorer.learned);
+    }
+
+    @Test
+    void catRule_decidesWhatIsLearned() {
+        scorer.score = 0.5f;
+        delegateResult = DetectionResult.of("Lynx", 30.0f);
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f,
+                result -> result.containsAny(25.0f, Set.of("lynx")));
+
+        service.detect(image);
+
+        assertEquals(List.of(true), scorer.learned);
+    }
+
+    @Test
+    void boundsAtTheEdges_areConfident() {
+        TieredImageService service = new TieredImageService(scorer, delegate, 0.2f, 0.8f);
+        scorer.score = 0.2f;
+        assertFalse(service.detect(image).containsCat(0.0f));
+        scorer.score = 0.8f;
+        assertTrue(service.detect(image).containsCat(0.0f));
+
+        assertTrue(delegateCalls.isEmpty());
+    }
+
+    @Test
+    void invertedBounds_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TieredImageService(scorer, delegate, 0.8f, 0.2f));
+    }
+
+    private static final class StubScorer implements ImageScorer {
+
+        private float score;
+        private final List<Boolean> learned = new ArrayList<>();
+
+        @Override
+        public float score(BufferedImage image) {
+            return score;
+        }
+
+        @Override
+        public void learn(BufferedImage image, boolean containsCat) {
+            learned.add(containsCat);
+        }
+    }
+}
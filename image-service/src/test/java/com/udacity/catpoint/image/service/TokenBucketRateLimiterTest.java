@@ -0,0 +1,72 @@
+package com.udacity.catpoint.image.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks bursts, refill and the bucket capacity on a fake clock, and waiting for a permit on
+ * the real one.
+ */
+class TokenBucketRateLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    private long now;
+    // 10 permits per second, one every 100 ms
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, () -> now);
+
+    @Test
+    void fullBucket_allowsABurst() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(0));
+        }
+        assertFalse(limiter.tryAcquire(0));
+    }
+
+    @Test
+    void emptyBucket_refillsAtTheConfiguredRate() throws InterruptedException {
+        drain();
+
+        now += 99 * MILLIS;
+        assertFalse(limiter.tryAcquire(0));
+        now += MILLIS;
+        assertTrue(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(0));
+    }
+
+    @Test
+    void idlePeriod_refillsNoMoreThanTheBurst() throws InterruptedException {
+        drain();
+
+        now += 60_000 * MILLIS;
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(0));
+        }
+        assertFalse(limiter.tryAcquire(0));
+    }
+
+    @Test
+    void timeout_waitsForTheNextPermit() throws InterruptedException {
+        TokenBucketRateLimiter real = new TokenBucketRateLimiter(50, 1);
+        assertTrue(real.tryAcquire(0));
+
+        // the next permit is 20 ms away
+        assertFalse(real.tryAcquire(0));
+        assertTrue(real.tryAcquire(1_000));
+    }
+
+    @Test
+    void nonPositiveRateOrBurst_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0));
+    }
+
+    private void drain() throws InterruptedException {
+        while (limiter.tryAcquire(0)) {
+            // take every token
+        }
+    }
+}
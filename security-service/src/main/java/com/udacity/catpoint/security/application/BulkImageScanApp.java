@@ -0,0 +1,429 @@
+package com.udacity.catpoint.security.application;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import com.google.gson.Gson;
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.image.service.TieredImageService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+
+/**
+ * Command line entry point that classifies every image in a directory tree, for backfilling
+ * and auditing recorded footage. Run it with
+ * <pre>
+ * java -cp Security.jar com.udacity.catpoint.security.application.BulkImageScanApp
+ *      &lt;directory&gt; [--service fake|aws|tiered] [--threads n] [--format csv|json]
+ *      [--output file] [--threshold percent]
+ * </pre>
+ * Files are memory-mapped and decoded straight from the mapping, then decoded and classified
+ * on a pool of {@code --threads} workers (all cores by default). One report line is written
+ * per image, in completion order, with the time spent reading, decoding and classifying it;
+ * a summary goes to standard error.
+ */
+public class BulkImageScanApp {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+
+    private final IService imageService;
+    private final int threads;
+    private final float confidenceThreshold;
+
+    public BulkImageScanApp(IService imageService, int threads, float confidenceThreshold) {
+        this.imageService = imageService;
+        this.threads = threads;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            exitWithUsage();
+            return;
+        }
+
+        // images are decoded from memory, so ImageIO must not spill its stream caches to disk
+        ImageIO.setUseCache(false);
+        boolean remote = "aws".equals(options.service) || "tiered".equals(options.service);
+        // the tiered service does not own its delegate, so the AWS client is closed here
+        try (AwsImageService awsImageService = remote ? new AwsImageService() : null) {
+            if (remote && options.threshold < awsImageService.getMinConfidence()) {
+                // Rekognition leaves out labels below its own minimum, so a lower threshold
+                // would silently behave like aws.minConfidence
+                System.err.println("--threshold " + options.threshold + " is below aws.minConfidence "
+                        + awsImageService.getMinConfidence() + "; lower aws.minConfidence in config.properties");
+                exitWithUsage();
+            }
+            IService imageService = createImageService(options.service, awsImageService);
+            Writer writer = new BufferedWriter(options.output == null
+                    ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                    : Files.newBufferedWriter(options.output, StandardCharsets.UTF_8));
+            try (ReportWriter report = "json".equals(options.format)
+                    ? new JsonReportWriter(writer)
+                    : new CsvReportWriter(writer)) {
+                ScanSummary summary = new BulkImageScanApp(imageService, options.threads, options.threshold)
+                        .scan(options.root, report);
+                System.err.println(summary);
+            }
+        }
+    }
+
+    private static void exitWithUsage() {
+        System.err.println("Usage: BulkImageScanApp <directory> [--service fake|aws|tiered] [--threads n] "
+                + "[--format csv|json] [--output file] [--threshold percent]");
+        System.exit(2);
+    }
+
+    private static IService createImageService(String name, AwsImageService awsImageService) {
+        switch (name) {
+            case "fake":
+                return new FakeImageService();
+            case "aws":
+                return awsImageService;
+            case "tiered":
+                return new TieredImageService(awsImageService);
+            default:
+                throw new IllegalArgumentException("Unknown image service " + name);
+        }
+    }
+
+    /**
+     * Scans all images below the root directory and reports each one as it completes.
+     */
+    public ScanSummary scan(Path root, ReportWriter report) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("bulk-scan"));
+        CompletionService<ScanResult> completion = new ExecutorCompletionService<>(workers);
+        // bound the submitted but unreported work so huge trees do not pile up futures
+        int maxInFlight = threads * 4;
+        List<Long> totalNanos = new ArrayList<>();
+        int cats = 0;
+        int errors = 0;
+        int inFlight = 0;
+        long start = System.nanoTime();
+        try (Stream<Path> files = Files.walk(root)) {
+            Iterator<Path> images = files.filter(BulkImageScanApp::isImage).iterator();
+            while (images.hasNext() || inFlight > 0) {
+                if (images.hasNext() && inFlight < maxInFlight) {
+                    Path image = images.next();
+                    completion.submit(() -> scanFile(image));
+                    inFlight++;
+                    continue;
+                }
+                ScanResult result = take(completion);
+                inFlight--;
+                report.write(result);
+                totalNanos.add(result.totalNanos);
+                if (result.error != null) {
+                    errors++;
+                } else if (result.containsCat) {
+                    cats++;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return new ScanSummary(totalNanos, cats, errors, System.nanoTime() - start);
+    }
+
+    private static ScanResult take(CompletionService<ScanResult> completion) throws InterruptedException {
+        Future<ScanResult> future = completion.take();
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            // scanFile reports its own failures, so this is a bug rather than a bad file
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private ScanResult scanFile(Path file) {
+        ScanResult result = new ScanResult(file.toString());
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            result.bytes = mapped.limit();
+            long read = System.nanoTime();
+            result.readNanos = read - start;
+
+            // ImageIO.read closes the stream
+            BufferedImage image = ImageIO.read(new ByteBufferImageInputStream(mapped));
+            long decoded = System.nanoTime();
+            result.decodeNanos = decoded - read;
+            if (image == null) {
+                result.error = "unsupported image format";
+            } else {
+                result.width = image.getWidth();
+                result.height = image.getHeight();
+                DetectionResult detection = imageService.detect(image);
+                result.containsCat = detection.containsCat(confidenceThreshold);
+                result.catConfidence = detection.confidenceOf(DetectionResult.CAT_LABELS);
+                result.classifyNanos = System.nanoTime() - decoded;
+            }
+        } catch (IOException | RuntimeException ex) {
+            result.error = ex.toString();
+        }
+        result.totalNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))
+                && Files.isRegularFile(path);
+    }
+
+    /**
+     * Command line settings.
+     */
+    static final class Options {
+
+        private static final Set<String> SERVICES = Set.of("fake", "aws", "tiered");
+        private static final Set<String> FORMATS = Set.of("csv", "json");
+
+        Path root;
+        String service = "fake";
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = "csv";
+        Path output;
+        float threshold = 50.0f;
+
+        /**
+         * @throws IllegalArgumentException With a message for the user if the arguments are
+         * incomplete, unknown or out of range
+         */
+        static Options parse(String[] args) {
+            if (args.length == 0 || args[0].startsWith("--")) {
+                throw new IllegalArgumentException("Missing directory");
+            }
+            Options options = new Options();
+            options.root = Path.of(args[0]);
+            for (int i = 1; i < args.length; i += 2) {
+                String option = args[i];
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for option " + option);
+                }
+                String value = args[i + 1];
+                switch (option) {
+                    case "--service":
+                        options.service = oneOf(option, value, SERVICES);
+                        break;
+                    case "--threads":
+                        options.threads = parseInt(option, value);
+                        if (options.threads <= 0) {
+                            throw new IllegalArgumentException(option + " must be positive");
+                        }
+                        break;
+                    case "--format":
+                        options.format = oneOf(option, value.toLowerCase(Locale.ROOT), FORMATS);
+                        break;
+                    case "--output":
+                        options.output = Path.of(value);
+                        break;
+                    case "--threshold":
+                        options.threshold = parseFloat(option, value);
+                        if (options.threshold < 0 || options.threshold > 100) {
+                            throw new IllegalArgumentException(option + " must be between 0 and 100");
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            return options;
+        }
+
+        private static String oneOf(String option, String value, Set<String> allowed) {
+            if (!allowed.contains(value)) {
+                throw new IllegalArgumentException("Unknown value " + value + " for option " + option);
+            }
+            return value;
+        }
+
+        private static int parseInt(String option, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Option " + option + " needs a number, not " + value);
+            }
+        }
+
+        private static float parseFloat(String option, String value) {
+            try {
+                return Float.parseFloat(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Option " + option + " needs a number, not " + value);
+            }
+        }
+    }
+
+    /**
+     * Outcome of scanning one file. Field names double as the JSON report keys.
+     */
+    static final class ScanResult {
+
+        private final String path;
+        private boolean containsCat;
+        private float catConfidence;
+        private int width;
+        private int height;
+        private long bytes;
+        private long readNanos;
+        private long decodeNanos;
+        private long classifyNanos;
+        private long totalNanos;
+        private String error;
+
+        ScanResult(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Destination of the per-image report.
+     */
+    interface ReportWriter extends AutoCloseable {
+
+        void write(ScanResult result) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static final class CsvReportWriter implements ReportWriter {
+
+        private final Writer writer;
+
+        CsvReportWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("path,containsCat,catConfidence,width,height,bytes,readMillis,decodeMillis,classifyMillis,totalMillis,error\n");
+        }
+
+        @Override
+        public void write(ScanResult result) throws IOException {
+            writer.write(String.format(Locale.ROOT, "%s,%b,%.1f,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%s%n",
+                    quote(result.path), result.containsCat, result.catConfidence, result.width, result.height, result.bytes,
+                    result.readNanos / 1e6, result.decodeNanos / 1e6, result.classifyNanos / 1e6,
+                    result.totalNanos / 1e6, result.error == null ? "" : quote(result.error)));
+        }
+
+        private static String quote(String value) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes a JSON array, one element per line, without holding the results in memory.
+     */
+    private static final class JsonReportWriter implements ReportWriter {
+
+        private final Gson gson = new Gson();
+        private final Writer writer;
+        private boolean first = true;
+
+        JsonReportWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("[");
+        }
+
+        @Override
+        public void write(ScanResult result) throws IOException {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            gson.toJson(result, writer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.write("\n]\n");
+            writer.close();
+        }
+    }
+
+    /**
+     * Totals of a scan.
+     */
+    public static final class ScanSummary {
+
+        private final long[] sortedTotalNanos;
+        private final int cats;
+        private final int errors;
+        private final long wallNanos;
+
+        ScanSummary(List<Long> totalNanos, int cats, int errors, long wallNanos) {
+            this.sortedTotalNanos = totalNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.cats = cats;
+            this.errors = errors;
+            this.wallNanos = wallNanos;
+        }
+
+        public int getImages() {
+            return sortedTotalNanos.length;
+        }
+
+        public int getCats() {
+            return cats;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getImagesPerSecond() {
+            return wallNanos == 0 ? 0 : getImages() * 1e9 / wallNanos;
+        }
+
+        /**
+         * @param percentile Percentile between 0 and 100
+         * @return Per-image latency at that percentile in milliseconds
+         */
+        public double getLatencyMillis(double percentile) {
+            if (sortedTotalNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedTotalNanos.length) - 1;
+            return sortedTotalNanos[Math.max(0, Math.min(index, sortedTotalNanos.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d images, %d cats, %d errors in %.1f s (%.1f images/s), latency p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    getImages(), cats, errors, wallNanos / 1e9, getImagesPerSecond(), getLatencyMillis(50),
+                    getLatencyMillis(99), getLatencyMillis(100));
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package com.udacity.catpoint.security.application;
 
+import javax.swing.SwingUtilities;
+
+import com.udacity.catpoint.security.server.HeadlessSecurityApp;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. With the argument --headless the
+ * system runs without a user interface, see {@link HeadlessSecurityApp}.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--headless".equals(args[0])) {
+            // CatpointGui is only loaded below, so no Swing class is touched in headless mode
+            HeadlessSecurityApp.main(args);
+            return;
+        }
+        // the window is built on the EDT; its dependencies load in the background
+        SwingUtilities.invokeLater(() -> new CatpointGui().setVisible(true));
     }
 }
@@ -1,12 +1,45 @@
 package com.udacity.catpoint.security.application;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.DeferredImageService;
 import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.camera.DropFolderFrameSource;
+import com.udacity.catpoint.security.camera.FrameIngestionPipeline;
+import com.udacity.catpoint.security.camera.PreAlarmRecorder;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.jfr.ContinuousRecording;
+import com.udacity.catpoint.security.metrics.InstrumentedImageService;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.metrics.MetricsReporter;
+import com.udacity.catpoint.security.server.SensorGatewayServer;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+import com.udacity.catpoint.security.service.SecurityEventExecutor;
 import com.udacity.catpoint.security.service.SecurityService;
+import com.udacity.catpoint.security.service.StyleService;
 
 import net.miginfocom.swing.MigLayout;
 
@@ -15,21 +48,27 @@ import net.miginfocom.swing.MigLayout;
  *
  * We're not using any dependency injection framework, so this class also handles constructing
  * all our dependencies and providing them to other classes as necessary.
+ * <p>
+ * Startup is staged so the window appears right away: the repository, the image service and
+ * the metrics and recording are set up in parallel on background threads while the window
+ * shows a placeholder. The panels replace it as soon as the repository is loaded; the image
+ * service may still be initializing then, and images scanned before it is ready wait for it.
+ * Only a failure to load the repository or build the panels stops the application; without
+ * an image service the panels work but cannot scan. The duration of each phase is logged once
+ * everything is up.
  */
 public class CatpointGui extends JFrame {
 
+    private static final Logger logger = LoggerFactory.getLogger(CatpointGui.class);
+
     // ---------------------- Instance Variables ----------------------
 
-    // Repository for storing security-related data
-    private final SecurityRepository securityRepo = new PretendDatabaseSecurityRepositoryImpl(); 
-    private final FakeImageService imageService = new FakeImageService(); // Service for handling image-based operations
-    private final SecurityService securityService = new SecurityService(securityRepo, imageService); // Main service that handles business logic
+    private final long startNanos = System.nanoTime();
+    // milliseconds from construction until each startup phase completed
+    private final Map<String, Long> phaseMillis = new ConcurrentHashMap<>();
 
-    // Panels for different parts of the UI
-    private final DisplayPanel displayPanel = new DisplayPanel(securityService);
-    private final SensorPanel sensorPanel = new SensorPanel(securityService);
-    private final ControlPanel controlPanel = new ControlPanel(securityService, sensorPanel);
-    private final ImagePanel imagePanel = new ImagePanel(securityService);
+    // Main panel, showing a placeholder until the dependencies are loaded
+    private final JPanel mainPanel = new JPanel(new MigLayout());
 
     public CatpointGui() {
         // Setting the window properties
@@ -37,18 +76,169 @@ public class CatpointGui extends JFrame {
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                recordPhase("window shown");
+            }
+        });
+
+        JLabel placeholder = new JLabel("Loading security system...");
+        placeholder.setFont(StyleService.HEADING_FONT);
+        mainPanel.add(placeholder);
+
+        // Add the main panel to the content pane
+        getContentPane().add(mainPanel);
+
+        startDependencies();
+    }
+
+    /**
+     * Creates the repository and the image service and starts the monitoring in parallel, and
+     * builds the panels once the repository is available.
+     */
+    private void startDependencies() {
+        ExecutorService startup = Executors.newFixedThreadPool(3, new DaemonThreadFactory("startup"));
+        CompletableFuture<SecurityRepository> repository = CompletableFuture.supplyAsync(
+                timed("repository loaded", PretendDatabaseSecurityRepositoryImpl::new), startup);
+        CompletableFuture<IService> imageService = CompletableFuture.supplyAsync(
+                timed("image service ready", CatpointGui::createImageService), startup);
+        CompletableFuture<Void> monitoring = CompletableFuture.runAsync(() -> {
+            startMonitoring();
+            recordPhase("monitoring started");
+        }, startup);
+        // already submitted tasks still run; the threads end afterwards
+        startup.shutdown();
+
+        CompletableFuture<Void> panels = repository.thenAcceptAsync(
+                repo -> buildPanels(repo, new DeferredImageService(imageService)), SwingUtilities::invokeLater);
+        panels.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                logger.error("Startup failed", ex);
+                SwingUtilities.invokeLater(() -> showStartupError(ex));
+            }
+        });
+        // the image panel disables scanning on its own
+        imageService.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                logger.error("Image service unavailable, scanning is disabled", ex);
+            }
+        });
+        monitoring.whenComplete((ignored, ex) -> {
+            if (ex != null) {
+                logger.error("Unable to start metrics or recording", ex);
+            }
+        });
+        CompletableFuture.allOf(panels, imageService, monitoring).thenRun(() ->
+                logger.info("Startup phases: {}", phaseMillis.entrySet().stream()
+                        .sorted(Map.Entry.comparingByValue())
+                        .map(phase -> phase.getKey() + " " + phase.getValue() + " ms")
+                        .collect(Collectors.joining(", "))));
+    }
+
+    /**
+     * Publishes the metrics and starts the configured reporting and flight recording.
+     */
+    private static void startMonitoring() {
+        MetricsRegistry.getDefault().registerMBean();
+        MetricsReporter.fromConfig(MetricsRegistry.getDefault());
+        ContinuousRecording.startFromConfig();
+    }
+
+    private static IService createImageService() {
+        String name = ConfigService.getString("ui.imageService", "fake");
+        IService imageService = "aws".equals(name)
+                ? new AwsImageService(new FakeImageService())
+                : new FakeImageService();
+        return new InstrumentedImageService(imageService, name, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * Wires the service and panels and swaps them in for the placeholder. Runs on the EDT.
+     */
+    private void buildPanels(SecurityRepository securityRepo, DeferredImageService imageService) {
+        // Main service that handles business logic
+        SecurityService securityService = new SecurityService(securityRepo, imageService);
+
+        // Delivers status changes to the panels on the EDT, coalesced per frame
+        SwingStatusBridge statusBridge =
+                new SwingStatusBridge(securityService, ConfigService.getInt("ui.frameMillis", 16));
+
+        // Runs sensor events and image scans according to execution.mode
+        SecurityEventExecutor eventExecutor = SecurityEventExecutor.fromConfig(securityService);
+
+        // Panels for different parts of the UI
+        DisplayPanel displayPanel = new DisplayPanel(securityService, statusBridge);
+        SensorPanel sensorPanel = new SensorPanel(securityService, eventExecutor, statusBridge);
+        ControlPanel controlPanel = new ControlPanel(securityService, sensorPanel);
+        ImagePanel imagePanel = new ImagePanel(eventExecutor, statusBridge, imageService.whenReady());
 
-        // Create and set up the main panel layout
-        JPanel mainPanel = new JPanel();
-        mainPanel.setLayout(new MigLayout());
-        
         // Add individual panels to the main layout
+        mainPanel.removeAll();
         mainPanel.add(displayPanel, "wrap");
         mainPanel.add(imagePanel, "wrap");
         mainPanel.add(controlPanel, "wrap");
         mainPanel.add(sensorPanel);
+        mainPanel.revalidate();
+        mainPanel.repaint();
+        recordPhase("panels shown");
 
-        // Add the main panel to the content pane
-        getContentPane().add(mainPanel);
+        // Bounds the sensor readings and camera frames of the gateway and the pipeline
+        AdmissionController admission = AdmissionController.fromConfig(securityService);
+        startFramePipeline(securityService, imageService, admission);
+        startSensorGateway(securityService, admission);
+    }
+
+    private void showStartupError(Throwable ex) {
+        mainPanel.removeAll();
+        mainPanel.add(new JLabel("Unable to start: " + ex.getMessage()));
+        mainPanel.revalidate();
+        mainPanel.repaint();
+    }
+
+    private <T> Supplier<T> timed(String phase, Supplier<T> supplier) {
+        return () -> {
+            T result = supplier.get();
+            recordPhase(phase);
+            return result;
+        };
+    }
+
+    private void recordPhase(String phase) {
+        phaseMillis.putIfAbsent(phase, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Starts receiving sensor readings from gateways, if a gateway port is configured.
+     */
+    private void startSensorGateway(SecurityService securityService, AdmissionController admission) {
+        try {
+            SensorGatewayServer gateway = SensorGatewayServer.fromConfig(securityService, admission);
+            if (gateway != null) {
+                logger.info("Sensor gateway listening on port {}", gateway.getPort());
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to start the sensor gateway", ex);
+        }
+    }
+
+    /**
+     * Starts headless camera ingestion from the drop folder, if one is configured.
+     */
+    private void startFramePipeline(SecurityService securityService, IService imageService,
+                                    AdmissionController admission) {
+        String dropFolder = ConfigService.getString("camera.dropFolder", "");
+        if (dropFolder.isBlank()) {
+            return;
+        }
+        FrameIngestionPipeline pipeline = FrameIngestionPipeline.fromConfig(securityService, imageService, admission);
+        PreAlarmRecorder recorder = PreAlarmRecorder.fromConfig();
+        if (recorder != null) {
+            securityService.addStatusListener(recorder);
+            pipeline.addFrameTap(recorder::record);
+        }
+        pipeline.start();
+        pipeline.addSource(new DropFolderFrameSource(Path.of(dropFolder),
+                ConfigService.getBoolean("camera.deleteAfterRead", true)));
     }
 }
@@ -19,12 +19,12 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     private final JLabel currentStatusLabel; // Label to display the current alarm status
 
-    public DisplayPanel(SecurityService securityService) {
+    public DisplayPanel(SecurityService securityService, SwingStatusBridge statusBridge) {
         super();
         setLayout(new MigLayout());
 
-        // Register this panel as a listener to changes in system status
-        securityService.addStatusListener(this);
+        // Register this panel as a listener to changes in system status, delivered on the EDT
+        statusBridge.addStatusListener(this);
 
         // Initialize UI components
         JLabel panelLabel = new JLabel("Very Secure Home Security");
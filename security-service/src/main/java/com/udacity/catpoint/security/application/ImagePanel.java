@@ -6,6 +6,7 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
@@ -15,8 +16,10 @@ import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.SecurityEventExecutor;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 
@@ -28,7 +31,8 @@ import net.miginfocom.swing.MigLayout;
  */
 public class ImagePanel extends JPanel implements StatusListener {
 
-    private final SecurityService securityService;
+    private final SecurityEventExecutor eventExecutor;
+    private final CompletableFuture<?> imageServiceReady;
 
     private JLabel cameraHeader;
     private JLabel cameraLabel;
@@ -37,11 +41,17 @@ public class ImagePanel extends JPanel implements StatusListener {
     private static final int IMAGE_WIDTH = 300;
     private static final int IMAGE_HEIGHT = 225;
 
-    public ImagePanel(SecurityService securityService) {
+    /**
+     * @param imageServiceReady Completes once the image service can scan; the scan button is
+     * disabled until then, as a scan would block the event thread in direct execution mode
+     */
+    public ImagePanel(SecurityEventExecutor eventExecutor, SwingStatusBridge statusBridge,
+                      CompletableFuture<?> imageServiceReady) {
         super();
-        this.securityService = securityService;
+        this.eventExecutor = eventExecutor;
+        this.imageServiceReady = imageServiceReady;
         setLayout(new MigLayout());
-        securityService.addStatusListener(this);
+        statusBridge.addStatusListener(this);
 
         initializeComponents();
     }
@@ -67,6 +77,14 @@ public class ImagePanel extends JPanel implements StatusListener {
         // Button to scan the uploaded image for cat detection
         JButton scanImageButton = new JButton("Scan Picture");
         scanImageButton.addActionListener(e -> scanImage());
+        if (!imageServiceReady.isDone()) {
+            scanImageButton.setEnabled(false);
+            scanImageButton.setToolTipText("Image service is starting");
+        }
+        imageServiceReady.whenComplete((ignored, ex) -> SwingUtilities.invokeLater(() -> {
+            scanImageButton.setEnabled(ex == null);
+            scanImageButton.setToolTipText(ex == null ? null : "Image service unavailable");
+        }));
 
         // Add components to the layout
         add(cameraHeader, "span 3, wrap");
@@ -102,11 +120,12 @@ public class ImagePanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Sends the current camera image to the image service for processing.
+     * Sends the current camera image to the image service for processing, off the event
+     * thread unless execution.mode is DIRECT.
      */
     private void scanImage() {
         if (currentCameraImage != null) {
-            securityService.processImage(currentCameraImage);
+            eventExecutor.processImage(SecurityService.DEFAULT_CAMERA, currentCameraImage);
         } else {
             JOptionPane.showMessageDialog(null, "No image to scan. Please refresh the camera.");
         }
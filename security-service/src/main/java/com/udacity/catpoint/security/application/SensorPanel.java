@@ -1,15 +1,29 @@
 package com.udacity.catpoint.security.application;
 
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableCellRenderer;
 
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.Sensor;
 import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.SecurityEventExecutor;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 
@@ -22,6 +36,9 @@ import net.miginfocom.swing.MigLayout;
 public class SensorPanel extends JPanel implements StatusListener {
 
     private final SecurityService securityService;
+    private final SecurityEventExecutor eventExecutor;
+    // last change submitted per sensor and not yet finished; only used on the EDT
+    private final Map<Sensor, CompletableFuture<Void>> pendingChanges = new HashMap<>();
 
     private JLabel panelLabel;
     private JLabel sensorNameLabel;
@@ -30,13 +47,18 @@ public class SensorPanel extends JPanel implements StatusListener {
     private JComboBox<SensorType> sensorTypeDropdown;
     private JButton addSensorButton;
 
-    private JPanel sensorListPanel;
+    private final SensorTableModel sensorTableModel = new SensorTableModel();
+    private final int maxSensors = ConfigService.getInt("sensor.maxCount", 4);
+    private JScrollPane sensorListPane;
     private JPanel addSensorPanel;
 
-    public SensorPanel(SecurityService securityService) {
+    public SensorPanel(SecurityService securityService, SecurityEventExecutor eventExecutor,
+                       SwingStatusBridge statusBridge) {
         super();
         this.securityService = securityService;
+        this.eventExecutor = eventExecutor;
         setLayout(new MigLayout());
+        statusBridge.addStatusListener(this);
 
         initializeComponents();
         configureLayout();
@@ -58,11 +80,11 @@ public class SensorPanel extends JPanel implements StatusListener {
         addSensorButton = new JButton("Add New Sensor");
         addSensorButton.addActionListener(e -> addSensor(createNewSensor()));
 
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        sensorListPane = new JScrollPane(buildSensorTable());
+        sensorListPane.setPreferredSize(new Dimension(650, 150));
 
         addSensorPanel = buildAddSensorPanel();
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 
     /**
@@ -71,7 +93,7 @@ public class SensorPanel extends JPanel implements StatusListener {
     private void configureLayout() {
         add(panelLabel, "wrap");
         add(addSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(sensorListPane, "span, grow");
     }
 
     /**
@@ -100,98 +122,92 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them.
-     * Sensors will display in the order that they are created.
-     *
-     * @param panel The Panel to populate with the current list of sensors.
+     * Builds the sensor table. Rows are painted by shared renderers, so only visible rows
+     * cost anything no matter how many sensors there are; the buttons in the last two
+     * columns are painted by a renderer and handled by a mouse listener on the table.
      */
-    private void updateSensorList(JPanel panel) {
-        panel.removeAll();
-        securityService.getSensors().stream().sorted().forEach(sensor -> {
-            JLabel sensorLabel = createSensorLabel(sensor);
-            JButton toggleButton = createToggleButton(sensor);
-            JButton removeButton = createRemoveButton(sensor);
-
-            panel.add(sensorLabel, "width 300:300:300");
-            panel.add(toggleButton, "width 100:100:100");
-            panel.add(removeButton, "wrap");
+    private JTable buildSensorTable() {
+        JTable table = new JTable(sensorTableModel);
+        table.setFillsViewportHeight(true);
+        table.setRowSelectionAllowed(false);
+        table.getTableHeader().setReorderingAllowed(false);
+        ButtonCellRenderer buttonRenderer = new ButtonCellRenderer();
+        table.getColumnModel().getColumn(SensorTableModel.TOGGLE_COLUMN).setCellRenderer(buttonRenderer);
+        table.getColumnModel().getColumn(SensorTableModel.REMOVE_COLUMN).setCellRenderer(buttonRenderer);
+        table.setRowHeight(buttonRenderer.getPreferredSize().height);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                int column = table.columnAtPoint(e.getPoint());
+                if (row < 0) {
+                    return;
+                }
+                int modelRow = table.convertRowIndexToModel(row);
+                Sensor sensor = sensorTableModel.getSensorAt(modelRow);
+                if (column == SensorTableModel.TOGGLE_COLUMN) {
+                    setSensorActivity(sensor, sensorTableModel.requestToggle(modelRow));
+                } else if (column == SensorTableModel.REMOVE_COLUMN) {
+                    removeSensor(sensor);
+                }
+            }
         });
-
-        repaint();
-        revalidate();
-    }
-
-    /**
-     * Creates a label displaying the sensor's information.
-     *
-     * @param sensor The sensor to display.
-     * @return A JLabel with the sensor's information.
-     */
-    private JLabel createSensorLabel(Sensor sensor) {
-        return new JLabel(String.format("%s (%s): %s", 
-            sensor.getName(), 
-            sensor.getSensorType(), 
-            sensor.getActive() ? "Active" : "Inactive"));
+        return table;
     }
 
     /**
-     * Creates a button that toggles the sensor's activation status.
-     *
-     * @param sensor The sensor to toggle.
-     * @return A JButton for toggling the sensor's activation.
+     * Requests the current list of sensors and updates the table. Sensors display in the
+     * order they sort in, and only rows that changed are repainted.
      */
-    private JButton createToggleButton(Sensor sensor) {
-        JButton toggleButton = new JButton(sensor.getActive() ? "Deactivate" : "Activate");
-        toggleButton.addActionListener(e -> setSensorActivity(sensor, !sensor.getActive()));
-        return toggleButton;
-    }
-
-    /**
-     * Creates a button that removes the sensor from the system.
-     *
-     * @param sensor The sensor to remove.
-     * @return A JButton for removing the sensor.
-     */
-    private JButton createRemoveButton(Sensor sensor) {
-        JButton removeButton = new JButton("Remove Sensor");
-        removeButton.addActionListener(e -> removeSensor(sensor));
-        return removeButton;
+    private void updateSensorList() {
+        sensorTableModel.refresh(securityService.getSensors());
     }
 
     /**
      * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list.
+     * The change runs off the event thread unless execution.mode is DIRECT. Changes of the
+     * same sensor start only after the previous one finished, so they apply in click order.
      *
      * @param sensor   The sensor to update.
      * @param isActive The sensor's activation status.
      */
     private void setSensorActivity(Sensor sensor, boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        CompletableFuture<Void> previous = pendingChanges.getOrDefault(sensor, CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> change = previous
+                .exceptionally(ex -> null)
+                .thenCompose(ignored -> eventExecutor.changeSensorActivationStatus(sensor, isActive));
+        pendingChanges.put(sensor, change);
+        change.whenComplete((ignored, ex) -> SwingUtilities.invokeLater(() -> {
+            pendingChanges.remove(sensor, change);
+            sensorTableModel.toggleFinished(sensor, isActive);
+            updateSensorList();
+        }));
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list.
+     * Adds a sensor to the securityService and then inserts its row. The number of sensors
+     * is limited by sensor.maxCount, if positive.
      *
      * @param sensor The sensor to add.
      */
     private void addSensor(Sensor sensor) {
-        if (securityService.getSensors().size() < 4) {
+        if (maxSensors <= 0 || securityService.getSensors().size() < maxSensors) {
             securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
+            sensorTableModel.sensorAdded(sensor);
         } else {
-            JOptionPane.showMessageDialog(null, 
-                "To add more than 4 sensors, please subscribe to our Premium Membership!");
+            JOptionPane.showMessageDialog(null,
+                "To add more than " + maxSensors + " sensors, please subscribe to our Premium Membership!");
         }
     }
 
     /**
-     * Removes a sensor from the securityService and then rebuilds the sensor list.
+     * Removes a sensor from the securityService and then deletes its row.
      *
      * @param sensor The sensor to remove.
      */
     private void removeSensor(Sensor sensor) {
         securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+        sensorTableModel.sensorRemoved(sensor);
     }
 
     @Override
@@ -206,6 +222,23 @@ public class SensorPanel extends JPanel implements StatusListener {
 
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        updateSensorList();
+    }
+
+    /**
+     * Paints the text of a cell as a button. One instance paints every button cell.
+     */
+    private static final class ButtonCellRenderer extends JButton implements TableCellRenderer {
+
+        ButtonCellRenderer() {
+            super("Deactivate");
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            setText(String.valueOf(value));
+            return this;
+        }
     }
 }
@@ -0,0 +1,184 @@
+package com.udacity.catpoint.security.application;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.swing.table.AbstractTableModel;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * Table model of the sensor list, in the order sensors sort in. The model remembers the
+ * activation state it last showed for every sensor, so a refresh fires update events only
+ * for the rows that actually changed and the table repaints just those rows. A toggle that has
+ * been requested but not applied yet is remembered as well, so a second click acts on the
+ * state the first one asked for rather than on the state still shown.
+ */
+class SensorTableModel extends AbstractTableModel {
+
+    static final int NAME_COLUMN = 0;
+    static final int TYPE_COLUMN = 1;
+    static final int STATUS_COLUMN = 2;
+    static final int TOGGLE_COLUMN = 3;
+    static final int REMOVE_COLUMN = 4;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Status", "", ""};
+
+    private final List<Sensor> rows = new ArrayList<>();
+    private final Map<UUID, Integer> rowBySensorId = new HashMap<>();
+    // activation state as last displayed, by row
+    private boolean[] shownActive = new boolean[0];
+    // activation state requested by the latest toggle not yet applied, by sensor
+    private final Map<UUID, Boolean> pendingActive = new HashMap<>();
+
+    /**
+     * Brings the model in line with the given sensors. If the same sensors are shown already,
+     * only rows whose activation state changed are reported; otherwise the table is reloaded.
+     */
+    void refresh(Collection<Sensor> sensors) {
+        if (sensors.size() != rows.size()) {
+            reload(sensors);
+            return;
+        }
+        BitSet changed = new BitSet(rows.size());
+        for (Sensor sensor : sensors) {
+            Integer row = rowBySensorId.get(sensor.getSensorId());
+            if (row == null) {
+                reload(sensors);
+                return;
+            }
+            rows.set(row, sensor);
+            if (sensor.getActive() != shownActive[row]) {
+                shownActive[row] = sensor.getActive();
+                changed.set(row);
+            }
+        }
+        // one event per run of consecutive changed rows
+        for (int first = changed.nextSetBit(0); first >= 0; first = changed.nextSetBit(first)) {
+            int end = changed.nextClearBit(first);
+            fireTableRowsUpdated(first, end - 1);
+            first = end;
+        }
+    }
+
+    private void reload(Collection<Sensor> sensors) {
+        rows.clear();
+        rows.addAll(sensors);
+        Collections.sort(rows);
+        rowBySensorId.clear();
+        shownActive = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            rowBySensorId.put(rows.get(i).getSensorId(), i);
+            shownActive[i] = rows.get(i).getActive();
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Inserts a sensor at its sorted position.
+     */
+    void sensorAdded(Sensor sensor) {
+        int index = Collections.binarySearch(rows, sensor);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        rows.add(index, sensor);
+        reindexFrom(index);
+        fireTableRowsInserted(index, index);
+    }
+
+    void sensorRemoved(Sensor sensor) {
+        pendingActive.remove(sensor.getSensorId());
+        Integer index = rowBySensorId.remove(sensor.getSensorId());
+        if (index == null) {
+            return;
+        }
+        rows.remove((int) index);
+        reindexFrom(index);
+        fireTableRowsDeleted(index, index);
+    }
+
+    private void reindexFrom(int index) {
+        boolean[] active = new boolean[rows.size()];
+        System.arraycopy(shownActive, 0, active, 0, Math.min(index, shownActive.length));
+        for (int i = index; i < rows.size(); i++) {
+            rowBySensorId.put(rows.get(i).getSensorId(), i);
+            active[i] = rows.get(i).getActive();
+        }
+        shownActive = active;
+    }
+
+    /**
+     * Records a toggle of the sensor in the given row and returns the activation state it
+     * asks for: the opposite of the state the last pending toggle asked for, or of the shown
+     * state if none is pending.
+     */
+    boolean requestToggle(int row) {
+        boolean target = !targetActive(row);
+        pendingActive.put(rows.get(row).getSensorId(), target);
+        fireTableRowsUpdated(row, row);
+        return target;
+    }
+
+    /**
+     * Forgets the pending toggle of a sensor once the change to the given state is done,
+     * unless a later toggle asked for another state meanwhile.
+     */
+    void toggleFinished(Sensor sensor, boolean isActive) {
+        if (pendingActive.remove(sensor.getSensorId(), isActive)) {
+            Integer row = rowBySensorId.get(sensor.getSensorId());
+            if (row != null) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    private boolean targetActive(int row) {
+        return pendingActive.getOrDefault(rows.get(row).getSensorId(), shownActive[row]);
+    }
+
+    Sensor getSensorAt(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor sensor = rows.get(row);
+        switch (column) {
+            case NAME_COLUMN:
+                return sensor.getName();
+            case TYPE_COLUMN:
+                return sensor.getSensorType();
+            case STATUS_COLUMN:
+                return shownActive[row] ? "Active" : "Inactive";
+            case TOGGLE_COLUMN:
+                return targetActive(row) ? "Deactivate" : "Activate";
+            case REMOVE_COLUMN:
+                return "Remove Sensor";
+            default:
+                throw new IndexOutOfBoundsException("No column " + column);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.udacity.catpoint.security.application;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Forwards status changes to Swing panels on the event dispatch thread, at most once per
+ * frame interval.
+ * <p>
+ * The SecurityService calls its listeners on whatever thread changed the state, which may be
+ * a camera or sensor ingestion thread producing thousands of events per second. This bridge
+ * only records the latest alarm status, the latest cat verdict and whether sensors changed,
+ * then delivers them together once the frame interval has passed. Intermediate values within
+ * one interval are skipped, so panels repaint once per frame however busy the system is.
+ */
+public class SwingStatusBridge implements StatusListener {
+
+    private final Set<StatusListener> listeners = new CopyOnWriteArraySet<>();
+    private final Timer flushTimer;
+
+    private final AtomicReference<AlarmStatus> pendingAlarmStatus = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCatDetected = new AtomicReference<>();
+    private final AtomicBoolean pendingSensorChange = new AtomicBoolean();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * Creates the bridge and registers it with the security service.
+     *
+     * @param securityService Service whose status changes are forwarded
+     * @param frameMillis Minimum interval between two deliveries
+     */
+    public SwingStatusBridge(SecurityService securityService, int frameMillis) {
+        flushTimer = new Timer(frameMillis, e -> flush());
+        flushTimer.setRepeats(false);
+        securityService.addStatusListener(this);
+    }
+
+    /**
+     * Registers a listener that is called on the event dispatch thread.
+     */
+    public void addStatusListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeStatusListener(StatusListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        pendingAlarmStatus.set(status);
+        scheduleFlush();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        pendingCatDetected.set(catDetected);
+        scheduleFlush();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        pendingSensorChange.set(true);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flushTimer::restart);
+        }
+    }
+
+    /**
+     * Delivers everything recorded since the last flush. Runs on the event dispatch thread.
+     */
+    private void flush() {
+        // clear the flag first, so a change racing with this flush schedules the next one
+        flushScheduled.set(false);
+        AlarmStatus alarmStatus = pendingAlarmStatus.getAndSet(null);
+        Boolean catDetected = pendingCatDetected.getAndSet(null);
+        boolean sensorChange = pendingSensorChange.getAndSet(false);
+        for (StatusListener listener : listeners) {
+            if (alarmStatus != null) {
+                listener.notify(alarmStatus);
+            }
+            if (catDetected != null) {
+                listener.catDetected(catDetected);
+            }
+            if (sensorChange) {
+                listener.sensorStatusChanged();
+            }
+        }
+    }
+}
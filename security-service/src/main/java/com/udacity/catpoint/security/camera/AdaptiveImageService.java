@@ -0,0 +1,66 @@
+package com.udacity.catpoint.security.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.image.service.ImageScorer;
+import com.udacity.catpoint.image.service.PerceptualHashScorer;
+import com.udacity.catpoint.image.service.TieredImageService;
+
+/**
+ * Image service that hands every image to the detector tier the {@link DetectionBudget}
+ * currently asks for.
+ */
+public class AdaptiveImageService implements IService {
+
+    private final DetectionBudget budget;
+    private final Map<DetectorTier, IService> detectors;
+
+    /**
+     * @param budget Budget deciding the tier
+     * @param detectors Detector for each tier; all tiers must be present
+     */
+    public AdaptiveImageService(DetectionBudget budget, Map<DetectorTier, IService> detectors) {
+        for (DetectorTier tier : DetectorTier.values()) {
+            if (!detectors.containsKey(tier)) {
+                throw new IllegalArgumentException("No detector for tier " + tier);
+            }
+        }
+        this.budget = budget;
+        this.detectors = new EnumMap<>(detectors);
+    }
+
+    /**
+     * Builds the three tiers around a remote service. They share one local scorer, which
+     * learns from every verdict the remote service gives so the cheaper tiers improve while
+     * the dense tiers are in use.
+     *
+     * @param catRule Decides which verdicts of the remote service are taught as "cat", usually
+     * {@link com.udacity.catpoint.security.service.SecurityService#isCat}
+     */
+    public static AdaptiveImageService forRemote(DetectionBudget budget, IService remote,
+                                                 Predicate<DetectionResult> catRule) {
+        ImageScorer scorer = new PerceptualHashScorer();
+        Map<DetectorTier, IService> detectors = new EnumMap<>(DetectorTier.class);
+        detectors.put(DetectorTier.LOCAL, image -> {
+            float score = scorer.score(image);
+            return score > 0.5f ? DetectionResult.of("Cat", score * 100) : DetectionResult.none();
+        });
+        detectors.put(DetectorTier.CASCADE, new TieredImageService(scorer, remote, 0.2f, 0.8f, catRule));
+        detectors.put(DetectorTier.REMOTE, image -> {
+            DetectionResult result = remote.detect(image);
+            scorer.learn(image, catRule.test(result));
+            return result;
+        });
+        return new AdaptiveImageService(budget, detectors);
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        return detectors.get(budget.currentTier()).detect(image);
+    }
+}
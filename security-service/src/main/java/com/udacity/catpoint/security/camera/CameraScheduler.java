@@ -0,0 +1,363 @@
+package com.udacity.catpoint.security.camera;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Schedules image classification across cameras with self-clocked weighted fair queuing.
+ * <p>
+ * Each camera holds at most one pending frame (a newer frame replaces it). When a camera
+ * becomes ready it is stamped with a virtual finish time of
+ * {@code max(virtualTime, lastFinish) + cost / weight}, where cost is the camera's recent
+ * average classification time. The pending camera with the smallest stamp runs next, so a
+ * camera producing many or expensive frames cannot starve the others. Cameras can be given
+ * a separate, usually higher, weight that applies while the system is
+ * {@link ArmingStatus#ARMED_HOME}, when a cat on camera raises the alarm. Weights only change
+ * the order relative to other cameras, so they are set per camera, for example with the
+ * camera.&lt;id&gt;.weight and camera.&lt;id&gt;.armedHomeWeight keys read by {@link #loadWeights()}.
+ * <p>
+ * Classifications run on a work-stealing pool, or on a thread of their own when given a
+ * thread-per-task executor; at most {@code parallelism} are in flight either way, so the fair
+ * ordering is decided here rather than by the executor's own queues.
+ */
+public class CameraScheduler implements Closeable {
+
+    private static final double COST_SMOOTHING = 0.2;
+    private static final String WEIGHT_PREFIX = "camera.";
+    private static final String WEIGHT_SUFFIX = ".weight";
+    private static final String ARMED_HOME_WEIGHT_SUFFIX = ".armedHomeWeight";
+
+    private final Logger logger = LoggerFactory.getLogger(CameraScheduler.class);
+
+    private final SecurityService securityService;
+    private final IService detector;
+    private final int parallelism;
+    private final double defaultArmedHomeWeight;
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frameReady = lock.newCondition();
+    // guarded by lock
+    private final Map<String, CameraState> cameras = new HashMap<>();
+    private double virtualTime;
+    private int readyCameras;
+
+    private final LongAdder classified = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+
+    private Thread dispatcher;
+
+    /**
+     * @param securityService Service that classifies the frames
+     * @param parallelism Maximum concurrent classifications
+     * @param defaultArmedHomeWeight Weight of cameras without an explicit setting while the
+     * system is armed at home; their normal weight is 1
+     */
+    public CameraScheduler(SecurityService securityService, int parallelism, double defaultArmedHomeWeight) {
+        this(securityService, null, parallelism, defaultArmedHomeWeight);
+    }
+
+    /**
+     * @param securityService Service that receives the verdicts
+     * @param detector Detector used instead of the security service's own image service, or
+     * null to use that one
+     * @param parallelism Maximum concurrent classifications
+     * @param defaultArmedHomeWeight Weight of cameras without an explicit setting while the
+     * system is armed at home; their normal weight is 1
+     */
+    public CameraScheduler(SecurityService securityService, IService detector, int parallelism,
+                           double defaultArmedHomeWeight) {
+        this(securityService, detector, parallelism, defaultArmedHomeWeight,
+                new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+    }
+
+    /**
+     * @param securityService Service that receives the verdicts
+     * @param detector Detector used instead of the security service's own image service, or
+     * null to use that one
+     * @param parallelism Maximum concurrent classifications
+     * @param defaultArmedHomeWeight Weight of cameras without an explicit setting while the
+     * system is armed at home; their normal weight is 1
+     * @param pool Executor running the classifications, shut down by {@link #close()}
+     */
+    public CameraScheduler(SecurityService securityService, IService detector, int parallelism,
+                           double defaultArmedHomeWeight, ExecutorService pool) {
+        this(securityService, detector, parallelism, defaultArmedHomeWeight, pool, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps used to measure
+     * classification cost
+     */
+    CameraScheduler(SecurityService securityService, IService detector, int parallelism,
+                    double defaultArmedHomeWeight, ExecutorService pool, LongSupplier nanoClock) {
+        this.securityService = securityService;
+        this.detector = detector;
+        this.parallelism = parallelism;
+        this.defaultArmedHomeWeight = defaultArmedHomeWeight;
+        this.pool = pool;
+        this.inFlight = new Semaphore(parallelism);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Sets the share of classification capacity a camera gets relative to other cameras.
+     *
+     * @param cameraId Camera to configure
+     * @param weight Weight while the system is disarmed or armed away
+     * @param armedHomeWeight Weight while the system is armed at home
+     */
+    public void setWeights(String cameraId, double weight, double armedHomeWeight) {
+        if (weight <= 0 || armedHomeWeight <= 0) {
+            throw new IllegalArgumentException("weights must be positive");
+        }
+        lock.lock();
+        try {
+            CameraState camera = camera(cameraId);
+            camera.weight = weight;
+            camera.armedHomeWeight = armedHomeWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the camera.&lt;id&gt;.weight and camera.&lt;id&gt;.armedHomeWeight keys of
+     * application.properties or the system properties. A camera with only a weight gets
+     * that weight times the default armed-home weight while armed at home.
+     */
+    public void loadWeights() {
+        Set<String> cameraIds = new TreeSet<>();
+        for (String key : ConfigService.getKeys(WEIGHT_PREFIX)) {
+            for (String suffix : new String[] {WEIGHT_SUFFIX, ARMED_HOME_WEIGHT_SUFFIX}) {
+                if (key.endsWith(suffix) && key.length() > WEIGHT_PREFIX.length() + suffix.length()) {
+                    cameraIds.add(key.substring(WEIGHT_PREFIX.length(), key.length() - suffix.length()));
+                }
+            }
+        }
+        for (String cameraId : cameraIds) {
+            double weight = ConfigService.getDouble(WEIGHT_PREFIX + cameraId + WEIGHT_SUFFIX, 1.0);
+            double armedHomeWeight = ConfigService.getDouble(WEIGHT_PREFIX + cameraId + ARMED_HOME_WEIGHT_SUFFIX,
+                    weight * defaultArmedHomeWeight);
+            setWeights(cameraId, weight, armedHomeWeight);
+            logger.info("Camera {} weighted {} ({} armed at home)", cameraId, weight, armedHomeWeight);
+        }
+    }
+
+    /**
+     * Queues the latest frame of a camera without blocking.
+     *
+     * @return False if a pending frame of the same camera was replaced and will never be
+     * classified
+     */
+    public boolean submit(String cameraId, BufferedImage image) {
+        boolean armedHome = securityService.getArmingStatus() == ArmingStatus.ARMED_HOME;
+        lock.lock();
+        try {
+            CameraState camera = camera(cameraId);
+            boolean hadPending = camera.pending != null;
+            camera.pending = image;
+            if (hadPending) {
+                replaced.increment();
+                return false;
+            }
+            double weight = armedHome ? camera.armedHomeWeight : camera.weight;
+            camera.finishTag = Math.max(virtualTime, camera.lastFinish) + camera.averageCostMillis / weight;
+            readyCameras++;
+            frameReady.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = new DaemonThreadFactory("camera-scheduler").newThread(this::dispatchLoop);
+        dispatcher.start();
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                inFlight.acquire();
+                String cameraId;
+                BufferedImage image;
+                lock.lock();
+                try {
+                    CameraState next;
+                    while ((next = nextCamera()) == null) {
+                        frameReady.await();
+                    }
+                    cameraId = next.cameraId;
+                    image = next.pending;
+                    next.pending = null;
+                    next.running = true;
+                    next.lastFinish = next.finishTag;
+                    virtualTime = next.finishTag;
+                    readyCameras--;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    pool.execute(() -> classify(cameraId, image));
+                } catch (RejectedExecutionException ex) {
+                    finished(cameraId);
+                    if (pool.isShutdown()) {
+                        return;
+                    }
+                    logger.warn("Classification of a frame from camera {} was rejected", cameraId, ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The pending camera with the smallest finish tag, skipping cameras that are
+     * still being classified so a camera's verdicts never arrive out of order
+     */
+    private CameraState nextCamera() {
+        CameraState best = null;
+        for (CameraState camera : cameras.values()) {
+            if (camera.pending != null && !camera.running && (best == null || camera.finishTag < best.finishTag)) {
+                best = camera;
+            }
+        }
+        return best;
+    }
+
+    private void classify(String cameraId, BufferedImage image) {
+        long start = nanoClock.getAsLong();
+        try {
+            if (detector == null) {
+                securityService.processImage(cameraId, image);
+            } else {
+                securityService.processImage(cameraId, image, detector);
+            }
+            classified.increment();
+        } catch (RuntimeException ex) {
+            logger.error("Classification failed for camera {}", cameraId, ex);
+        } finally {
+            double millis = (nanoClock.getAsLong() - start) / 1_000_000.0;
+            lock.lock();
+            try {
+                CameraState camera = cameras.get(cameraId);
+                camera.averageCostMillis += COST_SMOOTHING * (millis - camera.averageCostMillis);
+            } finally {
+                lock.unlock();
+            }
+            finished(cameraId);
+        }
+    }
+
+    /**
+     * Lets the camera's next frame be dispatched and returns the permit of the finished or
+     * rejected classification.
+     */
+    private void finished(String cameraId) {
+        lock.lock();
+        try {
+            CameraState camera = cameras.get(cameraId);
+            camera.running = false;
+            if (camera.pending != null) {
+                frameReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        inFlight.release();
+    }
+
+    private CameraState camera(String cameraId) {
+        return cameras.computeIfAbsent(cameraId, id -> new CameraState(id, 1.0, defaultArmedHomeWeight));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getClassified() {
+        return classified.sum();
+    }
+
+    /**
+     * @return Number of frames that were replaced by a newer frame before being classified
+     */
+    public long getReplaced() {
+        return replaced.sum();
+    }
+
+    /**
+     * @return Number of cameras with a frame waiting for classification
+     */
+    public int getPending() {
+        lock.lock();
+        try {
+            return readyCameras;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Scheduling state of one camera, guarded by the scheduler lock.
+     */
+    private static final class CameraState {
+
+        private final String cameraId;
+        private double weight;
+        private double armedHomeWeight;
+        private double averageCostMillis = 1.0;
+        private double finishTag;
+        private double lastFinish;
+        private BufferedImage pending;
+        private boolean running;
+
+        CameraState(String cameraId, double weight, double armedHomeWeight) {
+            this.cameraId = cameraId;
+            this.weight = weight;
+            this.armedHomeWeight = armedHomeWeight;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.udacity.catpoint.security.camera;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.service.ConfigService;
+
+/**
+ * Decides how often camera frames are classified and with which detector tier, based on how
+ * much a cat on camera currently matters. A cat only raises the alarm while the system is
+ * armed at home, and a pending alarm is the moment an extra verdict matters most, so the
+ * configured budget of classifications per minute is spent accordingly:
+ * <ul>
+ * <li>DISARMED - a small share, local detector only</li>
+ * <li>ARMED_AWAY - a small share, cascaded detector</li>
+ * <li>ARMED_HOME - most of the budget, cascaded detector</li>
+ * <li>PENDING_ALARM - the whole budget, remote detector</li>
+ * <li>ALARM - a small share to notice when the cat is gone, cascaded detector</li>
+ * </ul>
+ * The active share is split evenly between the cameras seen during the last minute, which
+ * sets each camera's minimum sampling interval. A shared token bucket keeps the total within
+ * the budget.
+ */
+public class DetectionBudget {
+
+    /**
+     * Situations with their own share of the budget and detector tier.
+     */
+    public enum Level {
+        DISARMED(0.1, DetectorTier.LOCAL),
+        ARMED_AWAY(0.25, DetectorTier.CASCADE),
+        ARMED_HOME(0.6, DetectorTier.CASCADE),
+        PENDING_ALARM(1.0, DetectorTier.REMOTE),
+        ALARM(0.25, DetectorTier.CASCADE);
+
+        private final double defaultShare;
+        private final DetectorTier defaultTier;
+
+        Level(double defaultShare, DetectorTier defaultTier) {
+            this.defaultShare = defaultShare;
+            this.defaultTier = defaultTier;
+        }
+    }
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Supplier<ArmingStatus> armingStatus;
+    private final Supplier<AlarmStatus> alarmStatus;
+    private final double classificationsPerMinute;
+    private final Map<Level, Double> shares = new EnumMap<>(Level.class);
+    private final Map<Level, DetectorTier> tiers = new EnumMap<>(Level.class);
+
+    private final Map<String, Long> lastSampleByCamera = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSeenByCamera = new ConcurrentHashMap<>();
+
+    // token bucket guarded by "this"
+    private double tokens = 1.0;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param armingStatus Source of the current arming status
+     * @param alarmStatus Source of the current alarm status
+     * @param classificationsPerMinute Total budget across all cameras
+     */
+    public DetectionBudget(Supplier<ArmingStatus> armingStatus, Supplier<AlarmStatus> alarmStatus,
+                           double classificationsPerMinute) {
+        if (classificationsPerMinute <= 0) {
+            throw new IllegalArgumentException("classificationsPerMinute must be positive");
+        }
+        this.armingStatus = armingStatus;
+        this.alarmStatus = alarmStatus;
+        this.classificationsPerMinute = classificationsPerMinute;
+        for (Level level : Level.values()) {
+            shares.put(level, level.defaultShare);
+            tiers.put(level, level.defaultTier);
+        }
+    }
+
+    /**
+     * Creates a budget from the detection.* keys of application.properties, or returns null if
+     * detection.budgetPerMinute is not positive.
+     */
+    public static DetectionBudget fromConfig(Supplier<ArmingStatus> armingStatus, Supplier<AlarmStatus> alarmStatus) {
+        double perMinute = ConfigService.getDouble("detection.budgetPerMinute", 0);
+        if (perMinute <= 0) {
+            return null;
+        }
+        DetectionBudget budget = new DetectionBudget(armingStatus, alarmStatus, perMinute);
+        for (Level level : Level.values()) {
+            budget.configure(level,
+                    ConfigService.getDouble("detection.share." + level, level.defaultShare),
+                    DetectorTier.valueOf(ConfigService.getString("detection.tier." + level, level.defaultTier.toString())));
+        }
+        return budget;
+    }
+
+    /**
+     * Overrides the share of the budget and the detector tier used in a situation.
+     */
+    public void configure(Level level, double share, DetectorTier tier) {
+        if (share < 0 || share > 1) {
+            throw new IllegalArgumentException("share must be between 0 and 1");
+        }
+        synchronized (this) {
+            shares.put(level, share);
+            tiers.put(level, tier);
+        }
+    }
+
+    public Level currentLevel() {
+        AlarmStatus alarm = alarmStatus.get();
+        if (alarm == AlarmStatus.PENDING_ALARM) {
+            return Level.PENDING_ALARM;
+        }
+        if (alarm == AlarmStatus.ALARM) {
+            return Level.ALARM;
+        }
+        switch (armingStatus.get()) {
+            case ARMED_HOME:
+                return Level.ARMED_HOME;
+            case ARMED_AWAY:
+                return Level.ARMED_AWAY;
+            default:
+                return Level.DISARMED;
+        }
+    }
+
+    public synchronized DetectorTier currentTier() {
+        return tiers.get(currentLevel());
+    }
+
+    /**
+     * @return The classification rate per minute in the current situation, across all cameras
+     */
+    public synchronized double currentRatePerMinute() {
+        return classificationsPerMinute * shares.get(currentLevel());
+    }
+
+    /**
+     * Asks whether a frame of the given camera should be classified now. Frames that are
+     * refused should be skipped; a later frame of the same camera will be accepted once the
+     * camera's sampling interval has passed and the budget allows it.
+     */
+    public boolean tryAcquire(String cameraId) {
+        long now = System.nanoTime();
+        lastSeenByCamera.put(cameraId, now);
+        double ratePerMinute = currentRatePerMinute();
+        if (ratePerMinute <= 0) {
+            return false;
+        }
+
+        long cameraInterval = (long) (MINUTE_NANOS / (ratePerMinute / activeCameras(now)));
+        Long lastSample = lastSampleByCamera.get(cameraId);
+        if (lastSample != null && now - lastSample < cameraInterval) {
+            return false;
+        }
+
+        synchronized (this) {
+            tokens = Math.min(Math.max(1.0, ratePerMinute / 60.0),
+                    tokens + (now - lastRefill) * ratePerMinute / MINUTE_NANOS);
+            lastRefill = now;
+            if (tokens < 1.0) {
+                return false;
+            }
+            tokens -= 1.0;
+        }
+        lastSampleByCamera.put(cameraId, now);
+        return true;
+    }
+
+    private int activeCameras(long now) {
+        lastSeenByCamera.values().removeIf(seen -> now - seen > MINUTE_NANOS);
+        return Math.max(1, lastSeenByCamera.size());
+    }
+}
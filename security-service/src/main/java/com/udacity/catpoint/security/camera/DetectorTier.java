@@ -0,0 +1,10 @@
+package com.udacity.catpoint.security.camera;
+
+/**
+ * Cost tiers of cat detectors, from cheapest to most accurate.
+ */
+public enum DetectorTier {
+    LOCAL, // local scorer only, no remote calls
+    CASCADE, // local scorer, escalating uncertain frames to the remote service
+    REMOTE // every frame goes to the remote service
+}
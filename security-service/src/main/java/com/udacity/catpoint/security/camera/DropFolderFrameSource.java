@@ -0,0 +1,131 @@
+package com.udacity.catpoint.security.camera;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Frame source that watches a drop folder. Every sub-folder is one camera, named after the
+ * folder; files dropped directly into the root belong to the camera "default". Frames are read
+ * when their file is created, so cameras write them under a temporary name ending in ".tmp"
+ * and rename them when complete; a frame written in place may be read half-written. Later
+ * changes to a frame file are ignored, so a file that is kept is read once.
+ */
+public class DropFolderFrameSource implements FrameSource {
+
+    private static final String DEFAULT_CAMERA = "default";
+
+    private final Logger logger = LoggerFactory.getLogger(DropFolderFrameSource.class);
+
+    private final Path root;
+    private final boolean deleteAfterRead;
+    private final Map<WatchKey, String> cameraByKey = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    /**
+     * @param root Folder to watch
+     * @param deleteAfterRead Whether frames are deleted once read, so the folder does not grow
+     */
+    public DropFolderFrameSource(Path root, boolean deleteAfterRead) {
+        this.root = root;
+        this.deleteAfterRead = deleteAfterRead;
+    }
+
+    @Override
+    public void start(Consumer<EncodedFrame> sink) {
+        try {
+            Files.createDirectories(root);
+            watchService = root.getFileSystem().newWatchService();
+            register(root, DEFAULT_CAMERA);
+            try (DirectoryStream<Path> cameras = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path camera : cameras) {
+                    register(camera, camera.getFileName().toString());
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to watch " + root, ex);
+        }
+
+        watcherThread = new Thread(() -> watch(sink), "drop-folder-" + root.getFileName());
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void register(Path folder, String cameraId) throws IOException {
+        cameraByKey.put(folder.register(watchService, ENTRY_CREATE), cameraId);
+    }
+
+    private void watch(Consumer<EncodedFrame> sink) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                String cameraId = cameraByKey.get(key);
+                Path folder = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        handle(folder.resolve((Path) event.context()), cameraId, sink);
+                    }
+                }
+                if (!key.reset()) {
+                    cameraByKey.remove(key);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // source closed
+        }
+    }
+
+    private void handle(Path file, String cameraId, Consumer<EncodedFrame> sink) {
+        try {
+            if (Files.isDirectory(file)) {
+                if (DEFAULT_CAMERA.equals(cameraId)) {
+                    register(file, file.getFileName().toString());
+                }
+                return;
+            }
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                return;
+            }
+            byte[] data = Files.readAllBytes(file);
+            if (data.length == 0) {
+                return; // created but not written, the camera did not rename it into place
+            }
+            sink.accept(new EncodedFrame(cameraId, data, data.length, System.currentTimeMillis()));
+            if (deleteAfterRead) {
+                Files.deleteIfExists(file);
+            }
+        } catch (NoSuchFileException ex) {
+            // already consumed through an earlier event for the same file
+        } catch (IOException ex) {
+            logger.warn("Unable to read frame {}", file, ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * A still-encoded camera frame (JPEG, PNG, ...) as delivered by a {@link FrameSource}.
+ * Decoding is left to the pipeline's worker threads.
+ */
+public class EncodedFrame {
+
+    private final String cameraId;
+    private final byte[] data;
+    private final int length;
+    private final long timestampMillis;
+
+    /**
+     * @param cameraId Camera that captured the frame
+     * @param data Encoded image bytes. Ownership passes to the frame.
+     * @param length Number of valid bytes in data
+     * @param timestampMillis Capture time in epoch milliseconds
+     */
+    public EncodedFrame(String cameraId, byte[] data, int length, long timestampMillis) {
+        this.cameraId = cameraId;
+        this.data = data;
+        this.length = length;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data, 0, length);
+    }
+}
@@ -0,0 +1,321 @@
+package com.udacity.catpoint.security.camera;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+import com.udacity.catpoint.security.service.ExecutionMode;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Headless camera ingestion. Frames from any number of {@link FrameSource}s are decoded on a
+ * pool of worker threads and then classified per camera through a {@link CameraScheduler}.
+ * <p>
+ * Both hand-offs keep one pending frame per camera: when decoding or classification cannot
+ * keep up, a camera's pending frame is replaced by its newest one rather than queued, so the
+ * pipeline never falls behind real time and memory stays bounded. Replaced frames are
+ * counted as dropped.
+ * <p>
+ * An optional {@link DetectionBudget} decides which frames are worth decoding at all; frames
+ * it refuses are counted as sampled out. An optional {@link AdmissionController} sheds frames
+ * before they are decoded while sensor events back up; they are counted as dropped.
+ */
+public class FrameIngestionPipeline implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(FrameIngestionPipeline.class);
+
+    private final int decodeThreads;
+    private final long reportIntervalSeconds;
+
+    private final LatestFrameQueue<EncodedFrame> decodeQueue;
+    private final CameraScheduler scheduler;
+    private final DetectionBudget budget;
+    private final AdmissionController admission;
+    private final List<FrameSource> sources = new CopyOnWriteArrayList<>();
+    private final List<Consumer<EncodedFrame>> frameTaps = new CopyOnWriteArrayList<>();
+
+    private final LongAdder framesIn = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder decodeErrors = new LongAdder();
+
+    private ExecutorService decoders;
+    private ScheduledExecutorService reporter;
+
+    /**
+     * @param decodeThreads Number of decoding workers
+     * @param scheduler Scheduler the decoded frames are classified through
+     * @param maxCameras Maximum number of cameras; frames from further cameras are dropped
+     * @param reportIntervalSeconds How often statistics are logged, 0 to disable
+     */
+    public FrameIngestionPipeline(int decodeThreads, CameraScheduler scheduler, int maxCameras,
+                                  long reportIntervalSeconds) {
+        this(decodeThreads, scheduler, null, maxCameras, reportIntervalSeconds);
+    }
+
+    /**
+     * @param decodeThreads Number of decoding workers
+     * @param scheduler Scheduler the decoded frames are classified through
+     * @param budget Budget deciding which frames are classified, or null to classify all
+     * @param maxCameras Maximum number of cameras; frames from further cameras are dropped
+     * @param reportIntervalSeconds How often statistics are logged, 0 to disable
+     */
+    public FrameIngestionPipeline(int decodeThreads, CameraScheduler scheduler, DetectionBudget budget,
+                                  int maxCameras, long reportIntervalSeconds) {
+        this(decodeThreads, scheduler, budget, null, maxCameras, reportIntervalSeconds);
+    }
+
+    /**
+     * @param decodeThreads Number of decoding workers
+     * @param scheduler Scheduler the decoded frames are classified through
+     * @param budget Budget deciding which frames are classified, or null to classify all
+     * @param admission Controller deciding when frames are shed, or null to shed none
+     * @param maxCameras Maximum number of cameras; frames from further cameras are dropped
+     * @param reportIntervalSeconds How often statistics are logged, 0 to disable
+     */
+    public FrameIngestionPipeline(int decodeThreads, CameraScheduler scheduler, DetectionBudget budget,
+                                  AdmissionController admission, int maxCameras, long reportIntervalSeconds) {
+        this.decodeThreads = decodeThreads;
+        this.scheduler = scheduler;
+        this.budget = budget;
+        this.admission = admission;
+        this.reportIntervalSeconds = reportIntervalSeconds;
+        this.decodeQueue = new LatestFrameQueue<>(maxCameras);
+    }
+
+    /**
+     * Creates a pipeline sized from the camera.* keys of application.properties that
+     * classifies every frame with the security service's own image service.
+     */
+    public static FrameIngestionPipeline fromConfig(SecurityService securityService) {
+        return fromConfig(securityService, null);
+    }
+
+    /**
+     * Creates a pipeline sized from the camera.* keys of application.properties. If a
+     * detection budget is configured through the detection.* keys, frames are sampled and
+     * classified by detector tiers built around the given remote service. With a thread-per-task
+     * execution.mode every classification runs on a thread of its own, at most
+     * execution.maxImageScans at once, instead of on camera.classifyThreads threads. Cameras are
+     * weighted with the camera.&lt;id&gt;.weight and camera.&lt;id&gt;.armedHomeWeight keys.
+     *
+     * @param securityService Service that receives the verdicts
+     * @param remoteService Most accurate detector available, or null to disable the budget
+     */
+    public static FrameIngestionPipeline fromConfig(SecurityService securityService, IService remoteService) {
+        return fromConfig(securityService, remoteService, null);
+    }
+
+    /**
+     * Creates a pipeline like {@link #fromConfig(SecurityService, IService)} that sheds frames
+     * when the admission controller says so. The depths of its queues are published as the
+     * camera.pendingDecode and camera.pendingClassify gauges.
+     *
+     * @param securityService Service that receives the verdicts
+     * @param remoteService Most accurate detector available, or null to disable the budget
+     * @param admission Controller deciding when frames are shed, or null to shed none
+     */
+    public static FrameIngestionPipeline fromConfig(SecurityService securityService, IService remoteService,
+                                                    AdmissionController admission) {
+        DetectionBudget budget = remoteService == null ? null
+                : DetectionBudget.fromConfig(securityService::getArmingStatus, securityService::getAlarmStatus);
+        IService detector = budget == null ? null : AdaptiveImageService.forRemote(budget, remoteService, securityService::isCat);
+        double armedHomeWeight = ConfigService.getDouble("camera.armedHomeWeight", 2.0);
+        ExecutionMode mode = ExecutionMode.fromConfig();
+        CameraScheduler scheduler = mode.isThreadPerTask()
+                ? new CameraScheduler(securityService, detector, ConfigService.getInt("execution.maxImageScans", 64),
+                        armedHomeWeight, mode.newThreadPerTaskExecutor("camera-scan"))
+                : new CameraScheduler(securityService, detector, ConfigService.getInt("camera.classifyThreads", 1),
+                        armedHomeWeight);
+        scheduler.loadWeights();
+        FrameIngestionPipeline pipeline = new FrameIngestionPipeline(
+                ConfigService.getInt("camera.decodeThreads", 2),
+                scheduler,
+                budget,
+                admission,
+                ConfigService.getInt("camera.maxCameras", 16),
+                ConfigService.getLong("camera.reportIntervalSeconds", 60));
+        MetricsRegistry.getDefault().gauge("camera.pendingDecode", pipeline.decodeQueue::size);
+        MetricsRegistry.getDefault().gauge("camera.pendingClassify", scheduler::getPending);
+        return pipeline;
+    }
+
+    /**
+     * Starts the worker threads. Sources may be added before or after.
+     */
+    public synchronized void start() {
+        if (decoders != null) {
+            return;
+        }
+        decoders = Executors.newFixedThreadPool(decodeThreads, new DaemonThreadFactory("frame-decoder"));
+        for (int i = 0; i < decodeThreads; i++) {
+            decoders.execute(this::decodeLoop);
+        }
+        scheduler.start();
+        if (reportIntervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("frame-report"));
+            reporter.scheduleAtFixedRate(() -> logger.info("Frame ingestion: {}", getStats()),
+                    reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void addSource(FrameSource source) {
+        sources.add(source);
+        source.start(this::submit);
+    }
+
+    /**
+     * Registers a consumer that sees every incoming frame, before sampling or dropping, on the
+     * thread that submitted it. Taps must not block.
+     */
+    public void addFrameTap(Consumer<EncodedFrame> tap) {
+        frameTaps.add(tap);
+    }
+
+    /**
+     * Accepts a frame without blocking. Safe to call from any thread.
+     */
+    public void submit(EncodedFrame frame) {
+        framesIn.increment();
+        for (Consumer<EncodedFrame> tap : frameTaps) {
+            tap.accept(frame);
+        }
+        if (decodeQueue.offer(frame.getCameraId(), frame) != null) {
+            dropped.increment();
+        }
+    }
+
+    private void decodeLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                EncodedFrame frame = decodeQueue.take();
+                if (admission != null && !admission.admitImage()) {
+                    dropped.increment();
+                    continue;
+                }
+                if (budget != null && !budget.tryAcquire(frame.getCameraId())) {
+                    sampledOut.increment();
+                    continue;
+                }
+                BufferedImage image = decode(frame);
+                if (image == null) {
+                    decodeErrors.increment();
+                } else if (!scheduler.submit(frame.getCameraId(), image)) {
+                    dropped.increment();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BufferedImage decode(EncodedFrame frame) {
+        try (InputStream in = frame.openStream()) {
+            // ImageIO.read(InputStream) would cache the frame in a temporary file
+            return ImageIO.read(new MemoryCacheImageInputStream(in));
+        } catch (IOException ex) {
+            logger.debug("Unable to decode frame from camera {}", frame.getCameraId(), ex);
+            return null;
+        }
+    }
+
+    public CameraScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public PipelineStats getStats() {
+        return new PipelineStats(framesIn.sum(), dropped.sum(), sampledOut.sum(), decodeErrors.sum(),
+                scheduler.getClassified(),
+                decodeQueue.size() + scheduler.getPending());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FrameSource source : sources) {
+            source.close();
+        }
+        if (decoders != null) {
+            decoders.shutdownNow();
+        }
+        scheduler.close();
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+    }
+
+    /**
+     * Snapshot of the pipeline counters.
+     */
+    public static final class PipelineStats {
+
+        private final long framesIn;
+        private final long dropped;
+        private final long sampledOut;
+        private final long decodeErrors;
+        private final long classified;
+        private final int pending;
+
+        PipelineStats(long framesIn, long dropped, long sampledOut, long decodeErrors, long classified,
+                      int pending) {
+            this.framesIn = framesIn;
+            this.dropped = dropped;
+            this.sampledOut = sampledOut;
+            this.decodeErrors = decodeErrors;
+            this.classified = classified;
+            this.pending = pending;
+        }
+
+        public long getFramesIn() {
+            return framesIn;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return Number of frames skipped because the detection budget did not allow them
+         */
+        public long getSampledOut() {
+            return sampledOut;
+        }
+
+        public long getDecodeErrors() {
+            return decodeErrors;
+        }
+
+        public long getClassified() {
+            return classified;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames in, %d dropped, %d sampled out, %d undecodable, %d classified, %d pending",
+                    framesIn, dropped, sampledOut, decodeErrors, classified, pending);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size ring of the most recent encoded frames of one camera, kept off the Java heap.
+ * <p>
+ * All memory is allocated up front: one direct buffer of {@code frames * maxFrameBytes}
+ * bytes for the image data and two small arrays for lengths and timestamps. Recording a
+ * frame only copies its bytes into the next slot, so the ring is invisible to the garbage
+ * collector no matter how high the frame rate is. Frames larger than a slot are skipped.
+ * <p>
+ * While frozen, new frames are ignored so the frames leading up to the freeze are not
+ * overwritten before they are dumped. Freezes nest: the ring records again once every
+ * {@link #freeze()} has been matched by an {@link #unfreeze()}, so a dump finishing early cannot
+ * thaw a ring that a later dump still needs. Freezing waits at most for one frame copy, and a
+ * dump only holds the lock while it copies the frames out, so neither waits for the disk nor
+ * makes recorders wait.
+ */
+public class FrameRingBuffer {
+
+    private final int frames;
+    private final int maxFrameBytes;
+    private final ByteBuffer data;
+    private final int[] lengths;
+    private final long[] timestamps;
+
+    // guarded by "this"
+    private long written;
+    private long oversized;
+    private final LongAdder ignoredWhileFrozen = new LongAdder();
+    // written under "this", read without it to skip frozen rings cheaply
+    private volatile int freezes;
+
+    /**
+     * @param frames Number of frames kept
+     * @param maxFrameBytes Size of one slot; larger frames are not recorded
+     */
+    public FrameRingBuffer(int frames, int maxFrameBytes) {
+        if (frames <= 0 || maxFrameBytes <= 0) {
+            throw new IllegalArgumentException("frames and maxFrameBytes must be positive");
+        }
+        if ((long) frames * maxFrameBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring buffer larger than 2 GB");
+        }
+        this.frames = frames;
+        this.maxFrameBytes = maxFrameBytes;
+        this.data = ByteBuffer.allocateDirect(frames * maxFrameBytes);
+        this.lengths = new int[frames];
+        this.timestamps = new long[frames];
+    }
+
+    /**
+     * Copies a frame into the ring, overwriting the oldest one when the ring is full.
+     *
+     * @return True if the frame was recorded
+     */
+    public boolean record(EncodedFrame frame) {
+        if (freezes > 0) {
+            ignoredWhileFrozen.increment();
+            return false;
+        }
+        synchronized (this) {
+            // the ring may have been frozen while waiting for the lock
+            if (freezes > 0) {
+                ignoredWhileFrozen.increment();
+                return false;
+            }
+            return copyIn(frame);
+        }
+    }
+
+    private boolean copyIn(EncodedFrame frame) {
+        int length = frame.getLength();
+        if (length > maxFrameBytes) {
+            oversized++;
+            return false;
+        }
+        int slot = (int) (written % frames);
+        data.position(slot * maxFrameBytes);
+        data.put(frame.getData(), 0, length);
+        lengths[slot] = length;
+        timestamps[slot] = frame.getTimestampMillis();
+        written++;
+        return true;
+    }
+
+    /**
+     * Stops recording until a matching {@link #unfreeze()}. No frame is recorded after this
+     * returns.
+     */
+    public synchronized void freeze() {
+        freezes++;
+    }
+
+    /**
+     * Undoes one {@link #freeze()}; the ring records again once all of them were undone.
+     */
+    public synchronized void unfreeze() {
+        if (freezes == 0) {
+            throw new IllegalStateException("Ring is not frozen");
+        }
+        freezes--;
+    }
+
+    public boolean isFrozen() {
+        return freezes > 0;
+    }
+
+    /**
+     * Writes the recorded frames to a folder, oldest first, as one file per frame named after
+     * its capture time. The frames are copied to the heap under the lock and written without
+     * it; the ring should be frozen so the frames copied are the ones before the freeze.
+     *
+     * @return Number of frames written
+     */
+    public int dumpTo(Path folder) throws IOException {
+        byte[][] copies;
+        long[] copyTimestamps;
+        long firstSequence;
+        synchronized (this) {
+            int count = (int) Math.min(written, frames);
+            copies = new byte[count][];
+            copyTimestamps = new long[count];
+            firstSequence = written - count;
+            ByteBuffer view = data.duplicate();
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((firstSequence + i) % frames);
+                view.limit(slot * maxFrameBytes + lengths[slot]).position(slot * maxFrameBytes);
+                copies[i] = new byte[lengths[slot]];
+                view.get(copies[i]);
+                copyTimestamps[i] = timestamps[slot];
+            }
+        }
+        Files.createDirectories(folder);
+        for (int i = 0; i < copies.length; i++) {
+            Path file = folder.resolve(String.format("%d-%06d.%s", copyTimestamps[i], firstSequence + i,
+                    extension(copies[i])));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(copies[i]);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        return copies.length;
+    }
+
+    /**
+     * Guesses the file extension from the first bytes of the frame.
+     */
+    private static String extension(byte[] frame) {
+        if (frame.length >= 2 && (frame[0] & 0xff) == 0xff && (frame[1] & 0xff) == 0xd8) {
+            return "jpg";
+        }
+        if (frame.length >= 4 && (frame[0] & 0xff) == 0x89 && frame[1] == 'P' && frame[2] == 'N' && frame[3] == 'G') {
+            return "png";
+        }
+        return "bin";
+    }
+
+    public int getCapacityBytes() {
+        return data.capacity();
+    }
+
+    /**
+     * @return Number of frames recorded since the ring was created
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return Number of frames skipped because they did not fit in a slot
+     */
+    public synchronized long getOversized() {
+        return oversized;
+    }
+
+    /**
+     * @return Number of frames skipped because the ring was frozen
+     */
+    public long getIgnoredWhileFrozen() {
+        return ignoredWhileFrozen.sum();
+    }
+}
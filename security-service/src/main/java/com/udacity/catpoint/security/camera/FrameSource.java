@@ -0,0 +1,18 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Produces encoded frames for one or more cameras, typically on a thread of its own.
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * Starts delivering frames. Must return promptly; frames are handed to the sink from
+     * the source's own thread until {@link #close()} is called.
+     *
+     * @param sink Receiver of new frames
+     */
+    void start(Consumer<EncodedFrame> sink);
+}
@@ -0,0 +1,66 @@
+package com.udacity.catpoint.security.camera;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded hand-off between pipeline stages that keeps at most one pending frame per camera.
+ * A newer frame replaces a pending older one instead of queueing behind it, so a slow
+ * consumer always works on the freshest frame and memory stays bounded by the number of
+ * cameras.
+ */
+class LatestFrameQueue<T> {
+
+    private final int maxCameras;
+    private final ConcurrentMap<String, AtomicReference<T>> slots = new ConcurrentHashMap<>();
+    // ids of cameras whose slot went from empty to filled; each camera appears at most once,
+    // so the queue is bounded by the number of slots
+    private final BlockingQueue<String> ready = new LinkedBlockingQueue<>();
+
+    LatestFrameQueue(int maxCameras) {
+        this.maxCameras = maxCameras;
+    }
+
+    /**
+     * Publishes a frame for a camera without blocking.
+     *
+     * @return The pending frame that was replaced and will never be consumed, the offered
+     * frame itself if the camera limit was reached, or null if nothing was dropped
+     */
+    T offer(String cameraId, T frame) {
+        AtomicReference<T> slot = slots.get(cameraId);
+        if (slot == null) {
+            if (slots.size() >= maxCameras) {
+                return frame;
+            }
+            slot = slots.computeIfAbsent(cameraId, id -> new AtomicReference<>());
+        }
+        T replaced = slot.getAndSet(frame);
+        if (replaced == null) {
+            ready.add(cameraId);
+        }
+        return replaced;
+    }
+
+    /**
+     * Waits for the next camera with a pending frame and takes that frame.
+     */
+    T take() throws InterruptedException {
+        while (true) {
+            T frame = slots.get(ready.take()).getAndSet(null);
+            if (frame != null) {
+                return frame;
+            }
+        }
+    }
+
+    /**
+     * @return Number of cameras that currently have a pending frame
+     */
+    int size() {
+        return ready.size();
+    }
+}
@@ -0,0 +1,95 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Frame source for a single camera that reads an MJPEG stream, either a raw concatenation of
+ * JPEG images or a multipart HTTP stream. Frames are cut at the JPEG start (FFD8) and end
+ * (FFD9) markers, so multipart boundaries and headers are skipped without parsing them.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(MjpegFrameSource.class);
+
+    private final String cameraId;
+    private final Callable<InputStream> streamOpener;
+
+    private volatile boolean closed;
+    private volatile InputStream stream;
+    private Thread readerThread;
+
+    /**
+     * @param cameraId Camera the stream belongs to
+     * @param streamOpener Opens the stream, e.g. {@code () -> Files.newInputStream(path)} or
+     * {@code () -> url.openStream()}
+     */
+    public MjpegFrameSource(String cameraId, Callable<InputStream> streamOpener) {
+        this.cameraId = cameraId;
+        this.streamOpener = streamOpener;
+    }
+
+    @Override
+    public void start(Consumer<EncodedFrame> sink) {
+        readerThread = new Thread(() -> read(sink), "mjpeg-" + cameraId);
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void read(Consumer<EncodedFrame> sink) {
+        try (InputStream in = new BufferedInputStream(streamOpener.call(), 64 * 1024)) {
+            stream = in;
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(256 * 1024);
+            boolean inFrame = false;
+            int previous = -1;
+            int current;
+            while (!closed && (current = in.read()) != -1) {
+                if (!inFrame) {
+                    if (previous == 0xFF && current == 0xD8) {
+                        inFrame = true;
+                        frame.reset();
+                        frame.write(0xFF);
+                        frame.write(0xD8);
+                    }
+                } else {
+                    frame.write(current);
+                    if (previous == 0xFF && current == 0xD9) {
+                        byte[] data = frame.toByteArray();
+                        sink.accept(new EncodedFrame(cameraId, data, data.length, System.currentTimeMillis()));
+                        inFrame = false;
+                        current = -1;
+                    } else if (frame.size() > MAX_FRAME_BYTES) {
+                        logger.warn("Discarding oversized frame from camera {}", cameraId);
+                        inFrame = false;
+                    }
+                }
+                previous = current;
+            }
+        } catch (Exception ex) {
+            if (!closed) {
+                logger.error("MJPEG stream of camera {} failed", cameraId, ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        InputStream in = stream;
+        if (in != null) {
+            in.close();
+        }
+        if (readerThread != null) {
+            readerThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+
+/**
+ * Keeps the last frames of every camera in a {@link FrameRingBuffer} and, when the system
+ * goes into {@link AlarmStatus#ALARM}, writes them to a new folder so the moments leading up
+ * to the alarm can be reviewed. Frames arriving while a dump is in progress are not recorded;
+ * when the alarm goes off again before the previous dump is written, the rings stay frozen
+ * until both dumps are done.
+ * <p>
+ * Memory use is bounded by {@code maxCameras * frames * maxFrameBytes} bytes of direct
+ * memory; frames from further cameras are not recorded.
+ */
+public class PreAlarmRecorder implements StatusListener, Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(PreAlarmRecorder.class);
+
+    private final Path dumpFolder;
+    private final int frames;
+    private final int maxFrameBytes;
+    private final int maxCameras;
+    private final Map<String, FrameRingBuffer> rings = new ConcurrentHashMap<>();
+    private final ExecutorService dumper;
+    // numbers the dump folders, as two alarms may go off within a millisecond
+    private final AtomicInteger alarms = new AtomicInteger();
+
+    private volatile AlarmStatus lastStatus = AlarmStatus.NO_ALARM;
+
+    /**
+     * @param dumpFolder Folder that receives one sub-folder per alarm
+     * @param frames Frames kept per camera
+     * @param maxFrameBytes Largest frame that is recorded
+     * @param maxCameras Maximum number of cameras recorded
+     */
+    public PreAlarmRecorder(Path dumpFolder, int frames, int maxFrameBytes, int maxCameras) {
+        this(dumpFolder, frames, maxFrameBytes, maxCameras,
+                Executors.newSingleThreadExecutor(new DaemonThreadFactory("pre-alarm-dump")));
+    }
+
+    /**
+     * @param dumper Executor writing the dumps, shut down by {@link #close()}
+     */
+    PreAlarmRecorder(Path dumpFolder, int frames, int maxFrameBytes, int maxCameras, ExecutorService dumper) {
+        this.dumpFolder = dumpFolder;
+        this.frames = frames;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxCameras = maxCameras;
+        this.dumper = dumper;
+    }
+
+    /**
+     * Creates a recorder from the camera.preAlarm.* keys of application.properties, or returns
+     * null if camera.preAlarm.dumpFolder is not set.
+     */
+    public static PreAlarmRecorder fromConfig() {
+        String folder = ConfigService.getString("camera.preAlarm.dumpFolder", "");
+        if (folder.isBlank()) {
+            return null;
+        }
+        return new PreAlarmRecorder(Path.of(folder),
+                ConfigService.getInt("camera.preAlarm.frames", 50),
+                ConfigService.getInt("camera.preAlarm.maxFrameBytes", 256 * 1024),
+                ConfigService.getInt("camera.maxCameras", 16));
+    }
+
+    /**
+     * Records a frame in its camera's ring. Safe to call from any thread.
+     */
+    public void record(EncodedFrame frame) {
+        FrameRingBuffer ring = rings.get(frame.getCameraId());
+        if (ring == null) {
+            if (rings.size() >= maxCameras) {
+                return;
+            }
+            ring = rings.computeIfAbsent(frame.getCameraId(), id -> new FrameRingBuffer(frames, maxFrameBytes));
+        }
+        ring.record(frame);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        AlarmStatus previous = lastStatus;
+        lastStatus = status;
+        if (status == AlarmStatus.ALARM && previous != AlarmStatus.ALARM) {
+            List<Map.Entry<String, FrameRingBuffer>> frozen = new ArrayList<>(rings.entrySet());
+            frozen.forEach(entry -> entry.getValue().freeze());
+            Path folder = dumpFolder.resolve(String.format("alarm-%s-%d",
+                    new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()), alarms.incrementAndGet()));
+            try {
+                dumper.execute(() -> dump(folder, frozen));
+            } catch (RejectedExecutionException ex) {
+                // closed, nothing will dump these frames
+                frozen.forEach(entry -> entry.getValue().unfreeze());
+            }
+        }
+    }
+
+    private void dump(Path folder, List<Map.Entry<String, FrameRingBuffer>> frozen) {
+        int total = 0;
+        for (Map.Entry<String, FrameRingBuffer> entry : frozen) {
+            try {
+                total += entry.getValue().dumpTo(folder.resolve(entry.getKey()));
+            } catch (IOException ex) {
+                logger.error("Unable to dump pre-alarm frames of camera {}", entry.getKey(), ex);
+            } finally {
+                entry.getValue().unfreeze();
+            }
+        }
+        logger.info("Dumped {} pre-alarm frames to {}", total, folder);
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        // only alarm transitions matter
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        // only alarm transitions matter
+    }
+
+    @Override
+    public void close() {
+        dumper.shutdown();
+    }
+}
@@ -0,0 +1,67 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Repository that keeps all state in memory and forgets it when the process ends. Useful for
+ * running many short-lived or disposable instances on one host without them sharing user
+ * preferences.
+ * <p>
+ * Safe for concurrent use: writers are serialized, while readers iterate the sensors without
+ * locking and see a weakly consistent view.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private final Set<Sensor> sensors = new ConcurrentSkipListSet<>();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        // re-inserted to keep the order; a sensor removed in the meantime stays removed
+        if (sensors.remove(sensor)) {
+            sensors.add(sensor);
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public void loadPreferences() {
+        // nothing is persisted
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
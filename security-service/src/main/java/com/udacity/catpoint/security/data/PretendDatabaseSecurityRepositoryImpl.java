@@ -2,32 +2,68 @@ package com.udacity.catpoint.security.data;
 
 import java.lang.reflect.Type;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.prefs.Preferences;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.udacity.catpoint.security.jfr.RepositoryWriteEvent;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ * <p>
+ * The latency of every write is recorded in the repository.write.* histograms and the
+ * characters written in repository.bytesWritten; the values are ASCII, so characters and
+ * bytes are the same.
+ * <p>
+ * Safe for concurrent use: each change and the write of its new state happen together under a
+ * lock, so the stored state always matches the latest change. The lock is a ReentrantLock rather
+ * than a monitor because writing preferences blocks, and a virtual thread blocking while it
+ * holds a monitor pins its carrier thread. Readers iterate the sensors without locking and see
+ * a weakly consistent view.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository {
 
-    private Set<Sensor> sensors;
-    private AlarmStatus alarmStatus;
-    private ArmingStatus armingStatus;
+    private volatile Set<Sensor> sensors;
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
 
     // Preference keys for storing data in user preferences
     private static final String SENSORS = "SENSORS";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
-    private static Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+    private final Preferences prefs;
+    private final ReentrantLock writeLock = new ReentrantLock();
     private static Gson gson = new Gson(); // Used to serialize objects into JSON
 
+    private static final LatencyHistogram SENSORS_WRITE = MetricsRegistry.getDefault().histogram("repository.write.sensors");
+    private static final LatencyHistogram ALARM_STATUS_WRITE = MetricsRegistry.getDefault().histogram("repository.write.alarmStatus");
+    private static final LatencyHistogram ARMING_STATUS_WRITE = MetricsRegistry.getDefault().histogram("repository.write.armingStatus");
+    private static final LongAdder BYTES_WRITTEN = MetricsRegistry.getDefault().counter("repository.bytesWritten");
+
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * Stores the state in a child node of the default preferences node, so several instances
+     * on one host can keep separate state.
+     *
+     * @param nodeName Name of the child node
+     */
+    public PretendDatabaseSecurityRepositoryImpl(String nodeName) {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(nodeName));
+    }
+
+    private PretendDatabaseSecurityRepositoryImpl(Preferences prefs) {
+        this.prefs = prefs;
         // Load system state from prefs, or use default values
         loadPreferences();
     }
@@ -36,52 +72,98 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
      * Helper method to save the current sensors set to preferences.
      */
     private void saveSensors() {
-        prefs.put(SENSORS, gson.toJson(sensors));
+        long start = System.nanoTime();
+        put(SENSORS, gson.toJson(sensors));
+        SENSORS_WRITE.recordSince(start);
     }
 
     /**
      * Helper method to save the current alarm status to preferences.
      */
     private void saveAlarmStatus() {
-        prefs.put(ALARM_STATUS, alarmStatus.toString());
+        long start = System.nanoTime();
+        put(ALARM_STATUS, alarmStatus.toString());
+        ALARM_STATUS_WRITE.recordSince(start);
     }
 
     /**
      * Helper method to save the current arming status to preferences.
      */
     private void saveArmingStatus() {
-        prefs.put(ARMING_STATUS, armingStatus.toString());
+        long start = System.nanoTime();
+        put(ARMING_STATUS, armingStatus.toString());
+        ARMING_STATUS_WRITE.recordSince(start);
+    }
+
+    private void put(String key, String value) {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        prefs.put(key, value);
+        int bytes = key.length() + value.length();
+        BYTES_WRITTEN.add(bytes);
+        if (event.shouldCommit()) {
+            event.key = key;
+            event.bytes = bytes;
+            event.commit();
+        }
     }
 
     @Override
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        saveSensors(); // Save the updated sensors set to preferences
+        writeLock.lock();
+        try {
+            sensors.add(sensor);
+            saveSensors(); // Save the updated sensors set to preferences
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        saveSensors(); // Save the updated sensors set to preferences
+        writeLock.lock();
+        try {
+            sensors.remove(sensor);
+            saveSensors(); // Save the updated sensors set to preferences
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);  // Remove the old sensor if exists
-        sensors.add(sensor);     // Add the updated sensor
-        saveSensors();           // Save the updated sensors set to preferences
+        writeLock.lock();
+        try {
+            // Re-insert the sensor to keep the order; a sensor removed in the meantime stays removed
+            if (sensors.remove(sensor)) {
+                sensors.add(sensor);
+                saveSensors();       // Save the updated sensors set to preferences
+            }
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void setAlarmStatus(AlarmStatus alarmStatus) {
-        this.alarmStatus = alarmStatus;
-        saveAlarmStatus(); // Save the updated alarm status
+        writeLock.lock();
+        try {
+            this.alarmStatus = alarmStatus;
+            saveAlarmStatus(); // Save the updated alarm status
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void setArmingStatus(ArmingStatus armingStatus) {
-        this.armingStatus = armingStatus;
-        saveArmingStatus(); // Save the updated arming status
+        writeLock.lock();
+        try {
+            this.armingStatus = armingStatus;
+            saveArmingStatus(); // Save the updated arming status
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
@@ -104,17 +186,23 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
      */
     @Override
     public void loadPreferences() {
-        // Load alarm and arming status
-        alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
-        armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
-
-        // Load sensor list from preferences, or initialize an empty set
-        String sensorString = prefs.get(SENSORS, null);
-        if (sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>() {}.getType();
-            sensors = gson.fromJson(sensorString, type);
+        writeLock.lock();
+        try {
+            // Load alarm and arming status
+            alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
+            armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
+
+            // Load sensor list from preferences, or initialize an empty set
+            String sensorString = prefs.get(SENSORS, null);
+            if (sensorString == null) {
+                sensors = new ConcurrentSkipListSet<>();
+            } else {
+                Type type = new TypeToken<Set<Sensor>>() {}.getType();
+                Set<Sensor> stored = gson.fromJson(sensorString, type);
+                sensors = new ConcurrentSkipListSet<>(stored);
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 }
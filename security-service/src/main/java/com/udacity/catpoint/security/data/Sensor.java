@@ -1,6 +1,5 @@
 package com.udacity.catpoint.security.data;
 
-import java.util.Objects;
 import java.util.UUID;
 
 import com.google.common.collect.ComparisonChain;
@@ -42,7 +41,7 @@ public class Sensor implements Comparable<Sensor> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);  // Generate hashCode based on the unique sensorId
+        return sensorId.hashCode();  // Generate hashCode based on the unique sensorId
     }
 
     public String getName() {
@@ -0,0 +1,28 @@
+package com.udacity.catpoint.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by SecurityService.setAlarmStatus. The duration covers persisting the status and
+ * notifying all listeners.
+ */
+@Name("com.udacity.catpoint.AlarmStatus")
+@Label("Alarm Status Change")
+@Category({"Catpoint", "Security"})
+@Description("Alarm status set by the security service")
+public class AlarmStatusEvent extends Event {
+
+    @Label("Previous Status")
+    public String previousStatus;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Listeners")
+    @Description("Number of status listeners notified")
+    public int listeners;
+}
@@ -0,0 +1,31 @@
+package com.udacity.catpoint.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by SecurityService.setArmingStatus. The duration includes resetting all sensors
+ * when the system is armed.
+ */
+@Name("com.udacity.catpoint.ArmingStatus")
+@Label("Arming Status Change")
+@Category({"Catpoint", "Security"})
+@Description("Arming status set by the user or a command")
+public class ArmingStatusEvent extends Event {
+
+    @Label("Previous Status")
+    public String previousStatus;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Alarm Status")
+    @Description("Alarm status after the change")
+    public String alarmStatus;
+
+    @Label("Sensors")
+    public int sensors;
+}
@@ -0,0 +1,85 @@
+package com.udacity.catpoint.security.jfr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.service.ConfigService;
+
+/**
+ * Starts a flight recording with the catpoint.jfc settings from the classpath, for hosts
+ * where the JVM options cannot be changed. Settings:
+ * <ul>
+ * <li>jfr.continuous - true to record (default false)</li>
+ * <li>jfr.maxAgeMinutes - how much history the recording keeps (default 30)</li>
+ * <li>jfr.dumpFile - file the recording is written to when the JVM exits (default
+ * catpoint.jfr in the working directory)</li>
+ * </ul>
+ * A snapshot can be taken at any time with jcmd &lt;pid&gt; JFR.dump name=catpoint.
+ */
+public final class ContinuousRecording {
+
+    public static final String SETTINGS = "catpoint.jfc";
+    public static final String RECORDING_NAME = "catpoint";
+
+    private static final Logger logger = LoggerFactory.getLogger(ContinuousRecording.class);
+
+    private ContinuousRecording() {
+    }
+
+    /**
+     * Starts the recording if jfr.continuous is set. Failures are logged and leave the
+     * application running without a recording.
+     *
+     * @return The running recording, or null
+     */
+    public static Recording startFromConfig() {
+        if (!ConfigService.getBoolean("jfr.continuous", false)) {
+            return null;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("Flight recorder is not available in this JVM");
+            return null;
+        }
+        try {
+            Recording recording = new Recording(loadSettings());
+            recording.setName(RECORDING_NAME);
+            recording.setToDisk(true);
+            recording.setMaxAge(Duration.ofMinutes(ConfigService.getLong("jfr.maxAgeMinutes", 30)));
+            recording.setDumpOnExit(true);
+            recording.setDestination(Path.of(ConfigService.getString("jfr.dumpFile", "catpoint.jfr")));
+            recording.start();
+            logger.info("Flight recording '{}' started", RECORDING_NAME);
+            return recording;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException ex) {
+            logger.warn("Unable to start flight recording", ex);
+            return null;
+        }
+    }
+
+    /**
+     * @return The catpoint.jfc settings
+     */
+    public static Configuration loadSettings() throws IOException, ParseException {
+        try (InputStream in = ContinuousRecording.class.getClassLoader().getResourceAsStream(SETTINGS)) {
+            if (in == null) {
+                throw new IOException(SETTINGS + " not found on the classpath");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        }
+    }
+}
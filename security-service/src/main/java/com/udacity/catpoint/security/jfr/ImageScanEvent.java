@@ -0,0 +1,43 @@
+package com.udacity.catpoint.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by SecurityService.processImage for every image it sends to an image service.
+ * The duration covers the image service call only.
+ */
+@Name("com.udacity.catpoint.ImageScan")
+@Label("Image Scan")
+@Category({"Catpoint", "Image"})
+@Description("Camera image analyzed for cats")
+public class ImageScanEvent extends Event {
+
+    @Label("Camera")
+    public String camera;
+
+    @Label("Image Service")
+    @Description("Service that classified the image, without wrappers such as metrics")
+    public Class<?> imageService;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Labels")
+    @Description("Number of labels detected")
+    public int labels;
+
+    @Label("Cat Confidence")
+    @Description("Highest confidence of a cat label in percent")
+    public float catConfidence;
+
+    @Label("Cat")
+    @Description("True if the image counts as showing a cat")
+    public boolean cat;
+}
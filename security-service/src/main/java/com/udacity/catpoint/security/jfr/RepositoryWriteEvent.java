@@ -0,0 +1,26 @@
+package com.udacity.catpoint.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by PretendDatabaseSecurityRepositoryImpl for every value it writes to the user
+ * preferences. The duration covers storing the already serialized value.
+ */
+@Name("com.udacity.catpoint.RepositoryWrite")
+@Label("Repository Write")
+@Category({"Catpoint", "Persistence"})
+@Description("Security state written to user preferences")
+public class RepositoryWriteEvent extends Event {
+
+    @Label("Key")
+    public String key;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytes;
+}
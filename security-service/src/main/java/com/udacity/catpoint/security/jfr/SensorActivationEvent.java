@@ -0,0 +1,35 @@
+package com.udacity.catpoint.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted by SecurityService.changeSensorActivationStatus.
+ */
+@Name("com.udacity.catpoint.SensorActivation")
+@Label("Sensor Activation Change")
+@Category({"Catpoint", "Security"})
+@Description("Sensor activated or deactivated")
+public class SensorActivationEvent extends Event {
+
+    @Label("Sensor Id")
+    public String sensorId;
+
+    @Label("Sensor Name")
+    public String sensorName;
+
+    @Label("Previously Active")
+    public boolean previouslyActive;
+
+    @Label("Active")
+    public boolean active;
+
+    @Label("Previous Alarm Status")
+    public String previousAlarmStatus;
+
+    @Label("Alarm Status")
+    public String alarmStatus;
+}
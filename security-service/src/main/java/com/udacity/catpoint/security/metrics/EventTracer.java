@@ -0,0 +1,238 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.service.ConfigService;
+
+/**
+ * Follows each event through SecurityService, from the moment it enters until every
+ * listener has been told about the resulting state, and records how long each stage took:
+ * <ul>
+ * <li>trace.&lt;event&gt;.total - the whole event</li>
+ * <li>trace.&lt;event&gt;.detect - the image service call, for images</li>
+ * <li>trace.&lt;event&gt;.persist - repository writes</li>
+ * <li>trace.&lt;event&gt;.listeners - listener notifications</li>
+ * <li>trace.&lt;event&gt;.evaluate - everything else, i.e. deciding on the new state</li>
+ * <li>trace.listener.&lt;class&gt; - each notification, per listener class</li>
+ * </ul>
+ * Events slower than trace.slowMillis are logged with their breakdown. Events started while
+ * another one is traced on the same thread, like the sensor resets of an arming change, are
+ * part of the outer event.
+ * <p>
+ * State is kept per thread and reused, so tracing allocates nothing per event. With
+ * trace.enabled=false every method returns immediately.
+ */
+public class EventTracer {
+
+    /**
+     * Kinds of events entering SecurityService.
+     */
+    public enum EventType {
+        SENSOR, IMAGE, ARMING;
+
+        final String metricName = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(EventTracer.class);
+
+    private final boolean enabled;
+    private final long slowNanos;
+    private final ThreadLocal<Trace> traces = ThreadLocal.withInitial(Trace::new);
+
+    // histograms indexed by event type ordinal
+    private final LatencyHistogram[] total;
+    private final LatencyHistogram[] detect;
+    private final LatencyHistogram[] evaluate;
+    private final LatencyHistogram[] persist;
+    private final LatencyHistogram[] listeners;
+    private final ClassValue<LatencyHistogram> listenerHistograms;
+
+    /**
+     * @param metrics Registry receiving the trace.* histograms
+     * @param enabled False to record nothing
+     * @param slowMillis Events taking longer are logged, negative to log none
+     */
+    public EventTracer(MetricsRegistry metrics, boolean enabled, long slowMillis) {
+        this.enabled = enabled;
+        this.slowNanos = slowMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(slowMillis);
+        EventType[] types = EventType.values();
+        total = new LatencyHistogram[types.length];
+        detect = new LatencyHistogram[types.length];
+        evaluate = new LatencyHistogram[types.length];
+        persist = new LatencyHistogram[types.length];
+        listeners = new LatencyHistogram[types.length];
+        for (EventType type : types) {
+            String prefix = "trace." + type.metricName + ".";
+            total[type.ordinal()] = metrics.histogram(prefix + "total");
+            evaluate[type.ordinal()] = metrics.histogram(prefix + "evaluate");
+            persist[type.ordinal()] = metrics.histogram(prefix + "persist");
+            listeners[type.ordinal()] = metrics.histogram(prefix + "listeners");
+            if (type == EventType.IMAGE) {
+                detect[type.ordinal()] = metrics.histogram(prefix + "detect");
+            }
+        }
+        listenerHistograms = new ClassValue<>() {
+            @Override
+            protected LatencyHistogram computeValue(Class<?> type) {
+                return metrics.histogram("trace.listener." + listenerName(type));
+            }
+        };
+    }
+
+    /**
+     * Creates a tracer configured by trace.enabled (default true) and trace.slowMillis
+     * (default 100).
+     */
+    public static EventTracer fromConfig(MetricsRegistry metrics) {
+        return new EventTracer(metrics, ConfigService.getBoolean("trace.enabled", true),
+                ConfigService.getLong("trace.slowMillis", 100));
+    }
+
+    /**
+     * Starts tracing an event on this thread, unless one is already being traced. Every call
+     * must be followed by {@link #end()}, typically in a finally block.
+     */
+    public void begin(EventType type) {
+        if (!enabled) {
+            return;
+        }
+        Trace trace = traces.get();
+        if (trace.depth++ == 0) {
+            trace.start(type, System.nanoTime());
+        }
+    }
+
+    /**
+     * Ends the event started by the matching {@link #begin}, recording it if it is the
+     * outermost one.
+     */
+    public void end() {
+        if (!enabled) {
+            return;
+        }
+        Trace trace = traces.get();
+        if (trace.depth == 0 || --trace.depth > 0) {
+            return;
+        }
+        long totalNanos = System.nanoTime() - trace.startNanos;
+        int type = trace.type.ordinal();
+        total[type].record(totalNanos);
+        persist[type].record(trace.persistNanos);
+        listeners[type].record(trace.listenerNanos);
+        evaluate[type].record(totalNanos - trace.detectNanos - trace.persistNanos - trace.listenerNanos);
+        if (detect[type] != null) {
+            detect[type].record(trace.detectNanos);
+        }
+        if (totalNanos > slowNanos) {
+            logSlowEvent(trace, totalNanos);
+        }
+    }
+
+    /**
+     * Adds the time since detectStart to the current event's detect stage.
+     */
+    public void detected(long detectStart) {
+        Trace trace = current();
+        if (trace != null) {
+            trace.detectNanos += System.nanoTime() - detectStart;
+        }
+    }
+
+    /**
+     * Adds the time since persistStart to the current event's persist stage.
+     */
+    public void persisted(long persistStart) {
+        Trace trace = current();
+        if (trace != null) {
+            trace.persistNanos += System.nanoTime() - persistStart;
+        }
+    }
+
+    /**
+     * Records one listener notification that started at notifyStart.
+     */
+    public void listenerNotified(Object listener, long notifyStart) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - notifyStart;
+        listenerHistograms.get(listener.getClass()).record(nanos);
+        Trace trace = current();
+        if (trace != null) {
+            trace.listenerNanos += nanos;
+            if (nanos > trace.slowestListenerNanos) {
+                trace.slowestListenerNanos = nanos;
+                trace.slowestListener = listener.getClass();
+            }
+        }
+    }
+
+    /**
+     * Notes the alarm status the current event led to, for the slow-event log.
+     */
+    public void alarmStatusChanged(AlarmStatus status) {
+        Trace trace = current();
+        if (trace != null) {
+            trace.alarmStatus = status;
+        }
+    }
+
+    private Trace current() {
+        if (!enabled) {
+            return null;
+        }
+        Trace trace = traces.get();
+        return trace.depth > 0 ? trace : null;
+    }
+
+    private void logSlowEvent(Trace trace, long totalNanos) {
+        logger.warn("Slow {} event: {} ms (detect {} ms, evaluate {} ms, persist {} ms, listeners {} ms{}), alarm {}",
+                trace.type.metricName, millis(totalNanos), millis(trace.detectNanos),
+                millis(totalNanos - trace.detectNanos - trace.persistNanos - trace.listenerNanos),
+                millis(trace.persistNanos), millis(trace.listenerNanos),
+                trace.slowestListener == null ? ""
+                        : ", slowest " + listenerName(trace.slowestListener) + " " + millis(trace.slowestListenerNanos) + " ms",
+                trace.alarmStatus == null ? "unchanged" : trace.alarmStatus);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String listenerName(Class<?> type) {
+        String name = type.getSimpleName();
+        return name.isEmpty() ? type.getName().substring(type.getName().lastIndexOf('.') + 1) : name;
+    }
+
+    /**
+     * Stage times of the event being traced on one thread.
+     */
+    private static final class Trace {
+
+        int depth;
+        EventType type;
+        long startNanos;
+        long detectNanos;
+        long persistNanos;
+        long listenerNanos;
+        long slowestListenerNanos;
+        Class<?> slowestListener;
+        AlarmStatus alarmStatus;
+
+        void start(EventType type, long startNanos) {
+            this.type = type;
+            this.startNanos = startNanos;
+            detectNanos = 0;
+            persistNanos = 0;
+            listenerNanos = 0;
+            slowestListenerNanos = 0;
+            slowestListener = null;
+            alarmStatus = null;
+        }
+    }
+}
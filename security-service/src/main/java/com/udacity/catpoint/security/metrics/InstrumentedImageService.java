@@ -0,0 +1,72 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+
+/**
+ * Records the latency of every call to the wrapped image service in the histogram
+ * image.&lt;name&gt;.detect, and counts calls that failed in image.&lt;name&gt;.errors.
+ */
+public class InstrumentedImageService implements IService, Closeable {
+
+    private final IService delegate;
+    private final LatencyHistogram latency;
+    private final LongAdder errors;
+
+    /**
+     * @param delegate Service doing the actual work
+     * @param name Name of the service in the metrics, e.g. "aws"
+     * @param registry Registry to record in
+     */
+    public InstrumentedImageService(IService delegate, String name, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.latency = registry.histogram("image." + name + ".detect");
+        this.errors = registry.counter("image." + name + ".errors");
+    }
+
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        long start = System.nanoTime();
+        try {
+            return delegate.detect(image);
+        } catch (RuntimeException ex) {
+            errors.increment();
+            throw ex;
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    @Override
+    public IService unwrap() {
+        return delegate.unwrap();
+    }
+
+    /**
+     * Closes the wrapped service if it is closeable.
+     *
+     * @throws IOException If the wrapped service failed to close; checked exceptions other than
+     * IOException are wrapped
+     */
+    @Override
+    public void close() throws IOException {
+        if (!(delegate instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) delegate).close();
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Unable to close image service", ex);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Read-only view of a {@link MetricsRegistry} for JMX. The attribute list is rebuilt on every
+ * request, so metrics created after registration show up too. The only operation, reset,
+ * clears the histograms; counters keep counting since the start of the process.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String RESET = "resetHistograms";
+
+    private static final Map<String, Function<LatencyHistogram, Object>> HISTOGRAM_ATTRIBUTES = Map.of(
+            "count", LatencyHistogram::getCount,
+            "meanMicros", histogram -> histogram.getMeanNanos() / 1_000.0,
+            "p50Micros", histogram -> histogram.percentileNanos(0.50) / 1_000.0,
+            "p99Micros", histogram -> histogram.percentileNanos(0.99) / 1_000.0,
+            "p999Micros", histogram -> histogram.percentileNanos(0.999) / 1_000.0,
+            "maxMicros", histogram -> histogram.getMaxNanos() / 1_000.0);
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = registry.getCounters().get(attribute);
+        if (counter != null) {
+            return counter.sum();
+        }
+        LongSupplier gauge = registry.getGauges().get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        if (dot > 0) {
+            LatencyHistogram histogram = registry.getHistograms().get(attribute.substring(0, dot));
+            Function<LatencyHistogram, Object> value = HISTOGRAM_ATTRIBUTES.get(attribute.substring(dot + 1));
+            if (histogram != null && value != null) {
+                return value.apply(histogram);
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException ex) {
+                // JMX convention: unknown attributes are left out of the result
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (!RESET.equals(actionName)) {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+        registry.getHistograms().values().forEach(LatencyHistogram::reset);
+        return null;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        new TreeMap<>(registry.getCounters()).keySet().forEach(name -> attributes.add(
+                new MBeanAttributeInfo(name, "long", "Counter " + name, true, false, false)));
+        new TreeMap<>(registry.getGauges()).keySet().forEach(name -> attributes.add(
+                new MBeanAttributeInfo(name, "long", "Gauge " + name, true, false, false)));
+        new TreeMap<>(registry.getHistograms()).keySet().forEach(name ->
+                new TreeMap<>(HISTOGRAM_ATTRIBUTES).keySet().forEach(suffix -> attributes.add(
+                        new MBeanAttributeInfo(name + "." + suffix, "count".equals(suffix) ? "long" : "double",
+                                "Histogram " + name + " " + suffix, true, false, false))));
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Clears all latency histograms",
+                null, "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(MetricsRegistry.class.getName(), "Catpoint metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named counters, gauges and latency histograms of the running system. Components look up their
+ * metrics once and keep the references, so recording costs a striped increment and never
+ * touches the registry's maps.
+ * <p>
+ * {@link #registerMBean()} publishes everything as attributes of one platform MBean,
+ * "com.udacity.catpoint:type=Metrics", which jconsole, VisualVM or any JMX client can read
+ * without further setup. Counters and gauges appear under their name; each histogram appears as
+ * name.count, name.meanMicros, name.p50Micros, name.p99Micros, name.p999Micros and
+ * name.maxMicros.
+ */
+public class MetricsRegistry {
+
+    public static final String OBJECT_NAME = "com.udacity.catpoint:type=Metrics";
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @return The registry shared by all components of this process
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The counter of that name, created on first use
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, ignored -> new LongAdder());
+    }
+
+    /**
+     * @return The histogram of that name, created on first use
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, ignored -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a value that is read whenever the metric is, such as the depth of a queue,
+     * replacing an earlier gauge of that name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    Map<String, LongAdder> getCounters() {
+        return counters;
+    }
+
+    Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+
+    Map<String, LongSupplier> getGauges() {
+        return gauges;
+    }
+
+    /**
+     * Publishes this registry with the platform MBean server, replacing an earlier
+     * registration. Failures are logged; metrics are never worth failing startup for.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new MetricsMBean(this), name);
+        } catch (JMException | SecurityException ex) {
+            logger.warn("Unable to register metrics MBean", ex);
+        }
+    }
+}
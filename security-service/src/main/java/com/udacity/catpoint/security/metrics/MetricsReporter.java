@@ -0,0 +1,75 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+
+/**
+ * Periodically logs count, p50, p99, p99.9 and maximum of every histogram whose name starts
+ * with a prefix. Values are cumulative since the start of the process or the last reset
+ * through JMX.
+ */
+public class MetricsReporter implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final MetricsRegistry registry;
+    private final String prefix;
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("metrics-report"));
+
+    /**
+     * @param registry Registry holding the histograms
+     * @param prefix Prefix of the histograms to report, e.g. "trace."
+     * @param intervalSeconds Seconds between two reports
+     */
+    public MetricsReporter(MetricsRegistry registry, String prefix, long intervalSeconds) {
+        this.registry = registry;
+        this.prefix = prefix;
+        executor.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts reporting the trace.* histograms every trace.reportSeconds seconds.
+     *
+     * @return The reporter, or null if trace.reportSeconds is not positive
+     */
+    public static MetricsReporter fromConfig(MetricsRegistry registry) {
+        long seconds = ConfigService.getLong("trace.reportSeconds", 0);
+        return seconds > 0 ? new MetricsReporter(registry, "trace.", seconds) : null;
+    }
+
+    /**
+     * Logs one line per histogram that recorded anything.
+     */
+    public void report() {
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(registry.getHistograms()).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (!entry.getKey().startsWith(prefix) || histogram.getCount() == 0) {
+                continue;
+            }
+            logger.info("{} n={} p50={} p99={} p99.9={} max={} ms", entry.getKey(), histogram.getCount(),
+                    millis(histogram.percentileNanos(0.50)), millis(histogram.percentileNanos(0.99)),
+                    millis(histogram.percentileNanos(0.999)), millis(histogram.getMaxNanos()));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
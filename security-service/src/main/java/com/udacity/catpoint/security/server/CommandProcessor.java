@@ -0,0 +1,137 @@
+package com.udacity.catpoint.security.server;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Text command protocol of the headless server. Each command is one line; the reply is one
+ * or more lines, the first starting with "OK" or "ERROR".
+ * <pre>
+ * status                              alarm, arming and cat state, sensor counts
+ * arm home|away                       arm the system
+ * disarm                              disarm the system
+ * sensors                             list sensors as id, name, type, state
+ * sensor add &lt;name&gt; &lt;type&gt;            add a sensor (DOOR, WINDOW, MOTION)
+ * sensor remove &lt;name|id&gt;             remove a sensor
+ * sensor activate|deactivate &lt;name|id&gt; change a sensor's state
+ * help                                this list
+ * quit                                end the session (handled by the caller)
+ * </pre>
+ * Commands are serialized so each reply describes the state its command left behind. They
+ * hold a ReentrantLock rather than a monitor while writing to the repository, so sessions on
+ * virtual threads do not pin their carrier threads.
+ */
+public class CommandProcessor {
+
+    static final String HELP = String.join("\n",
+            "OK commands:",
+            "status",
+            "arm home|away",
+            "disarm",
+            "sensors",
+            "sensor add <name> <DOOR|WINDOW|MOTION>",
+            "sensor remove <name|id>",
+            "sensor activate|deactivate <name|id>",
+            "quit");
+
+    private final SecurityService securityService;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public CommandProcessor(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    /**
+     * Executes one command line and returns the reply.
+     */
+    public String execute(String line) {
+        String[] words = line.trim().split("\\s+");
+        lock.lock();
+        try {
+            switch (words[0].toLowerCase(Locale.ROOT)) {
+                case "status":
+                    return status();
+                case "arm":
+                    requireWords(words, 2);
+                    securityService.setArmingStatus(ArmingStatus.valueOf("ARMED_" + words[1].toUpperCase(Locale.ROOT)));
+                    return status();
+                case "disarm":
+                    securityService.setArmingStatus(ArmingStatus.DISARMED);
+                    return status();
+                case "sensors":
+                    return "OK " + securityService.getSensors().size() + " sensors"
+                            + securityService.getSensors().stream()
+                                    .sorted()
+                                    .map(sensor -> "\n" + describe(sensor))
+                                    .collect(Collectors.joining());
+                case "sensor":
+                    return sensor(words);
+                case "help":
+                    return HELP;
+                default:
+                    return "ERROR unknown command '" + words[0] + "', try help";
+            }
+        } catch (IllegalArgumentException ex) {
+            return "ERROR " + ex.getMessage();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String sensor(String[] words) {
+        requireWords(words, 3);
+        String action = words[1].toLowerCase(Locale.ROOT);
+        if ("add".equals(action)) {
+            requireWords(words, 4);
+            Sensor sensor = new Sensor(words[2], SensorType.valueOf(words[3].toUpperCase(Locale.ROOT)));
+            securityService.addSensor(sensor);
+            return "OK " + describe(sensor);
+        }
+        Sensor sensor = findSensor(words[2])
+                .orElseThrow(() -> new IllegalArgumentException("no sensor " + words[2]));
+        switch (action) {
+            case "remove":
+                securityService.removeSensor(sensor);
+                return "OK removed " + sensor.getSensorId();
+            case "activate":
+                securityService.changeSensorActivationStatus(sensor, true);
+                return status();
+            case "deactivate":
+                securityService.changeSensorActivationStatus(sensor, false);
+                return status();
+            default:
+                throw new IllegalArgumentException("unknown sensor action " + words[1]);
+        }
+    }
+
+    private Optional<Sensor> findSensor(String nameOrId) {
+        return securityService.getSensors().stream()
+                .filter(sensor -> sensor.getSensorId().toString().equals(nameOrId) || sensor.getName().equals(nameOrId))
+                .findFirst();
+    }
+
+    private String status() {
+        long active = securityService.getSensors().stream().filter(Sensor::getActive).count();
+        return String.format("OK alarm=%s arming=%s cat=%b sensors=%d active=%d",
+                securityService.getAlarmStatus(), securityService.getArmingStatus(),
+                securityService.isCatDetected(), securityService.getSensors().size(), active);
+    }
+
+    private static String describe(Sensor sensor) {
+        return String.format("%s %s %s %s", sensor.getSensorId(), sensor.getName(), sensor.getSensorType(),
+                sensor.getActive() ? "active" : "inactive");
+    }
+
+    private static void requireWords(String[] words, int count) {
+        if (words.length < count) {
+            throw new IllegalArgumentException("missing arguments, try help");
+        }
+    }
+}
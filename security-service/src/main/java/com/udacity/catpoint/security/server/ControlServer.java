@@ -0,0 +1,145 @@
+package com.udacity.catpoint.security.server;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+import com.udacity.catpoint.security.service.ExecutionMode;
+
+/**
+ * Serves the {@link CommandProcessor} protocol on a loopback TCP port, one thread per
+ * connection. Only local processes can connect.
+ * <p>
+ * In the VIRTUAL {@link ExecutionMode} the sessions run on virtual threads, so idle sessions
+ * blocked reading their socket tie up no platform thread. A semaphore limits the sessions
+ * open at once; connections over the limit get an ERROR reply and are closed.
+ */
+public class ControlServer implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(ControlServer.class);
+
+    private final CommandProcessor commandProcessor;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Semaphore sessions;
+
+    /**
+     * Binds the server on platform threads without a session limit; call {@link #start()} to
+     * accept connections.
+     *
+     * @param commandProcessor Processor executing the commands
+     * @param port Loopback port, or 0 for any free port
+     */
+    public ControlServer(CommandProcessor commandProcessor, int port) throws IOException {
+        this(commandProcessor, port, ExecutionMode.DIRECT, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Binds the server; call {@link #start()} to accept connections.
+     *
+     * @param commandProcessor Processor executing the commands
+     * @param port Loopback port, or 0 for any free port
+     * @param mode Execution mode choosing the threads of the sessions
+     * @param maxSessions Sessions open at once
+     */
+    public ControlServer(CommandProcessor commandProcessor, int port, ExecutionMode mode, int maxSessions)
+            throws IOException {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("maxSessions must be positive");
+        }
+        this.commandProcessor = commandProcessor;
+        this.connections = mode.isThreadPerTask()
+                ? mode.newThreadPerTaskExecutor("control")
+                : Executors.newCachedThreadPool(new DaemonThreadFactory("control"));
+        this.sessions = new Semaphore(maxSessions);
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void start() {
+        connections.execute(this::acceptLoop);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (sessions.tryAcquire()) {
+                    connections.execute(() -> serve(socket));
+                } else {
+                    reject(socket);
+                }
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Control connection failed", ex);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            runSession(commandProcessor, in, out);
+        } catch (IOException ex) {
+            logger.debug("Control connection closed", ex);
+        } finally {
+            sessions.release();
+        }
+    }
+
+    private void reject(Socket socket) {
+        try (socket; Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("ERROR too many sessions\n\n");
+        } catch (IOException ex) {
+            logger.debug("Unable to reject control connection", ex);
+        }
+        logger.warn("Rejected control connection, all sessions in use");
+    }
+
+    /**
+     * Reads commands until "quit" or the end of input, writing each reply followed by a blank
+     * line so clients can tell where a multi-line reply ends.
+     */
+    static void runSession(CommandProcessor commandProcessor, BufferedReader in, Writer out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if ("quit".equalsIgnoreCase(line.trim())) {
+                out.write("OK bye\n\n");
+                out.flush();
+                return;
+            }
+            out.write(commandProcessor.execute(line));
+            out.write("\n\n");
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
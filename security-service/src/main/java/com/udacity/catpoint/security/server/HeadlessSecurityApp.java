@@ -0,0 +1,166 @@
+package com.udacity.catpoint.security.server;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.camera.DropFolderFrameSource;
+import com.udacity.catpoint.security.camera.FrameIngestionPipeline;
+import com.udacity.catpoint.security.camera.PreAlarmRecorder;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.jfr.ContinuousRecording;
+import com.udacity.catpoint.security.metrics.InstrumentedImageService;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.metrics.MetricsReporter;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.ExecutionMode;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Runs the security system without a user interface. Wires the repository, image service
+ * and SecurityService like {@code CatpointGui} does but never touches Swing, so it starts
+ * quickly, needs no display and several instances fit on one host.
+ * <p>
+ * Commands of the {@link CommandProcessor} protocol are read from standard input and, if
+ * server.controlPort is not negative, from a loopback TCP port. The process keeps running
+ * after standard input ends as long as the port or the sensor gateway is open. Settings:
+ * <ul>
+ * <li>server.repository - "prefs" (default) to persist in user preferences, "memory" to
+ * keep nothing</li>
+ * <li>server.instance - preferences node of this instance, so instances do not share state</li>
+ * <li>server.imageService - "fake" (default) or "aws"</li>
+ * <li>server.controlPort - loopback port of the control surface, 0 for any free port,
+ * negative to disable (default)</li>
+ * <li>server.maxSessions - control connections open at once (default 64)</li>
+ * </ul>
+ * The camera.* settings start frame ingestion and the gateway.* settings the
+ * {@link SensorGatewayServer} as in the GUI, both behind an {@link AdmissionController}
+ * configured with the admission.* settings; execution.mode also chooses the threads of the
+ * control sessions. Metrics are published over JMX as described in
+ * {@link MetricsRegistry}.
+ */
+public class HeadlessSecurityApp {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessSecurityApp.class);
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+
+        MetricsRegistry.getDefault().registerMBean();
+        MetricsReporter.fromConfig(MetricsRegistry.getDefault());
+        ContinuousRecording.startFromConfig();
+        SecurityRepository repository = createRepository();
+        String imageServiceName = ConfigService.getString("server.imageService", "fake");
+        IService imageService = new InstrumentedImageService("aws".equals(imageServiceName)
+                ? new AwsImageService(new FakeImageService())
+                : new FakeImageService(), imageServiceName, MetricsRegistry.getDefault());
+        SecurityService securityService = new SecurityService(repository, imageService);
+        securityService.addStatusListener(new LoggingStatusListener());
+        CommandProcessor commandProcessor = new CommandProcessor(securityService);
+        AdmissionController admission = AdmissionController.fromConfig(securityService);
+
+        FrameIngestionPipeline pipeline = startFramePipeline(securityService, imageService, admission);
+        ControlServer controlServer = null;
+        int port = ConfigService.getInt("server.controlPort", -1);
+        if (port >= 0) {
+            controlServer = new ControlServer(commandProcessor, port, ExecutionMode.fromConfig(),
+                    ConfigService.getInt("server.maxSessions", 64));
+            controlServer.start();
+            logger.info("Control surface listening on 127.0.0.1:{}", controlServer.getPort());
+        }
+        SensorGatewayServer gateway = SensorGatewayServer.fromConfig(securityService, admission);
+        if (gateway != null) {
+            logger.info("Sensor gateway listening on port {}", gateway.getPort());
+        }
+        logger.info("Headless security system started in {} ms", (System.nanoTime() - start) / 1_000_000);
+
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        ControlServer.runSession(commandProcessor,
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), out);
+
+        if (controlServer != null || gateway != null) {
+            // standard input is gone, e.g. when running as a service; keep serving the ports
+            new CountDownLatch(1).await();
+        }
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        if (imageService instanceof AutoCloseable) {
+            ((AutoCloseable) imageService).close();
+        }
+    }
+
+    private static SecurityRepository createRepository() {
+        if ("memory".equals(ConfigService.getString("server.repository", "prefs"))) {
+            return new InMemorySecurityRepository();
+        }
+        String instance = ConfigService.getString("server.instance", "");
+        return instance.isBlank()
+                ? new PretendDatabaseSecurityRepositoryImpl()
+                : new PretendDatabaseSecurityRepositoryImpl(instance);
+    }
+
+    private static FrameIngestionPipeline startFramePipeline(SecurityService securityService, IService imageService,
+                                                             AdmissionController admission) {
+        String dropFolder = ConfigService.getString("camera.dropFolder", "");
+        if (dropFolder.isBlank()) {
+            return null;
+        }
+        FrameIngestionPipeline pipeline = FrameIngestionPipeline.fromConfig(securityService, imageService, admission);
+        PreAlarmRecorder recorder = PreAlarmRecorder.fromConfig();
+        if (recorder != null) {
+            securityService.addStatusListener(recorder);
+            pipeline.addFrameTap(recorder::record);
+        }
+        pipeline.start();
+        pipeline.addSource(new DropFolderFrameSource(Path.of(dropFolder),
+                ConfigService.getBoolean("camera.deleteAfterRead", true)));
+        return pipeline;
+    }
+
+    /**
+     * Logs status changes in place of the panels of the GUI.
+     */
+    private static final class LoggingStatusListener implements StatusListener {
+
+        private volatile AlarmStatus lastAlarmStatus;
+        private volatile Boolean lastCatDetected;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            if (status != lastAlarmStatus) {
+                lastAlarmStatus = status;
+                logger.info("Alarm status: {}", status);
+            }
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            if (!Boolean.valueOf(catDetected).equals(lastCatDetected)) {
+                lastCatDetected = catDetected;
+                logger.info(catDetected ? "Cat detected" : "No cat detected");
+            }
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            logger.debug("Sensor status changed");
+        }
+    }
+}
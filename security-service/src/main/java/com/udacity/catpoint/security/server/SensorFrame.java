@@ -0,0 +1,60 @@
+package com.udacity.catpoint.security.server;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Binary wire format of the sensor gateway: fixed-size frames of {@value #BYTES} bytes, big
+ * endian, without any header or separator.
+ * <pre>
+ * offset  size  field
+ *      0     8  most significant bits of the sensor UUID
+ *      8     8  least significant bits of the sensor UUID
+ *     16     1  1 if the sensor is active, 0 if not; other values are a protocol error
+ *     17     8  time of the reading in milliseconds since the epoch
+ * </pre>
+ * Frames are read and written with absolute buffer access, so neither direction creates
+ * objects.
+ */
+public final class SensorFrame {
+
+    public static final int BYTES = 25;
+
+    private static final int LEAST_SIGNIFICANT_BITS = 8;
+    private static final int ACTIVE = 16;
+    private static final int TIMESTAMP = 17;
+
+    private SensorFrame() {
+    }
+
+    /**
+     * Writes a frame at the position of the buffer and advances it by {@value #BYTES} bytes.
+     */
+    public static void write(ByteBuffer buffer, UUID sensorId, boolean active, long timestampMillis) {
+        int offset = buffer.position();
+        buffer.putLong(offset, sensorId.getMostSignificantBits());
+        buffer.putLong(offset + LEAST_SIGNIFICANT_BITS, sensorId.getLeastSignificantBits());
+        buffer.put(offset + ACTIVE, (byte) (active ? 1 : 0));
+        buffer.putLong(offset + TIMESTAMP, timestampMillis);
+        buffer.position(offset + BYTES);
+    }
+
+    public static long mostSignificantBits(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset);
+    }
+
+    public static long leastSignificantBits(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + LEAST_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * @return The raw active flag, 0 or 1 in a valid frame
+     */
+    public static byte activeFlag(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + ACTIVE);
+    }
+
+    public static long timestampMillis(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TIMESTAMP);
+    }
+}
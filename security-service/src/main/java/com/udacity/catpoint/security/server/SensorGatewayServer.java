@@ -0,0 +1,260 @@
+package com.udacity.catpoint.security.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.ConfigService;
+import com.udacity.catpoint.security.service.DaemonThreadFactory;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Receives sensor readings from gateways as {@link SensorFrame}s over TCP and feeds them into
+ * the SecurityService through an {@link AdmissionController}, which applies them in batches.
+ * <p>
+ * One selector thread serves all connections without blocking. Each connection has a direct
+ * read buffer allocated when it connects; frames are decoded straight from it and the sensor is
+ * looked up in a {@link SensorIndex}, and the admission controller queues readings in arrays
+ * allocated up front, so reading a frame creates no objects. Readings of a sensor that is
+ * already queued in the admission controller are collapsed. When its queue is full, the selector thread waits for
+ * room and TCP flow control slows the gateways down.
+ * <p>
+ * Readings of unknown sensors and readings older than the latest one of the same sensor are
+ * dropped; a frame with an invalid active flag closes its connection. Counts and timings are
+ * recorded in the gateway.* metrics.
+ */
+public class SensorGatewayServer implements Closeable {
+
+    // frames read from a connection in one call at most
+    private static final int READ_BUFFER_FRAMES = 512;
+    private static final long INDEX_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger = LoggerFactory.getLogger(SensorGatewayServer.class);
+
+    private final AdmissionController admission;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final SensorIndex index;
+    private final ExecutorService threads = Executors.newSingleThreadExecutor(new DaemonThreadFactory("gateway"));
+    private final Consumer<SelectionKey> keyHandler = this::handleKey;
+    private volatile boolean closed;
+
+    private final LongAdder frames;
+    private final LongAdder unknownFrames;
+    private final LongAdder staleFrames;
+    private final LongAdder invalidFrames;
+    private final LongAdder connections;
+    private final LatencyHistogram readingAge;
+
+    public SensorGatewayServer(SecurityService securityService, AdmissionController admission,
+                               InetSocketAddress address) throws IOException {
+        this(securityService, admission, address, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * Binds the server; call {@link #start()} to accept connections.
+     *
+     * @param securityService Service whose sensors the readings refer to
+     * @param admission Started controller the readings are queued in
+     * @param address Address to listen on, port 0 for any free port
+     * @param metrics Registry receiving the gateway.* metrics
+     */
+    public SensorGatewayServer(SecurityService securityService, AdmissionController admission,
+                               InetSocketAddress address, MetricsRegistry metrics) throws IOException {
+        this.admission = admission;
+        this.index = new SensorIndex(securityService::getSensors, INDEX_REFRESH_NANOS);
+        this.frames = metrics.counter("gateway.frames");
+        this.unknownFrames = metrics.counter("gateway.unknownFrames");
+        this.staleFrames = metrics.counter("gateway.staleFrames");
+        this.invalidFrames = metrics.counter("gateway.invalidFrames");
+        this.connections = metrics.counter("gateway.connections");
+        this.readingAge = metrics.histogram("gateway.readingAge");
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            serverChannel.close();
+            selector.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates and starts the gateway configured with gateway.port and gateway.bindAddress.
+     *
+     * @param securityService Service whose sensors the readings refer to
+     * @param admission Started controller the readings are queued in
+     * @return The running server, or null if gateway.port is negative
+     */
+    public static SensorGatewayServer fromConfig(SecurityService securityService, AdmissionController admission)
+            throws IOException {
+        int port = ConfigService.getInt("gateway.port", -1);
+        if (port < 0) {
+            return null;
+        }
+        InetSocketAddress address = new InetSocketAddress(ConfigService.getString("gateway.bindAddress", "127.0.0.1"), port);
+        SensorGatewayServer server = new SensorGatewayServer(securityService, admission, address);
+        server.start();
+        return server;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void start() {
+        threads.execute(this::selectLoop);
+    }
+
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select(keyHandler);
+                index.refreshIfDue();
+            }
+        } catch (IOException ex) {
+            logger.error("Sensor gateway stopped", ex);
+        } finally {
+            closeChannels();
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+            } else if (key.isReadable()) {
+                read(key);
+            }
+        } catch (InterruptedException ex) {
+            // closing; the select loop sees the flag and ends
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(READ_BUFFER_FRAMES * SensorFrame.BYTES));
+            connections.increment();
+        } catch (IOException ex) {
+            logger.warn("Gateway connection failed", ex);
+        }
+    }
+
+    private void read(SelectionKey key) throws InterruptedException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException ex) {
+            logger.debug("Gateway connection closed", ex);
+            close(key);
+            return;
+        }
+        buffer.flip();
+        int offset = 0;
+        int limit = buffer.limit();
+        while (limit - offset >= SensorFrame.BYTES) {
+            if (!decode(buffer, offset)) {
+                invalidFrames.increment();
+                logger.warn("Invalid sensor frame from {}, closing the connection", channel.socket().getRemoteSocketAddress());
+                close(key);
+                return;
+            }
+            offset += SensorFrame.BYTES;
+        }
+        // keep a partial frame for the next read
+        buffer.position(offset);
+        buffer.compact();
+        if (read < 0) {
+            close(key);
+        }
+    }
+
+    /**
+     * @return False if the frame is invalid
+     */
+    private boolean decode(ByteBuffer buffer, int offset) throws InterruptedException {
+        byte activeFlag = SensorFrame.activeFlag(buffer, offset);
+        if (activeFlag != 0 && activeFlag != 1) {
+            return false;
+        }
+        frames.increment();
+        int slot = index.find(SensorFrame.mostSignificantBits(buffer, offset), SensorFrame.leastSignificantBits(buffer, offset));
+        if (slot < 0) {
+            unknownFrames.increment();
+            return true;
+        }
+        long timestampMillis = SensorFrame.timestampMillis(buffer, offset);
+        if (!index.advance(slot, timestampMillis)) {
+            staleFrames.increment();
+            return true;
+        }
+        readingAge.record(Math.max(0, System.currentTimeMillis() - timestampMillis) * 1_000_000L);
+        admission.offerSensor(index.sensorAt(slot), activeFlag == 1);
+        return true;
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ex) {
+            logger.debug("Closing gateway connection failed", ex);
+        }
+    }
+
+    private void closeChannels() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            logger.debug("Closing gateway selector failed", ex);
+        }
+    }
+
+    /**
+     * Stops accepting and reading. Readings already queued stay with the admission
+     * controller, which is closed by its owner.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        threads.shutdownNow();
+        try {
+            threads.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        serverChannel.close();
+    }
+}
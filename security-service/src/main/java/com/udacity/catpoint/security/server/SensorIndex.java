@@ -0,0 +1,128 @@
+package com.udacity.catpoint.security.server;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * Finds sensors by the two halves of their UUID without creating a UUID, with open addressing
+ * over parallel arrays. Besides the sensor, each slot keeps the timestamp of the latest reading
+ * applied to it, so readings arriving out of order can be dropped.
+ * <p>
+ * The index is a snapshot of the sensors. It is rebuilt every refresh interval to pick up
+ * removed sensors, and sooner when a reading names a sensor it does not know, but no more
+ * often than every {@link #MIN_MISS_REFRESH_NANOS}. Rebuilding allocates; lookups do not.
+ * Not thread-safe, it belongs to the selector thread of the gateway.
+ */
+final class SensorIndex {
+
+    static final long MIN_MISS_REFRESH_NANOS = 100_000_000L;
+
+    private final Supplier<? extends Collection<Sensor>> source;
+    private final long refreshIntervalNanos;
+
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    private Sensor[] sensors;
+    private long[] lastTimestamps;
+    private int mask;
+    private long lastRefreshNanos;
+
+    /**
+     * @param source Current sensors of the system
+     * @param refreshIntervalNanos Interval between two rebuilds of the snapshot
+     */
+    SensorIndex(Supplier<? extends Collection<Sensor>> source, long refreshIntervalNanos) {
+        this.source = source;
+        this.refreshIntervalNanos = refreshIntervalNanos;
+        refresh();
+    }
+
+    /**
+     * @return The slot of the sensor, or -1 if there is no such sensor
+     */
+    int find(long mostBits, long leastBits) {
+        int slot = lookup(mostBits, leastBits);
+        if (slot < 0 && System.nanoTime() - lastRefreshNanos >= MIN_MISS_REFRESH_NANOS) {
+            refresh();
+            slot = lookup(mostBits, leastBits);
+        }
+        return slot;
+    }
+
+    Sensor sensorAt(int slot) {
+        return sensors[slot];
+    }
+
+    /**
+     * Records a reading of the sensor in the slot unless a later one was recorded already.
+     *
+     * @return False if the reading is older than the latest one
+     */
+    boolean advance(int slot, long timestampMillis) {
+        if (timestampMillis < lastTimestamps[slot]) {
+            return false;
+        }
+        lastTimestamps[slot] = timestampMillis;
+        return true;
+    }
+
+    /**
+     * Rebuilds the snapshot if the refresh interval has passed.
+     */
+    void refreshIfDue() {
+        if (System.nanoTime() - lastRefreshNanos >= refreshIntervalNanos) {
+            refresh();
+        }
+    }
+
+    void refresh() {
+        Collection<Sensor> current = source.get();
+        // at most half full, so probe sequences stay short
+        int capacity = 16;
+        while (capacity < current.size() * 2) {
+            capacity <<= 1;
+        }
+        long[] newMostBits = new long[capacity];
+        long[] newLeastBits = new long[capacity];
+        Sensor[] newSensors = new Sensor[capacity];
+        long[] newTimestamps = new long[capacity];
+        int newMask = capacity - 1;
+        for (Sensor sensor : current) {
+            long mostBits = sensor.getSensorId().getMostSignificantBits();
+            long leastBits = sensor.getSensorId().getLeastSignificantBits();
+            int slot = hash(mostBits, leastBits) & newMask;
+            while (newSensors[slot] != null) {
+                slot = (slot + 1) & newMask;
+            }
+            newMostBits[slot] = mostBits;
+            newLeastBits[slot] = leastBits;
+            newSensors[slot] = sensor;
+            int oldSlot = sensors == null ? -1 : lookup(mostBits, leastBits);
+            newTimestamps[slot] = oldSlot < 0 ? Long.MIN_VALUE : lastTimestamps[oldSlot];
+        }
+        mostSignificantBits = newMostBits;
+        leastSignificantBits = newLeastBits;
+        sensors = newSensors;
+        lastTimestamps = newTimestamps;
+        mask = newMask;
+        lastRefreshNanos = System.nanoTime();
+    }
+
+    private int lookup(long mostBits, long leastBits) {
+        int slot = hash(mostBits, leastBits) & mask;
+        while (sensors[slot] != null) {
+            if (mostSignificantBits[slot] == mostBits && leastSignificantBits[slot] == leastBits) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(long mostBits, long leastBits) {
+        long hash = (mostBits ^ leastBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
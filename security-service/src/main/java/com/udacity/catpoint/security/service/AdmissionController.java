@@ -0,0 +1,331 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+
+/**
+ * Admission control in front of the SecurityService for sources that can deliver events faster
+ * than the service persists and notifies them, such as the sensor gateway and the camera
+ * pipeline. Work waits in bounded queues, so overload slows the sources down or sheds work
+ * instead of filling the heap.
+ * <p>
+ * Sensor readings queue with at most one entry per sensor and are applied by a dispatcher
+ * thread in batches of up to batchSize sensors, in the order their sensors were queued. A
+ * reading of a sensor that is already queued is collapsed into its entry, which takes the
+ * latest state; an activation is never lost though: if an activation is followed by a
+ * deactivation before the entry is applied, both are applied, activation first. When
+ * maxPendingSensors sensors are queued, producers of activations wait for room, so alarm
+ * relevant activations are never dropped. Producers of deactivations wait as well, or with the
+ * {@link SensorOverflow#SHED} policy have their reading dropped.
+ * <p>
+ * The queue is a ring of parallel arrays allocated up front, and queued sensors are found by
+ * open addressing over their sensor ids, so queueing and applying readings creates no objects.
+ * <p>
+ * Image frames are shed first: while at least shedImagesAtSensorDepth sensors are queued,
+ * {@link #admitImage()} refuses frames so detection does not compete with sensor events.
+ * <p>
+ * The depth of the sensor queue is published as the admission.pendingSensors gauge; collapsed
+ * and shed work is counted in admission.sensorsCollapsed, admission.sensorsShed and
+ * admission.imagesShed, and the time producers waited for room and batches took to apply is
+ * recorded in the admission.producerWait and admission.batchApply histograms.
+ */
+public class AdmissionController implements AutoCloseable {
+
+    /**
+     * What happens to a deactivation that finds the sensor queue full. Activations always wait.
+     */
+    public enum SensorOverflow {
+        /** The producer waits for room. */
+        BLOCK,
+        /** The reading is dropped and counted in admission.sensorsShed. */
+        SHED
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final SecurityService securityService;
+    private final int maxPendingSensors;
+    private final SensorOverflow overflow;
+    private final int batchSize;
+    private final int shedImagesAtSensorDepth;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // guarded by lock: queued sensors in a ring, in the order they were queued, with the latest
+    // state and whether an activation arrived since the sensor was queued
+    private final Sensor[] queuedSensors;
+    private final boolean[] queuedActive;
+    private final boolean[] queuedActivated;
+    private int head;
+    private int size;
+    // guarded by lock: ring position + 1 of each queued sensor by the hash of its id, 0 if free
+    private final int[] positions;
+    private final int positionMask;
+    // size, readable without the lock
+    private volatile int depth;
+    private volatile boolean closed;
+
+    // owned by the dispatcher; an entry can expand to an activation and a deactivation
+    private final Sensor[] batchSensors;
+    private final boolean[] batchActive;
+    private Thread dispatcher;
+
+    private final LongAdder sensorReadings;
+    private final LongAdder sensorsCollapsed;
+    private final LongAdder sensorsShed;
+    private final LongAdder imagesShed;
+    private final LatencyHistogram producerWait;
+    private final LatencyHistogram batchApply;
+
+    /**
+     * Creates the controller; call {@link #start()} to start applying readings.
+     *
+     * @param securityService Service receiving the readings
+     * @param maxPendingSensors Sensors queued at most
+     * @param overflow What happens to deactivations when the queue is full
+     * @param batchSize Sensors applied in one call at most
+     * @param shedImagesAtSensorDepth Queued sensors from which on image frames are shed
+     * @param metrics Registry receiving the admission.* metrics
+     */
+    public AdmissionController(SecurityService securityService, int maxPendingSensors, SensorOverflow overflow,
+                               int batchSize, int shedImagesAtSensorDepth, MetricsRegistry metrics) {
+        if (maxPendingSensors <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("maxPendingSensors and batchSize must be positive");
+        }
+        this.securityService = securityService;
+        this.maxPendingSensors = maxPendingSensors;
+        this.overflow = overflow;
+        this.batchSize = batchSize;
+        this.shedImagesAtSensorDepth = shedImagesAtSensorDepth;
+        this.queuedSensors = new Sensor[maxPendingSensors];
+        this.queuedActive = new boolean[maxPendingSensors];
+        this.queuedActivated = new boolean[maxPendingSensors];
+        // at most half full, so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(maxPendingSensors, 8) - 1) << 2;
+        this.positions = new int[capacity];
+        this.positionMask = capacity - 1;
+        this.batchSensors = new Sensor[2 * batchSize];
+        this.batchActive = new boolean[2 * batchSize];
+        this.sensorReadings = metrics.counter("admission.sensorReadings");
+        this.sensorsCollapsed = metrics.counter("admission.sensorsCollapsed");
+        this.sensorsShed = metrics.counter("admission.sensorsShed");
+        this.imagesShed = metrics.counter("admission.imagesShed");
+        this.producerWait = metrics.histogram("admission.producerWait");
+        this.batchApply = metrics.histogram("admission.batchApply");
+        metrics.gauge("admission.pendingSensors", () -> depth);
+    }
+
+    /**
+     * Creates and starts a controller configured with admission.maxPendingSensors,
+     * admission.sensorOverflow, admission.batchSize and admission.shedImagesAtSensorDepth.
+     */
+    public static AdmissionController fromConfig(SecurityService securityService) {
+        AdmissionController admission = new AdmissionController(securityService,
+                ConfigService.getInt("admission.maxPendingSensors", 4096),
+                SensorOverflow.valueOf(ConfigService.getString("admission.sensorOverflow", "block").toUpperCase(Locale.ROOT)),
+                ConfigService.getInt("admission.batchSize", DEFAULT_BATCH_SIZE),
+                ConfigService.getInt("admission.shedImagesAtSensorDepth", 256),
+                MetricsRegistry.getDefault());
+        admission.start();
+        return admission;
+    }
+
+    public synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = new DaemonThreadFactory("admission").newThread(this::dispatchLoop);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues a sensor reading, waiting for room if the queue is full and the reading may not
+     * be shed.
+     *
+     * @return False if the reading was shed, or the controller is closed
+     * @throws InterruptedException If interrupted while waiting for room
+     */
+    public boolean offerSensor(Sensor sensor, boolean active) throws InterruptedException {
+        sensorReadings.increment();
+        lock.lockInterruptibly();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (collapse(sensor, active)) {
+                return true;
+            }
+            if (size >= maxPendingSensors) {
+                if (!active && overflow == SensorOverflow.SHED) {
+                    sensorsShed.increment();
+                    return false;
+                }
+                long start = System.nanoTime();
+                while (size >= maxPendingSensors && !closed) {
+                    notFull.await();
+                }
+                producerWait.recordSince(start);
+                // another producer may have queued the sensor meanwhile
+                if (collapse(sensor, active)) {
+                    return true;
+                }
+            }
+            if (closed) {
+                return false;
+            }
+            enqueue(sensor, active);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return True if the reading was merged into an entry of the same sensor
+     */
+    private boolean collapse(Sensor sensor, boolean active) {
+        int slot = slotOf(sensor);
+        if (positions[slot] == 0) {
+            return false;
+        }
+        int position = positions[slot] - 1;
+        queuedActive[position] = active;
+        queuedActivated[position] |= active;
+        sensorsCollapsed.increment();
+        return true;
+    }
+
+    private void enqueue(Sensor sensor, boolean active) {
+        int position = (head + size) % queuedSensors.length;
+        queuedSensors[position] = sensor;
+        queuedActive[position] = active;
+        queuedActivated[position] = active;
+        positions[slotOf(sensor)] = position + 1;
+        depth = ++size;
+    }
+
+    /**
+     * Removes the oldest sensor from the ring and from the position table.
+     */
+    private void dequeue() {
+        int free = slotOf(queuedSensors[head]);
+        // shift later entries of the probe sequence back, so lookups still reach them
+        for (int slot = (free + 1) & positionMask; positions[slot] != 0; slot = (slot + 1) & positionMask) {
+            int home = hash(queuedSensors[positions[slot] - 1].getSensorId()) & positionMask;
+            if (((slot - home) & positionMask) >= ((slot - free) & positionMask)) {
+                positions[free] = positions[slot];
+                free = slot;
+            }
+        }
+        positions[free] = 0;
+        queuedSensors[head] = null;
+        head = (head + 1) % queuedSensors.length;
+        depth = --size;
+    }
+
+    /**
+     * @return The slot of the position table holding the sensor, or the free slot it would take
+     */
+    private int slotOf(Sensor sensor) {
+        int slot = hash(sensor.getSensorId()) & positionMask;
+        while (positions[slot] != 0 && !queuedSensors[positions[slot] - 1].equals(sensor)) {
+            slot = (slot + 1) & positionMask;
+        }
+        return slot;
+    }
+
+    private static int hash(UUID sensorId) {
+        long hash = (sensorId.getMostSignificantBits() ^ sensorId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Decides whether an image frame should be classified now. Frames are refused while sensor
+     * events are backing up.
+     *
+     * @return False if the frame should be shed
+     */
+    public boolean admitImage() {
+        if (depth >= shedImagesAtSensorDepth) {
+            imagesShed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of sensors with readings waiting to be applied
+     */
+    public int getPendingSensors() {
+        return depth;
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!closed) {
+                int count = 0;
+                lock.lockInterruptibly();
+                try {
+                    while (size == 0) {
+                        notEmpty.await();
+                    }
+                    for (int taken = 0; taken < batchSize && size > 0; taken++) {
+                        if (queuedActivated[head] && !queuedActive[head]) {
+                            batchSensors[count] = queuedSensors[head];
+                            batchActive[count++] = true;
+                        }
+                        batchSensors[count] = queuedSensors[head];
+                        batchActive[count++] = queuedActive[head];
+                        dequeue();
+                    }
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                long start = System.nanoTime();
+                try {
+                    securityService.changeSensorActivationStatus(batchSensors, batchActive, count);
+                } catch (RuntimeException ex) {
+                    logger.warn("Applying {} sensor readings failed", count, ex);
+                }
+                batchApply.recordSince(start);
+                Arrays.fill(batchSensors, 0, count, null);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops applying readings; readings still queued are discarded and waiting producers
+     * return.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
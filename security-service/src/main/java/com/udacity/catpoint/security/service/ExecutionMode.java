@@ -0,0 +1,54 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How sensor events and image scans from the GUI, camera pipelines and control sessions are
+ * executed, set with execution.mode.
+ */
+public enum ExecutionMode {
+
+    /**
+     * On the thread that received them, and camera scans on a fixed pool of
+     * camera.classifyThreads threads. The default.
+     */
+    DIRECT,
+
+    /**
+     * Each on its own platform thread; the number running at once is limited by semaphores.
+     */
+    PLATFORM,
+
+    /**
+     * Each on its own virtual thread, limited by semaphores like {@link #PLATFORM}. Blocking
+     * persistence and remote detection then tie up no platform thread, so tens of thousands
+     * of events and sessions can be in progress at once. Falls back to {@link #PLATFORM} on a
+     * JDK without virtual threads.
+     */
+    VIRTUAL;
+
+    public static ExecutionMode fromConfig() {
+        return valueOf(ConfigService.getString("execution.mode", "direct").toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return True if work runs on a thread of its own rather than on the caller or a fixed pool
+     */
+    public boolean isThreadPerTask() {
+        return this != DIRECT;
+    }
+
+    /**
+     * @return The virtual or platform executor of this mode; must not be called for DIRECT
+     */
+    public ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (this == DIRECT) {
+            throw new IllegalStateException("DIRECT runs tasks on the caller");
+        }
+        return this == VIRTUAL
+                ? VirtualThreads.newThreadPerTaskExecutor(prefix)
+                : Executors.newCachedThreadPool(new DaemonThreadFactory(prefix));
+    }
+}
@@ -0,0 +1,201 @@
+package com.udacity.catpoint.security.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+
+/**
+ * Runs sensor events and image scans for callers that should not block on them, such as the
+ * panels on the Swing event thread, according to the {@link ExecutionMode}.
+ * <p>
+ * In the DIRECT mode everything runs on the caller, as before. Otherwise every event and scan
+ * gets a thread of its own, and semaphores limit how many run at once: execution.maxSensorEvents
+ * and execution.maxImageScans. A task only gets its thread once it holds a permit; tasks over the
+ * limit wait in a queue, so a burst of events never starts more threads than the limits allow,
+ * even when the platform threads stand in for virtual ones. The time spent waiting is recorded
+ * in the execution.sensorPermitWait and execution.imagePermitWait histograms.
+ * <p>
+ * Events submitted concurrently may be applied in any order; callers that need an order wait
+ * for the returned future before submitting the next event.
+ */
+public class SecurityEventExecutor implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(SecurityEventExecutor.class);
+
+    private final SecurityService securityService;
+    private final ExecutionMode mode;
+    // null in the DIRECT mode
+    private final ExecutorService threads;
+    private final Lane sensorEvents;
+    private final Lane imageScans;
+
+    /**
+     * @param securityService Service receiving the events
+     * @param mode How events are executed
+     * @param maxSensorEvents Sensor events running at once, ignored in the DIRECT mode
+     * @param maxImageScans Image scans running at once, ignored in the DIRECT mode
+     * @param metrics Registry receiving the execution.* metrics
+     */
+    public SecurityEventExecutor(SecurityService securityService, ExecutionMode mode, int maxSensorEvents,
+                                 int maxImageScans, MetricsRegistry metrics) {
+        if (maxSensorEvents <= 0 || maxImageScans <= 0) {
+            throw new IllegalArgumentException("maxSensorEvents and maxImageScans must be positive");
+        }
+        this.securityService = securityService;
+        this.mode = mode;
+        this.threads = mode.isThreadPerTask() ? mode.newThreadPerTaskExecutor("security-event") : null;
+        this.sensorEvents = new Lane(maxSensorEvents, metrics.histogram("execution.sensorPermitWait"));
+        this.imageScans = new Lane(maxImageScans, metrics.histogram("execution.imagePermitWait"));
+    }
+
+    /**
+     * Creates an executor configured with execution.mode, execution.maxSensorEvents and
+     * execution.maxImageScans.
+     */
+    public static SecurityEventExecutor fromConfig(SecurityService securityService) {
+        return new SecurityEventExecutor(securityService, ExecutionMode.fromConfig(),
+                ConfigService.getInt("execution.maxSensorEvents", 10_000),
+                ConfigService.getInt("execution.maxImageScans", 64),
+                MetricsRegistry.getDefault());
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Changes the activation status of a sensor.
+     *
+     * @return Completes when the change was applied
+     */
+    public CompletableFuture<Void> changeSensorActivationStatus(Sensor sensor, boolean active) {
+        return run(sensorEvents, () -> securityService.changeSensorActivationStatus(sensor, active));
+    }
+
+    /**
+     * Scans an image with the security service's image service.
+     *
+     * @return Completes when the verdict was applied
+     */
+    public CompletableFuture<Void> processImage(String cameraId, BufferedImage image) {
+        return run(imageScans, () -> securityService.processImage(cameraId, image));
+    }
+
+    /**
+     * Scans an image with a specific detector.
+     *
+     * @return Completes when the verdict was applied
+     */
+    public CompletableFuture<Void> processImage(String cameraId, BufferedImage image, IService detector) {
+        return run(imageScans, () -> securityService.processImage(cameraId, image, detector));
+    }
+
+    private CompletableFuture<Void> run(Lane lane, Runnable task) {
+        if (threads == null) {
+            try {
+                task.run();
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        Pending pending = new Pending(task);
+        lane.queue.add(pending);
+        drain(lane);
+        return pending.done;
+    }
+
+    /**
+     * Starts queued tasks of a lane while permits are left. Called after queueing a task and
+     * after releasing a permit, so a task is never left waiting while a permit is free.
+     */
+    private void drain(Lane lane) {
+        while (!lane.queue.isEmpty() && lane.permits.tryAcquire()) {
+            Pending next = lane.queue.poll();
+            if (next == null) {
+                lane.permits.release();
+                continue;
+            }
+            try {
+                threads.execute(() -> runHoldingPermit(lane, next));
+            } catch (RejectedExecutionException ex) {
+                lane.permits.release();
+                next.done.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private void runHoldingPermit(Lane lane, Pending pending) {
+        lane.permitWait.recordSince(pending.queuedAt);
+        try {
+            pending.task.run();
+            pending.done.complete(null);
+        } catch (RuntimeException ex) {
+            logger.error("Security event failed", ex);
+            pending.done.completeExceptionally(ex);
+        } finally {
+            lane.permits.release();
+            drain(lane);
+        }
+    }
+
+    /**
+     * Stops accepting work and waits a few seconds for running events to finish.
+     */
+    @Override
+    public void close() {
+        if (threads == null) {
+            return;
+        }
+        threads.shutdown();
+        // tasks still queued can no longer start
+        drain(sensorEvents);
+        drain(imageScans);
+        try {
+            if (!threads.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Security events still running after 5 s");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tasks of one kind, limited by their own permits.
+     */
+    private static final class Lane {
+
+        private final Semaphore permits;
+        private final LatencyHistogram permitWait;
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+        private Lane(int maxRunning, LatencyHistogram permitWait) {
+            this.permits = new Semaphore(maxRunning);
+            this.permitWait = permitWait;
+        }
+    }
+
+    private static final class Pending {
+
+        private final Runnable task;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(Runnable task) {
+            this.task = task;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.udacity.catpoint.security.service;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.IService;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
@@ -14,6 +20,14 @@ import static com.udacity.catpoint.security.data.AlarmStatus.PENDING_ALARM;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.jfr.AlarmStatusEvent;
+import com.udacity.catpoint.security.jfr.ArmingStatusEvent;
+import com.udacity.catpoint.security.jfr.ImageScanEvent;
+import com.udacity.catpoint.security.jfr.SensorActivationEvent;
+import com.udacity.catpoint.security.metrics.EventTracer;
+import com.udacity.catpoint.security.metrics.EventTracer.EventType;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -21,17 +35,73 @@ import com.udacity.catpoint.security.data.Sensor;
  * <p>
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ * <p>
+ * The service is called from the UI, camera pipelines and remote clients at the same time. Every
+ * decision that reads and changes the alarm, arming or sensor state runs under one lock, so
+ * concurrent events cannot interleave between reading and writing that state. Listeners are
+ * notified while the lock is held and must not block. Waits for the lock are recorded in
+ * security.stateLockWait and counted in security.stateLockContended.
  */
 public class SecurityService {
 
+    /**
+     * Camera used by callers that do not distinguish cameras, such as the image panel.
+     */
+    public static final String DEFAULT_CAMERA = "default";
+
     private final IService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners = new HashSet<>();
-    private Boolean catDetection = false;
+    // images may be processed on camera pipeline threads while the UI registers listeners
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    // latest verdict per camera; the system sees a cat if any camera does
+    private final Map<String, Boolean> catDetectionByCamera = new ConcurrentHashMap<>();
+    // serializes all state decisions, see lockState()
+    private final ReentrantLock stateLock = new ReentrantLock();
+    // rule deciding which detection results count as a cat
+    private volatile float catConfidenceThreshold = (float) ConfigService.getDouble("detection.catConfidence", 50.0);
+    private volatile Set<String> catLabels = DetectionResult.CAT_LABELS;
+
+    // metrics, looked up once so recording them is a striped increment
+    private final LongAdder sensorEvents;
+    private final LongAdder armingChanges;
+    private final LongAdder imagesProcessed;
+    private final LongAdder catDetections;
+    // indexed by the ordinals of the previous and the new alarm status
+    private final LongAdder[][] alarmTransitions;
+    private final LatencyHistogram listenerDispatch;
+    private final LatencyHistogram stateLockWait;
+    private final LongAdder stateLockContended;
+    // stage timings of each event, see EventTracer
+    private final EventTracer tracer;
 
     public SecurityService(SecurityRepository securityRepository, IService imageService) {
+        this(securityRepository, imageService, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * @param metrics Registry receiving the security.* metrics of this service
+     */
+    public SecurityService(SecurityRepository securityRepository, IService imageService, MetricsRegistry metrics) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.sensorEvents = metrics.counter("security.sensorEvents");
+        this.armingChanges = metrics.counter("security.armingChanges");
+        this.imagesProcessed = metrics.counter("security.imagesProcessed");
+        this.catDetections = metrics.counter("security.catDetections");
+        this.listenerDispatch = metrics.histogram("security.listenerDispatch");
+        this.stateLockWait = metrics.histogram("security.stateLockWait");
+        this.stateLockContended = metrics.counter("security.stateLockContended");
+        this.tracer = EventTracer.fromConfig(metrics);
+        AlarmStatus[] statuses = AlarmStatus.values();
+        this.alarmTransitions = new LongAdder[statuses.length][statuses.length];
+        for (AlarmStatus from : statuses) {
+            for (AlarmStatus to : statuses) {
+                if (from != to) {
+                    alarmTransitions[from.ordinal()][to.ordinal()] =
+                            metrics.counter("security.alarmTransitions." + from + "." + to);
+                }
+            }
+        }
     }
 
     /**
@@ -41,18 +111,38 @@ public class SecurityService {
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-        if (catDetection && armingStatus == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(ALARM);
-        }
-        if (armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(NO_ALARM);
-        } else {
-            ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
-            sensors.forEach(sensor -> changeSensorActivationStatus(sensor, false));
-        }
+        armingChanges.increment();
+        ArmingStatusEvent event = new ArmingStatusEvent();
+        event.begin();
+        ArmingStatus previousStatus = event.isEnabled() ? securityRepository.getArmingStatus() : null;
+        tracer.begin(EventType.ARMING);
+        lockState();
+        try {
+            if (isCatDetected() && armingStatus == ArmingStatus.ARMED_HOME) {
+                setAlarmStatus(ALARM);
+            }
+            if (armingStatus == ArmingStatus.DISARMED) {
+                setAlarmStatus(NO_ALARM);
+            } else {
+                ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
+                sensors.forEach(sensor -> changeSensorActivationStatus(sensor, false));
+            }
 
-        securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+            long persistStart = System.nanoTime();
+            securityRepository.setArmingStatus(armingStatus);
+            tracer.persisted(persistStart);
+            notifyListeners(StatusListener::sensorStatusChanged);
+        } finally {
+            stateLock.unlock();
+            tracer.end();
+            if (event.shouldCommit()) {
+                event.previousStatus = String.valueOf(previousStatus);
+                event.status = String.valueOf(armingStatus);
+                event.alarmStatus = String.valueOf(securityRepository.getAlarmStatus());
+                event.sensors = getSensors().size();
+                event.commit();
+            }
+        }
     }
 
     private boolean getAllSensorsFromState(boolean state) {
@@ -61,19 +151,35 @@ public class SecurityService {
 
     /**
      * Internal method that handles alarm status changes based on whether
-     * the camera currently shows a cat.
+     * a camera currently shows a cat. The alarm is only cleared once no camera
+     * shows a cat anymore.
      *
+     * @param cameraId Camera the verdict belongs to.
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
-        catDetection = cat;
+    private void catDetected(String cameraId, Boolean cat) {
+        boolean anyCat;
+        lockState();
+        try {
+            catDetectionByCamera.put(cameraId, cat);
+            anyCat = isCatDetected();
 
-        if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(ALARM);
-        } else if (!cat && getAllSensorsFromState(false)) {
-            setAlarmStatus(NO_ALARM);
+            if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
+                setAlarmStatus(ALARM);
+            } else if (!anyCat && getAllSensorsFromState(false)) {
+                setAlarmStatus(NO_ALARM);
+            }
+        } finally {
+            stateLock.unlock();
         }
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        notifyListeners(sl -> sl.catDetected(anyCat));
+    }
+
+    /**
+     * @return True if the latest image of any camera showed a cat.
+     */
+    public boolean isCatDetected() {
+        return catDetectionByCamera.containsValue(Boolean.TRUE);
     }
 
     /**
@@ -95,8 +201,61 @@ public class SecurityService {
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
-        securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        AlarmStatusEvent event = new AlarmStatusEvent();
+        event.begin();
+        AlarmStatus previousStatus;
+        lockState();
+        try {
+            previousStatus = securityRepository.getAlarmStatus();
+            countAlarmTransition(previousStatus, status);
+            long persistStart = System.nanoTime();
+            securityRepository.setAlarmStatus(status);
+            tracer.persisted(persistStart);
+            tracer.alarmStatusChanged(status);
+            notifyListeners(sl -> sl.notify(status));
+        } finally {
+            stateLock.unlock();
+        }
+        if (event.shouldCommit()) {
+            event.previousStatus = String.valueOf(previousStatus);
+            event.status = String.valueOf(status);
+            event.listeners = statusListeners.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Acquires the state lock, recording how long the caller waited if another thread held it.
+     * The lock is reentrant, so public methods can call each other while holding it.
+     */
+    private void lockState() {
+        if (stateLock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        stateLock.lock();
+        stateLockContended.increment();
+        stateLockWait.recordSince(start);
+    }
+
+    private void countAlarmTransition(AlarmStatus from, AlarmStatus to) {
+        // setting the status it already has is not a transition
+        if (from != null && to != null && from != to) {
+            alarmTransitions[from.ordinal()][to.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Delivers an event to all listeners and records how long they took, in total and each.
+     */
+    private void notifyListeners(Consumer<StatusListener> event) {
+        long start = System.nanoTime();
+        for (StatusListener listener : statusListeners) {
+            long notifyStart = System.nanoTime();
+            event.accept(listener);
+            tracer.listenerNotified(listener, notifyStart);
+        }
+        listenerDispatch.recordSince(start);
     }
 
     /**
@@ -130,6 +289,57 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        sensorEvents.increment();
+        SensorActivationEvent event = new SensorActivationEvent();
+        event.begin();
+        boolean previouslyActive = false;
+        AlarmStatus previousAlarmStatus = null;
+        tracer.begin(EventType.SENSOR);
+        lockState();
+        try {
+            previouslyActive = sensor.getActive();
+            previousAlarmStatus = event.isEnabled() ? securityRepository.getAlarmStatus() : null;
+            updateSensorActivation(sensor, active);
+        } finally {
+            stateLock.unlock();
+            tracer.end();
+            if (event.shouldCommit()) {
+                event.sensorId = String.valueOf(sensor.getSensorId());
+                event.sensorName = sensor.getName();
+                event.previouslyActive = previouslyActive;
+                event.active = Boolean.TRUE.equals(active);
+                event.previousAlarmStatus = String.valueOf(previousAlarmStatus);
+                event.alarmStatus = String.valueOf(securityRepository.getAlarmStatus());
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Applies several sensor changes in order, taking the state lock once so no other event
+     * interleaves with the batch. Listeners are told once that sensors changed. Used by bulk
+     * sources such as the sensor gateway.
+     *
+     * @param sensors Sensors that changed; the first count entries are used
+     * @param active New activation status of each sensor
+     * @param count Number of changes
+     */
+    public void changeSensorActivationStatus(Sensor[] sensors, boolean[] active, int count) {
+        if (count == 0) {
+            return;
+        }
+        lockState();
+        try {
+            for (int i = 0; i < count; i++) {
+                changeSensorActivationStatus(sensors[i], active[i]);
+            }
+            notifyListeners(StatusListener::sensorStatusChanged);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void updateSensorActivation(Sensor sensor, Boolean active) {
         AlarmStatus actualAlarmStatus = securityRepository.getAlarmStatus();
         ArmingStatus armingStatus = securityRepository.getArmingStatus();
 
@@ -146,7 +356,9 @@ public class SecurityService {
 
         // Update the sensor's active status
         sensor.setActive(active);
+        long persistStart = System.nanoTime();
         securityRepository.updateSensor(sensor);
+        tracer.persisted(persistStart);
 
         // Check if the system is armed and if all sensors are inactive
         if (armingStatus == ArmingStatus.ARMED_HOME || armingStatus == ArmingStatus.ARMED_AWAY) {
@@ -155,11 +367,40 @@ public class SecurityService {
 
             // If all sensors are inactive, set the alarm status to NO_ALARM
             if (allSensorsInactive) {
+                AlarmStatus previousStatus = securityRepository.getAlarmStatus();
+                countAlarmTransition(previousStatus, AlarmStatus.NO_ALARM);
+                persistStart = System.nanoTime();
                 securityRepository.setAlarmStatus(AlarmStatus.NO_ALARM);
+                tracer.persisted(persistStart);
+                tracer.alarmStatusChanged(AlarmStatus.NO_ALARM);
+                // listeners that track transitions, such as the pre-alarm recorder, must see the reset
+                if (previousStatus != AlarmStatus.NO_ALARM) {
+                    notifyListeners(sl -> sl.notify(AlarmStatus.NO_ALARM));
+                }
             }
         }
     }
 
+    /**
+     * Sets which labels count as a cat and the confidence they need. Applies to images
+     * processed from now on.
+     *
+     * @param minConfidence Minimum label confidence in percent
+     * @param labels Lower case label names that count as a cat
+     */
+    public void setCatRule(float minConfidence, Set<String> labels) {
+        catLabels = Set.copyOf(labels);
+        catConfidenceThreshold = minConfidence;
+    }
+
+    /**
+     * @return True if the result shows a cat under the current cat rule
+     * @see #setCatRule(float, Set)
+     */
+    public boolean isCat(DetectionResult result) {
+        return result.containsAny(catConfidenceThreshold, catLabels);
+    }
+
     /**
      * Send an image to the SecurityService for processing. The securityService will use its provided
      * ImageService to analyze the image for cats and update the alarm status accordingly.
@@ -167,7 +408,56 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        processImage(DEFAULT_CAMERA, currentCameraImage);
+    }
+
+    /**
+     * Processes the latest image of one of several cameras. Each camera keeps its own cat
+     * verdict and the alarm decision is based on all of them.
+     *
+     * @param cameraId Camera the image comes from
+     * @param currentCameraImage
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage) {
+        processImage(cameraId, currentCameraImage, imageService);
+    }
+
+    /**
+     * Processes the latest image of a camera with a specific detector instead of the
+     * ImageService this SecurityService was created with.
+     *
+     * @param cameraId Camera the image comes from
+     * @param currentCameraImage
+     * @param detector Service used to analyze this image
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage, IService detector) {
+        tracer.begin(EventType.IMAGE);
+        try {
+            ImageScanEvent event = new ImageScanEvent();
+            event.begin();
+            long detectStart = System.nanoTime();
+            DetectionResult result = detector.detect(currentCameraImage);
+            tracer.detected(detectStart);
+            event.end();
+            boolean cat = isCat(result);
+            if (event.shouldCommit()) {
+                event.camera = cameraId;
+                event.imageService = detector.unwrap().getClass();
+                event.width = currentCameraImage == null ? 0 : currentCameraImage.getWidth();
+                event.height = currentCameraImage == null ? 0 : currentCameraImage.getHeight();
+                event.labels = result.getLabels().size();
+                event.catConfidence = result.confidenceOf(catLabels);
+                event.cat = cat;
+                event.commit();
+            }
+            imagesProcessed.increment();
+            if (cat) {
+                catDetections.increment();
+            }
+            catDetected(cameraId, cat);
+        } finally {
+            tracer.end();
+        }
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -179,11 +469,21 @@ public class SecurityService {
     }
 
     public void addSensor(Sensor sensor) {
-        securityRepository.addSensor(sensor);
+        lockState();
+        try {
+            securityRepository.addSensor(sensor);
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     public void removeSensor(Sensor sensor) {
-        securityRepository.removeSensor(sensor);
+        lockState();
+        try {
+            securityRepository.removeSensor(sensor);
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     public ArmingStatus getArmingStatus() {
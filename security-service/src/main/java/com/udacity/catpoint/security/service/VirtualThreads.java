@@ -0,0 +1,70 @@
+package com.udacity.catpoint.security.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads while the project is still compiled for Java 14. On a JDK with
+ * virtual threads (21, or 19 and 20 with preview features enabled) the executors start one
+ * virtual thread per task; elsewhere they fall back to daemon platform threads.
+ */
+public final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    // Thread.ofVirtual(), Thread.Builder.name(String, long), Thread.Builder.factory() and
+    // Executors.newThreadPerTaskExecutor(ThreadFactory), or null without virtual threads
+    private static final Method[] API = lookUp();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return True if this JDK can start virtual threads
+     */
+    public static boolean isSupported() {
+        return API != null;
+    }
+
+    /**
+     * Creates an executor that starts a new thread for every task, virtual if supported.
+     *
+     * @param prefix Name prefix of the threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (API == null) {
+            logger.warn("This JDK has no virtual threads, {} tasks run on platform threads", prefix);
+        } else {
+            try {
+                Object builder = API[1].invoke(API[0].invoke(null), prefix + "-", 1L);
+                ThreadFactory factory = (ThreadFactory) API[2].invoke(builder);
+                return (ExecutorService) API[3].invoke(null, factory);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                logger.warn("Unable to create virtual threads, {} tasks run on platform threads", prefix, ex);
+            }
+        }
+        return Executors.newCachedThreadPool(new DaemonThreadFactory(prefix));
+    }
+
+    private static Method[] lookUp() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method[] api = {
+                    Thread.class.getMethod("ofVirtual"),
+                    builderType.getMethod("name", String.class, long.class),
+                    builderType.getMethod("factory"),
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+            };
+            // fails on JDK 19 and 20 unless preview features are enabled
+            api[0].invoke(null);
+            return api;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+            return null;
+        }
+    }
+}
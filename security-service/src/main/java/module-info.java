@@ -6,4 +6,7 @@ open module com.udacity.catpoint.security {
     requires com.google.gson;
     requires java.sql;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
+    requires org.slf4j;
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.udacity.catpoint.security;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.AdmissionController.SensorOverflow;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks the admission policies: readings of a waiting sensor are collapsed without losing
+ * activations, a full queue sheds deactivations but makes activations wait, and image frames
+ * are shed while sensor events back up. Readings are queued before the controller is started,
+ * so the queue holds exactly what the test put there.
+ */
+class AdmissionControllerTest {
+
+    private MetricsRegistry metrics;
+    private SecurityService securityService;
+    private final List<AlarmStatus> alarmStatuses = new CopyOnWriteArrayList<>();
+    private AdmissionController admission;
+    private Sensor door;
+    private Sensor window;
+
+    @BeforeEach
+    void init() {
+        metrics = new MetricsRegistry();
+        securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService(), metrics);
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                alarmStatuses.add(status);
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+        door = new Sensor("Door", SensorType.DOOR);
+        window = new Sensor("Window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (admission != null) {
+            admission.close();
+        }
+    }
+
+    @Test
+    void readingsOfWaitingSensor_collapseToLatestState() throws InterruptedException {
+        admission = new AdmissionController(securityService, 16, SensorOverflow.BLOCK, 16, 16, metrics);
+        admission.offerSensor(door, true);
+        admission.offerSensor(door, false);
+        admission.offerSensor(door, true);
+        admission.offerSensor(window, false);
+        admission.offerSensor(window, false);
+
+        assertEquals(2, admission.getPendingSensors());
+        assertEquals(3, metrics.counter("admission.sensorsCollapsed").sum());
+        admission.start();
+        awaitTrue(() -> metrics.histogram("admission.batchApply").getCount() > 0);
+        assertTrue(door.getActive());
+        assertFalse(window.getActive());
+    }
+
+    @Test
+    void activationFollowedByDeactivation_isStillApplied() throws InterruptedException {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        alarmStatuses.clear();
+        admission = new AdmissionController(securityService, 16, SensorOverflow.BLOCK, 16, 16, metrics);
+        admission.offerSensor(door, true);
+        admission.offerSensor(door, false);
+
+        admission.start();
+        awaitTrue(() -> metrics.histogram("admission.batchApply").getCount() > 0);
+        assertTrue(alarmStatuses.contains(AlarmStatus.PENDING_ALARM), "activation was dropped: " + alarmStatuses);
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    void fullQueue_shedsDeactivationsButActivationsWait() throws Exception {
+        admission = new AdmissionController(securityService, 1, SensorOverflow.SHED, 16, 16, metrics);
+        assertTrue(admission.offerSensor(door, false));
+
+        assertFalse(admission.offerSensor(window, false));
+        assertEquals(1, metrics.counter("admission.sensorsShed").sum());
+
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> activation = producer.submit(() -> admission.offerSensor(window, true));
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertFalse(activation.isDone(), "activation did not wait for room");
+            admission.start();
+            assertTrue(activation.get(5, TimeUnit.SECONDS));
+        } finally {
+            producer.shutdownNow();
+        }
+        awaitTrue(window::getActive);
+    }
+
+    @Test
+    void imageFrames_shedWhileSensorsBackUp() throws InterruptedException {
+        admission = new AdmissionController(securityService, 16, SensorOverflow.BLOCK, 16, 1, metrics);
+        assertTrue(admission.admitImage());
+
+        admission.offerSensor(door, true);
+        assertFalse(admission.admitImage());
+        assertEquals(1, metrics.counter("admission.imagesShed").sum());
+
+        admission.start();
+        awaitTrue(() -> admission.getPendingSensors() == 0);
+        assertTrue(admission.admitImage());
+    }
+
+    @Test
+    void manySensorsThroughSmallQueue_eachEndsInLatestState() throws InterruptedException {
+        Sensor[] sensors = new Sensor[40];
+        for (int i = 0; i < sensors.length; i++) {
+            sensors[i] = new Sensor("Motion " + i, SensorType.MOTION);
+            securityService.addSensor(sensors[i]);
+        }
+        admission = new AdmissionController(securityService, 8, SensorOverflow.BLOCK, 3, 16, metrics);
+        admission.start();
+        for (int round = 0; round < 25; round++) {
+            for (int i = 0; i < sensors.length; i++) {
+                // round 24 leaves every third sensor active
+                admission.offerSensor(sensors[(i * 7 + round) % sensors.length], (i + round) % 3 == 0);
+            }
+        }
+
+        awaitTrue(() -> admission.getPendingSensors() == 0);
+        for (int i = 0; i < sensors.length; i++) {
+            Sensor sensor = sensors[(i * 7 + 24) % sensors.length];
+            boolean expected = (i + 24) % 3 == 0;
+            awaitTrue(() -> sensor.getActive() == expected);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+}
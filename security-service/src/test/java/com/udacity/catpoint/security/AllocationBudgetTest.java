@@ -0,0 +1,220 @@
+package com.udacity.catpoint.security;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Locks in how much the core SecurityService operations allocate. Each budget is a fixed
+ * part plus a part per sensor, and for operations that are quadratic in the sensor count a
+ * part per sensor pair, recorded from the current implementation with some headroom
+ * for JIT differences; lower them when an optimization lands. The service budgets use the
+ * in-memory repository to keep persistence out of the numbers; the preferences-backed
+ * repository, which writes the whole sensor set on every sensor change, has budgets of its own.
+ * <p>
+ * Allocation is read from com.sun.management.ThreadMXBean, through reflection because the
+ * security module does not read jdk.management. On JVMs without it the tests are skipped.
+ */
+class AllocationBudgetTest {
+
+    private static final int WARMUP_OPERATIONS = 20_000;
+    private static final int MEASURED_OPERATIONS = 10_000;
+
+    // budgets in bytes per operation: fixed + per sensor * sensor count. Measured on JDK 17:
+    // sensor toggle 310-820 bytes, alarm status 80-190 bytes, arming change about 700 bytes per sensor
+    private static final long SENSOR_TOGGLE_FIXED = 1_024;
+    private static final long SENSOR_TOGGLE_PER_SENSOR = 1;
+    private static final long ALARM_STATUS_FIXED = 384;
+    private static final long ALARM_STATUS_PER_SENSOR = 0;
+    private static final long ARMING_CHANGE_FIXED = 1_536;
+    private static final long ARMING_CHANGE_PER_SENSOR = 1_024;
+
+    // the same operations on the preferences-backed repository, which writes the sensor set as
+    // JSON on every sensor change. Measured on JDK 17: sensor toggle 1.2 KB + 430 bytes per
+    // sensor, alarm status 40-80 bytes. An arming change resets every sensor and rewrites the
+    // set each time, about 1.6 KB per sensor + 440 bytes per sensor pair
+    private static final long PREFERENCES_SENSOR_TOGGLE_FIXED = 2_048;
+    private static final long PREFERENCES_SENSOR_TOGGLE_PER_SENSOR = 640;
+    private static final long PREFERENCES_ALARM_STATUS_FIXED = 384;
+    private static final long PREFERENCES_ALARM_STATUS_PER_SENSOR = 0;
+    private static final long PREFERENCES_ARMING_CHANGE_FIXED = 2_048;
+    private static final long PREFERENCES_ARMING_CHANGE_PER_SENSOR = 2_048;
+    private static final long PREFERENCES_ARMING_CHANGE_PER_SENSOR_PAIR = 640;
+
+    private static final String PREFERENCES_NODE = "catpoint-allocation-test";
+
+    private static Method threadAllocatedBytes;
+    private static ThreadMXBean threadBean;
+
+    @BeforeAll
+    static void findAllocationCounter() {
+        threadBean = ManagementFactory.getThreadMXBean();
+        try {
+            Class<?> extended = Class.forName("com.sun.management.ThreadMXBean");
+            if (extended.isInstance(threadBean)) {
+                threadAllocatedBytes = extended.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ReflectiveOperationException ex) {
+            threadAllocatedBytes = null;
+        }
+    }
+
+    @BeforeEach
+    @AfterEach
+    void clearPreferences() throws BackingStoreException {
+        Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(PREFERENCES_NODE).removeNode();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void changeSensorActivationStatus_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(new InMemorySecurityRepository(), sensorCount);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Sensor sensor = securityService.getSensors().iterator().next();
+        boolean[] active = {false};
+
+        assertWithinBudget("changeSensorActivationStatus", sensorCount, SENSOR_TOGGLE_FIXED, SENSOR_TOGGLE_PER_SENSOR, () -> {
+            active[0] = !active[0];
+            securityService.changeSensorActivationStatus(sensor, active[0]);
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void setAlarmStatus_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(new InMemorySecurityRepository(), sensorCount);
+        boolean[] alarm = {false};
+
+        assertWithinBudget("setAlarmStatus", sensorCount, ALARM_STATUS_FIXED, ALARM_STATUS_PER_SENSOR, () -> {
+            alarm[0] = !alarm[0];
+            securityService.setAlarmStatus(alarm[0] ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM);
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100, 1000})
+    void setArmingStatus_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(new InMemorySecurityRepository(), sensorCount);
+        boolean[] home = {false};
+
+        assertWithinBudget("setArmingStatus", sensorCount, ARMING_CHANGE_FIXED, ARMING_CHANGE_PER_SENSOR, () -> {
+            home[0] = !home[0];
+            securityService.setArmingStatus(home[0] ? ArmingStatus.ARMED_HOME : ArmingStatus.ARMED_AWAY);
+        });
+    }
+
+    // the stored sensor set is one preference value of at most 8 KB, about 50 sensors
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void preferencesSensorToggle_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(preferencesRepository(), sensorCount);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Sensor sensor = securityService.getSensors().iterator().next();
+        boolean[] active = {false};
+
+        assertWithinBudget("preferences changeSensorActivationStatus", sensorCount, PREFERENCES_SENSOR_TOGGLE_FIXED,
+                PREFERENCES_SENSOR_TOGGLE_PER_SENSOR, () -> {
+                    active[0] = !active[0];
+                    securityService.changeSensorActivationStatus(sensor, active[0]);
+                });
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void preferencesAlarmStatus_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(preferencesRepository(), sensorCount);
+        boolean[] alarm = {false};
+
+        assertWithinBudget("preferences setAlarmStatus", sensorCount, PREFERENCES_ALARM_STATUS_FIXED,
+                PREFERENCES_ALARM_STATUS_PER_SENSOR, () -> {
+                    alarm[0] = !alarm[0];
+                    securityService.setAlarmStatus(alarm[0] ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM);
+                });
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void preferencesArmingStatus_staysWithinBudget(int sensorCount) {
+        SecurityService securityService = securityService(preferencesRepository(), sensorCount);
+        boolean[] home = {false};
+
+        assertWithinBudget("preferences setArmingStatus", sensorCount, PREFERENCES_ARMING_CHANGE_FIXED,
+                PREFERENCES_ARMING_CHANGE_PER_SENSOR, PREFERENCES_ARMING_CHANGE_PER_SENSOR_PAIR, () -> {
+                    home[0] = !home[0];
+                    securityService.setArmingStatus(home[0] ? ArmingStatus.ARMED_HOME : ArmingStatus.ARMED_AWAY);
+                });
+    }
+
+    private static SecurityRepository preferencesRepository() {
+        return new PretendDatabaseSecurityRepositoryImpl(PREFERENCES_NODE);
+    }
+
+    private static SecurityService securityService(SecurityRepository repository, int sensorCount) {
+        SecurityService securityService = new SecurityService(repository, new FakeImageService());
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < sensorCount; i++) {
+            sensors.add(new Sensor("Sensor " + i, types[i % types.length]));
+        }
+        sensors.forEach(securityService::addSensor);
+        return securityService;
+    }
+
+    private static void assertWithinBudget(String operation, int sensorCount, long fixed, long perSensor, Runnable action) {
+        assertWithinBudget(operation, sensorCount, fixed, perSensor, 0, action);
+    }
+
+    /**
+     * @param perSensorPair Part of the budget that grows with the square of the sensor count
+     */
+    private static void assertWithinBudget(String operation, int sensorCount, long fixed, long perSensor,
+                                           long perSensorPair, Runnable action) {
+        assumeTrue(threadAllocatedBytes != null, "thread allocation counter not available");
+        // large sensor counts are slow per operation, so they need fewer runs to get stable numbers
+        int work = perSensorPair > 0 ? sensorCount * sensorCount : sensorCount;
+        int scale = Math.max(1, work / 10);
+        for (int i = 0; i < WARMUP_OPERATIONS / scale; i++) {
+            action.run();
+        }
+        int operations = MEASURED_OPERATIONS / scale;
+        long before = allocatedBytes();
+        for (int i = 0; i < operations; i++) {
+            action.run();
+        }
+        long perOperation = (allocatedBytes() - before) / operations;
+        long budget = fixed + perSensor * sensorCount + perSensorPair * sensorCount * sensorCount;
+        assertTrue(perOperation <= budget, () -> operation + " with " + sensorCount + " sensors allocated "
+                + perOperation + " bytes per operation, budget is " + budget);
+    }
+
+    private static long allocatedBytes() {
+        try {
+            return (long) threadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
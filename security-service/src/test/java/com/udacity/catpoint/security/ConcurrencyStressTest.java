@@ -0,0 +1,310 @@
+package com.udacity.catpoint.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Hammers SecurityService and each SecurityRepository implementation from many threads with
+ * interleaved sensor toggles, arming changes, image verdicts, sensor additions and removals and
+ * listener registrations. While the workers run, a listener checks that the alarm is never
+ * NO_ALARM while armed with an active sensor whenever the service reports completed sensor or
+ * arming changes, which it does under the state lock. Alarm notifications are not checked, as
+ * they are sent halfway through an update. Every round ends with all workers stopped, and the
+ * settled state is checked:
+ * <ul>
+ *     <li>while armed, the alarm is never NO_ALARM if any sensor is active</li>
+ *     <li>the repository holds exactly the sensors that were added and not removed, each once</li>
+ *     <li>a repository reloaded from preferences holds the same state as the one written</li>
+ *     <li>every contended acquisition of the state lock was recorded, and none waited long</li>
+ * </ul>
+ * New repository implementations and concurrency modes should be added to the parameters.
+ */
+class ConcurrencyStressTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS_PER_ROUND = 500;
+    private static final int STABLE_SENSORS = 20;
+    private static final int CAMERAS = 4;
+    private static final String PREFERENCES_NODE = "catpoint-stress-test";
+    private static final long MAX_LOCK_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final DetectionResult CAT = DetectionResult.of("Cat", 90.0f);
+    private static final DetectionResult NO_CAT = DetectionResult.of("Dog", 90.0f);
+
+    private ExecutorService workers;
+
+    @BeforeEach
+    void init() throws BackingStoreException {
+        clearPreferences();
+        workers = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        workers.shutdownNow();
+        clearPreferences();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"memory", "preferences"})
+    void concurrentEvents_keepStateConsistent(String repositoryType) throws Exception {
+        SecurityRepository repository = repository(repositoryType);
+        MetricsRegistry metrics = new MetricsRegistry();
+        SecurityService securityService = new SecurityService(repository, image -> NO_CAT, metrics);
+        List<Sensor> stableSensors = new ArrayList<>();
+        for (int i = 0; i < STABLE_SENSORS; i++) {
+            Sensor sensor = new Sensor("Stable " + i, SensorType.values()[i % SensorType.values().length]);
+            stableSensors.add(sensor);
+            securityService.addSensor(sensor);
+        }
+        List<String> violations = new CopyOnWriteArrayList<>();
+        securityService.addStatusListener(new InvariantCheck(securityService, violations));
+        Worker[] threads = new Worker[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Worker(i, securityService, stableSensors);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            runRound(threads, round);
+
+            Set<Sensor> expected = new HashSet<>(stableSensors);
+            for (Worker worker : threads) {
+                if (worker.churnSensor != null) {
+                    expected.add(worker.churnSensor);
+                }
+            }
+            assertTrue(violations.isEmpty(), repositoryType + " round " + round + ": " + violations);
+            assertSettledState(securityService, expected, repositoryType + " round " + round);
+        }
+
+        if (repository instanceof PretendDatabaseSecurityRepositoryImpl) {
+            assertSameState(repository, new PretendDatabaseSecurityRepositoryImpl(PREFERENCES_NODE));
+        }
+        assertContentionRecorded(repositoryType, metrics);
+    }
+
+    private void runRound(Worker[] threads, int round) throws Exception {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (Worker worker : threads) {
+            results.add(workers.submit(() -> {
+                startSignal.await();
+                worker.run(round);
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void assertSettledState(SecurityService securityService, Set<Sensor> expected, String context) {
+        Set<Sensor> sensors = securityService.getSensors();
+        boolean anyActive = sensors.stream().anyMatch(Sensor::getActive);
+        if (anyActive && securityService.getArmingStatus() != ArmingStatus.DISARMED) {
+            assertNotEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus(),
+                    context + ": no alarm while armed with an active sensor");
+        }
+        assertEquals(expected.size(), sensors.size(), context + ": sensor count");
+        Set<UUID> ids = new HashSet<>();
+        for (Sensor sensor : sensors) {
+            assertTrue(ids.add(sensor.getSensorId()), context + ": sensor " + sensor.getName() + " stored twice");
+        }
+        assertEquals(expected, new HashSet<>(sensors), context + ": sensors");
+    }
+
+    private static void assertSameState(SecurityRepository written, SecurityRepository reloaded) {
+        assertEquals(written.getAlarmStatus(), reloaded.getAlarmStatus(), "reloaded alarm status");
+        assertEquals(written.getArmingStatus(), reloaded.getArmingStatus(), "reloaded arming status");
+        assertEquals(activeById(written.getSensors()), activeById(reloaded.getSensors()), "reloaded sensors");
+    }
+
+    private static Map<UUID, Boolean> activeById(Set<Sensor> sensors) {
+        Map<UUID, Boolean> activeById = new HashMap<>();
+        sensors.forEach(sensor -> activeById.put(sensor.getSensorId(), sensor.getActive()));
+        return activeById;
+    }
+
+    private static void assertContentionRecorded(String repositoryType, MetricsRegistry metrics) {
+        long contended = metrics.counter("security.stateLockContended").sum();
+        LatencyHistogram wait = metrics.histogram("security.stateLockWait");
+        assertEquals(contended, wait.getCount(), repositoryType + ": contended acquisitions without a wait time");
+        assertTrue(wait.getMaxNanos() < MAX_LOCK_WAIT_NANOS,
+                repositoryType + ": state lock waited " + wait.getMaxNanos() / 1_000_000 + " ms");
+    }
+
+    private static SecurityRepository repository(String type) {
+        switch (type) {
+            case "memory":
+                return new InMemorySecurityRepository();
+            case "preferences":
+                return new PretendDatabaseSecurityRepositoryImpl(PREFERENCES_NODE);
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    private static void clearPreferences() throws BackingStoreException {
+        Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class).node(PREFERENCES_NODE).removeNode();
+    }
+
+    /**
+     * Records a violation if the alarm is NO_ALARM while armed with an active sensor. Runs on
+     * the thread that completed the change, under the state lock, so it sees a consistent state.
+     */
+    private static class InvariantCheck implements StatusListener {
+
+        private final SecurityService securityService;
+        private final List<String> violations;
+
+        InvariantCheck(SecurityService securityService, List<String> violations) {
+            this.securityService = securityService;
+            this.violations = violations;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            ArmingStatus armingStatus = securityService.getArmingStatus();
+            if (armingStatus != ArmingStatus.DISARMED && securityService.getAlarmStatus() == AlarmStatus.NO_ALARM
+                    && securityService.getSensors().stream().anyMatch(Sensor::getActive)) {
+                violations.add("no alarm while " + armingStatus + " with an active sensor");
+            }
+        }
+    }
+
+    /**
+     * One stress thread. Besides the shared sensors it owns one sensor it adds and removes and
+     * one listener it registers and unregisters, so the expected state is known after a round.
+     * Its own sensor is always added as a new, inactive sensor and never toggled.
+     */
+    private static class Worker {
+
+        private final int index;
+        private final SecurityService securityService;
+        private final List<Sensor> stableSensors;
+        private final StatusListener listener;
+        private final Sensor[] batchSensors = new Sensor[3];
+        private final boolean[] batchActive = new boolean[3];
+        private final LongAdder notifications = new LongAdder();
+        private Sensor churnSensor;
+        private boolean listening;
+
+        Worker(int index, SecurityService securityService, List<Sensor> stableSensors) {
+            this.index = index;
+            this.securityService = securityService;
+            this.stableSensors = stableSensors;
+            this.listener = new StatusListener() {
+                @Override
+                public void notify(AlarmStatus status) {
+                    notifications.increment();
+                }
+
+                @Override
+                public void catDetected(boolean catDetected) {
+                    notifications.increment();
+                }
+
+                @Override
+                public void sensorStatusChanged() {
+                    notifications.increment();
+                }
+            };
+        }
+
+        void run(int round) {
+            Random random = new Random(round * (long) THREADS + index);
+            ArmingStatus[] armingStatuses = ArmingStatus.values();
+            for (int i = 0; i < OPERATIONS_PER_ROUND; i++) {
+                int operation = random.nextInt(100);
+                if (operation < 25) {
+                    Sensor sensor = stableSensors.get(random.nextInt(stableSensors.size()));
+                    securityService.changeSensorActivationStatus(sensor, random.nextBoolean());
+                } else if (operation < 50) {
+                    // batches end with a sensor notification, which the invariant check hooks into
+                    int count = 1 + random.nextInt(batchSensors.length);
+                    for (int j = 0; j < count; j++) {
+                        batchSensors[j] = stableSensors.get(random.nextInt(stableSensors.size()));
+                        batchActive[j] = random.nextBoolean();
+                    }
+                    securityService.changeSensorActivationStatus(batchSensors, batchActive, count);
+                } else if (operation < 60) {
+                    securityService.setArmingStatus(armingStatuses[random.nextInt(armingStatuses.length)]);
+                } else if (operation < 80) {
+                    DetectionResult verdict = random.nextInt(4) == 0 ? CAT : NO_CAT;
+                    IService detector = image -> verdict;
+                    securityService.processImage("camera-" + random.nextInt(CAMERAS), null, detector);
+                } else if (operation < 90) {
+                    churnSensor();
+                } else {
+                    churnListener();
+                }
+            }
+        }
+
+        private void churnSensor() {
+            if (churnSensor == null) {
+                churnSensor = new Sensor("Worker " + index, SensorType.DOOR);
+                securityService.addSensor(churnSensor);
+            } else {
+                securityService.removeSensor(churnSensor);
+                churnSensor = null;
+            }
+        }
+
+        private void churnListener() {
+            if (listening) {
+                securityService.removeStatusListener(listener);
+            } else {
+                securityService.addStatusListener(listener);
+            }
+            listening = !listening;
+        }
+    }
+}
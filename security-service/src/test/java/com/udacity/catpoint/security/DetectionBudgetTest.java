@@ -0,0 +1,102 @@
+package com.udacity.catpoint.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.udacity.catpoint.security.camera.DetectionBudget;
+import com.udacity.catpoint.security.camera.DetectionBudget.Level;
+import com.udacity.catpoint.security.camera.DetectorTier;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Checks how the detection budget picks its level and tier from the system status and how it
+ * spreads classifications over time and cameras.
+ */
+class DetectionBudgetTest {
+
+    private final AtomicReference<ArmingStatus> armingStatus = new AtomicReference<>(ArmingStatus.DISARMED);
+    private final AtomicReference<AlarmStatus> alarmStatus = new AtomicReference<>(AlarmStatus.NO_ALARM);
+    private DetectionBudget budget;
+
+    @BeforeEach
+    void init() {
+        budget = new DetectionBudget(armingStatus::get, alarmStatus::get, 600);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "DISARMED, NO_ALARM, DISARMED, LOCAL",
+            "ARMED_AWAY, NO_ALARM, ARMED_AWAY, CASCADE",
+            "ARMED_HOME, NO_ALARM, ARMED_HOME, CASCADE",
+            "ARMED_HOME, PENDING_ALARM, PENDING_ALARM, REMOTE",
+            "ARMED_AWAY, ALARM, ALARM, CASCADE",
+            "DISARMED, ALARM, ALARM, CASCADE"
+    })
+    void levelAndTier_followSystemStatus(ArmingStatus arming, AlarmStatus alarm, Level level, DetectorTier tier) {
+        armingStatus.set(arming);
+        alarmStatus.set(alarm);
+
+        assertEquals(level, budget.currentLevel());
+        assertEquals(tier, budget.currentTier());
+    }
+
+    @Test
+    void configure_overridesShareAndTier() {
+        budget.configure(Level.DISARMED, 0.5, DetectorTier.REMOTE);
+
+        assertEquals(DetectorTier.REMOTE, budget.currentTier());
+        assertEquals(300.0, budget.currentRatePerMinute(), 1e-9);
+    }
+
+    @Test
+    void configure_rejectsShareOutsideZeroToOne() {
+        assertThrows(IllegalArgumentException.class, () -> budget.configure(Level.ALARM, 1.5, DetectorTier.LOCAL));
+        assertThrows(IllegalArgumentException.class, () -> budget.configure(Level.ALARM, -0.1, DetectorTier.LOCAL));
+    }
+
+    @Test
+    void zeroShare_refusesEveryFrame() {
+        budget.configure(Level.DISARMED, 0.0, DetectorTier.LOCAL);
+
+        assertFalse(budget.tryAcquire("front"));
+    }
+
+    @Test
+    void cameraInterval_refusesFramesSampledTooSoon() {
+        armingStatus.set(ArmingStatus.ARMED_HOME);
+
+        assertTrue(budget.tryAcquire("front"));
+        // 360 per minute leave one frame every 167 ms
+        assertFalse(budget.tryAcquire("front"));
+    }
+
+    @Test
+    void sharedBucket_limitsFramesAcrossCameras() {
+        // disarmed leaves 60 per minute, a burst of a single classification
+        assertTrue(budget.tryAcquire("front"));
+        assertFalse(budget.tryAcquire("back"));
+    }
+
+    @Test
+    void pendingAlarm_spendsWholeBudget() {
+        armingStatus.set(ArmingStatus.ARMED_HOME);
+        alarmStatus.set(AlarmStatus.PENDING_ALARM);
+
+        assertEquals(600.0, budget.currentRatePerMinute(), 1e-9);
+    }
+
+    @Test
+    void nonPositiveBudget_isRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DetectionBudget(armingStatus::get, alarmStatus::get, 0));
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.catpoint.security;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.udacity.catpoint.security.camera.EncodedFrame;
+import com.udacity.catpoint.security.camera.FrameRingBuffer;
+
+/**
+ * Checks that the ring keeps the newest frames in order once it wraps around, skips frames
+ * that do not fit a slot and records nothing while any freeze is still in effect.
+ */
+class FrameRingBufferTest {
+
+    @TempDir
+    Path folder;
+
+    private final FrameRingBuffer ring = new FrameRingBuffer(3, 16);
+
+    @Test
+    void fullRing_keepsTheNewestFramesOldestFirst() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.record(frame(i, 4 + i)));
+        }
+
+        assertEquals(3, ring.dumpTo(folder));
+
+        List<Path> files = files(folder);
+        assertEquals(List.of("1002-000002.jpg", "1003-000003.jpg", "1004-000004.jpg"),
+                files.stream().map(file -> file.getFileName().toString()).collect(Collectors.toList()));
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(bytes(i + 2, 6 + i), Files.readAllBytes(files.get(i)));
+        }
+        assertEquals(5, ring.getWritten());
+    }
+
+    @Test
+    void partlyFilledRing_dumpsOnlyRecordedFrames() throws IOException {
+        ring.record(frame(0, 8));
+
+        assertEquals(1, ring.dumpTo(folder));
+    }
+
+    @Test
+    void oversizedFrame_isSkipped() throws IOException {
+        assertFalse(ring.record(frame(0, 17)));
+        assertTrue(ring.record(frame(1, 16)));
+
+        assertEquals(1, ring.getOversized());
+        assertEquals(1, ring.dumpTo(folder));
+        assertEquals(16, Files.size(files(folder).get(0)));
+    }
+
+    @Test
+    void frozenRing_dumpsTheFramesBeforeTheFreeze() throws IOException {
+        ring.record(frame(0, 4));
+        ring.record(frame(1, 4));
+        ring.freeze();
+
+        assertFalse(ring.record(frame(2, 4)));
+        assertEquals(2, ring.dumpTo(folder));
+        ring.unfreeze();
+
+        assertTrue(ring.record(frame(3, 4)));
+        assertEquals(1, ring.getIgnoredWhileFrozen());
+    }
+
+    @Test
+    void nestedFreezes_keepTheRingFrozenUntilAllAreUndone() {
+        ring.freeze();
+        ring.freeze();
+        ring.unfreeze();
+
+        assertTrue(ring.isFrozen());
+        assertFalse(ring.record(frame(0, 4)));
+
+        ring.unfreeze();
+        assertTrue(ring.record(frame(1, 4)));
+    }
+
+    @Test
+    void unfreezeWithoutFreeze_isRejected() {
+        assertThrows(IllegalStateException.class, ring::unfreeze);
+    }
+
+    /**
+     * A JPEG-looking frame captured at 1000 + i, filled with i.
+     */
+    private static EncodedFrame frame(int i, int length) {
+        return new EncodedFrame("front", bytes(i, length), length, 1000 + i);
+    }
+
+    private static byte[] bytes(int i, int length) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) i);
+        data[0] = (byte) 0xff;
+        data[1] = (byte) 0xd8;
+        return data;
+    }
+
+    private static List<Path> files(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.udacity.catpoint.security;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.ExecutionMode;
+import com.udacity.catpoint.security.service.SecurityEventExecutor;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks that tasks over the limit wait in the queue rather than on threads of their own, and
+ * that a failing task fails its future without holding on to its permit.
+ */
+class SecurityEventExecutorTest {
+
+    private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final SecurityService securityService =
+            new SecurityService(new InMemorySecurityRepository(), ignored -> DetectionResult.none(), metrics);
+    private final SecurityEventExecutor executor =
+            new SecurityEventExecutor(securityService, ExecutionMode.PLATFORM, 4, 2, metrics);
+
+    @AfterEach
+    void close() {
+        executor.close();
+    }
+
+    @Test
+    void scansOverTheLimit_waitWithoutAThread() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        IService blocking = ignored -> {
+            threads.add(Thread.currentThread());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return DetectionResult.none();
+        };
+
+        List<CompletableFuture<Void>> scans = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            scans.add(executor.processImage("front", image, blocking));
+        }
+        Thread.sleep(100);
+        assertEquals(2, threads.size(), "threads started while two permits are held");
+        release.countDown();
+
+        CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void failingScan_failsItsFutureAndReleasesThePermit() throws Exception {
+        IService failing = ignored -> {
+            throw new IllegalStateException("detector down");
+        };
+
+        for (int i = 0; i < 3; i++) {
+            ExecutionException ex = assertThrows(ExecutionException.class,
+                    () -> executor.processImage("front", image, failing).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+        }
+        executor.processImage("front", image, ignored -> DetectionResult.none()).get(5, TimeUnit.SECONDS);
+        assertTrue(metrics.histogram("execution.imagePermitWait").getCount() >= 4);
+    }
+}
@@ -13,7 +13,6 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyFloat;
 import org.mockito.Mock;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -21,6 +20,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.udacity.catpoint.image.service.DetectionResult;
 import com.udacity.catpoint.image.service.IService;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
@@ -32,6 +32,9 @@ import com.udacity.catpoint.security.service.SecurityService;
 @ExtendWith(MockitoExtension.class)
 class SecurityServiceTest {
 
+    private static final DetectionResult CAT = DetectionResult.of("Cat", 90.0f);
+    private static final DetectionResult NO_CAT = DetectionResult.of("Dog", 90.0f);
+
     private SecurityService securityService;
     private Sensor testSensor;
     private Set<Sensor> testSensors;
@@ -149,7 +152,7 @@ class SecurityServiceTest {
     void cat_detected_and_arming_status_armed_home_shuold_alarm_status_set_to_alarm() {
         //cat detected
         BufferedImage mockImage = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
-        when(imageService.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        when(imageService.detect(any())).thenReturn(CAT);
 
         // arming status is armed home
         when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
@@ -168,7 +171,7 @@ class SecurityServiceTest {
         when(securityRepository.getSensors()).thenReturn(testSensors);
 
         // cat not detected
-        when(imageService.imageContainsCat(any(), anyFloat())).thenReturn(false);
+        when(imageService.detect(any())).thenReturn(NO_CAT);
 
         securityService.processImage(mock(BufferedImage.class));
 
@@ -226,7 +229,7 @@ class SecurityServiceTest {
     void arming_status_is_change_to_armed_home_and_cat_detected_should_set_alarm_status_to_alarm() {
         // first: cat detected
         BufferedImage mockImage = new BufferedImage(123, 456, BufferedImage.TYPE_INT_RGB);
-        when(imageService.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        when(imageService.detect(any())).thenReturn(CAT);
         securityService.processImage(mockImage);
 
         // second: change arming status to armed home
@@ -246,4 +249,58 @@ class SecurityServiceTest {
 
         verify(securityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
     }
+
+    //case 13: one camera shows a cat & another camera shows none -> alarm must not be cleared
+    @Test
+    void cat_on_one_camera_and_no_cat_on_another_should_not_clear_alarm() {
+        BufferedImage mockImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        when(imageService.detect(any())).thenReturn(CAT, NO_CAT);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+
+        securityService.processImage("front-door", mockImage);
+        securityService.processImage("garden", mockImage);
+
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+
+    //case 14: every camera stopped showing a cat & all sensors inactive -> set alarm status to NO ALARM
+    @Test
+    void cat_gone_from_all_cameras_and_all_sensors_inactive_should_set_alarm_status_to_no_alarm() {
+        BufferedImage mockImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        testSensors.forEach(sensor -> sensor.setActive(false));
+        when(securityRepository.getSensors()).thenReturn(testSensors);
+        when(imageService.detect(any())).thenReturn(CAT, NO_CAT, NO_CAT);
+
+        securityService.processImage("front-door", mockImage);
+        securityService.processImage("garden", mockImage);
+        securityService.processImage("front-door", mockImage);
+
+        verify(securityRepository).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+
+    //case 15: a kitten label counts as a cat -> alarmStatus set to ALARM when armed home
+    @Test
+    void kitten_detected_and_arming_status_armed_home_should_alarm_status_set_to_alarm() {
+        BufferedImage mockImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        when(imageService.detect(any())).thenReturn(DetectionResult.of("Kitten", 75.0f));
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+
+        securityService.processImage(mockImage);
+
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    //case 16: cat label below the confidence threshold is not a cat -> alarm status unchanged
+    @Test
+    void cat_label_below_confidence_threshold_should_not_change_alarm_status() {
+        BufferedImage mockImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        when(imageService.detect(any())).thenReturn(DetectionResult.of("Cat", 70.0f));
+        when(securityRepository.getSensors()).thenReturn(testSensors);
+        securityService.setCatRule(80.0f, DetectionResult.CAT_LABELS);
+
+        securityService.processImage(mockImage);
+
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.ALARM);
+    }
 }
@@ -0,0 +1,148 @@
+package com.udacity.catpoint.security;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.server.SensorFrame;
+import com.udacity.catpoint.security.server.SensorGatewayServer;
+import com.udacity.catpoint.security.service.AdmissionController;
+import com.udacity.catpoint.security.service.AdmissionController.SensorOverflow;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Sends frames to a gateway on a loopback port and checks what reaches the security service:
+ * whole and split frames are applied, readings of unknown sensors and stale readings are
+ * dropped, and a malformed frame closes the connection.
+ */
+class SensorGatewayServerTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final SecurityService securityService =
+            new SecurityService(new InMemorySecurityRepository(), new FakeImageService(), metrics);
+    private final Sensor door = new Sensor("Door", SensorType.DOOR);
+    private AdmissionController admission;
+    private SensorGatewayServer server;
+    private SocketChannel client;
+
+    @BeforeEach
+    void init() throws IOException {
+        securityService.addSensor(door);
+        admission = new AdmissionController(securityService, 16, SensorOverflow.BLOCK, 16, 16, metrics);
+        admission.start();
+        server = new SensorGatewayServer(securityService, admission,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), metrics);
+        server.start();
+        client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        client.close();
+        server.close();
+        admission.close();
+    }
+
+    @Test
+    void frame_activatesTheSensor() throws IOException {
+        send(frame(door.getSensorId(), true, System.currentTimeMillis()));
+
+        awaitTrue(door::getActive);
+        assertEquals(1, counter("gateway.frames"));
+    }
+
+    @Test
+    void frameSplitAcrossWrites_isReassembled() throws Exception {
+        ByteBuffer frames = ByteBuffer.allocate(2 * SensorFrame.BYTES);
+        long now = System.currentTimeMillis();
+        SensorFrame.write(frames, door.getSensorId(), true, now);
+        SensorFrame.write(frames, door.getSensorId(), false, now + 1);
+        frames.flip();
+
+        frames.limit(10);
+        client.write(frames);
+        Thread.sleep(50);
+        frames.limit(SensorFrame.BYTES + 3);
+        client.write(frames);
+        Thread.sleep(50);
+        frames.limit(frames.capacity());
+        client.write(frames);
+
+        awaitTrue(() -> counter("gateway.frames") == 2);
+        assertEquals(0, counter("gateway.invalidFrames"));
+    }
+
+    @Test
+    void unknownSensor_isDropped() throws IOException {
+        send(frame(UUID.randomUUID(), true, System.currentTimeMillis()));
+
+        awaitTrue(() -> counter("gateway.unknownFrames") == 1);
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    void olderReading_isDroppedAsStale() throws IOException {
+        long now = System.currentTimeMillis();
+        ByteBuffer frames = ByteBuffer.allocate(2 * SensorFrame.BYTES);
+        SensorFrame.write(frames, door.getSensorId(), true, now);
+        SensorFrame.write(frames, door.getSensorId(), false, now - 1_000);
+        frames.flip();
+        send(frames);
+
+        awaitTrue(() -> counter("gateway.staleFrames") == 1);
+        awaitTrue(door::getActive);
+    }
+
+    @Test
+    void malformedFrame_closesTheConnection() throws IOException {
+        ByteBuffer frame = frame(door.getSensorId(), true, System.currentTimeMillis());
+        frame.put(16, (byte) 7);
+        send(frame);
+
+        // the server closes its end, so the client reads end of stream
+        assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+        assertEquals(1, counter("gateway.invalidFrames"));
+        assertFalse(door.getActive());
+    }
+
+    private static ByteBuffer frame(UUID sensorId, boolean active, long timestampMillis) {
+        ByteBuffer frame = ByteBuffer.allocate(SensorFrame.BYTES);
+        SensorFrame.write(frame, sensorId, active, timestampMillis);
+        return frame.flip();
+    }
+
+    private void send(ByteBuffer frames) throws IOException {
+        while (frames.hasRemaining()) {
+            client.write(frames);
+        }
+    }
+
+    private long counter(String name) {
+        return metrics.counter(name).sum();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.security.application;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the bulk scanner's command line parser applies every option and turns bad
+ * arguments into a message for the usage text instead of a stack trace.
+ */
+class BulkImageScanAppOptionsTest {
+
+    @Test
+    void directoryOnly_usesTheDefaults() {
+        BulkImageScanApp.Options options = BulkImageScanApp.Options.parse(new String[] {"footage"});
+
+        assertEquals(Path.of("footage"), options.root);
+        assertEquals("fake", options.service);
+        assertEquals(Runtime.getRuntime().availableProcessors(), options.threads);
+        assertEquals("csv", options.format);
+        assertNull(options.output);
+        assertEquals(50.0f, options.threshold);
+    }
+
+    @Test
+    void allOptions_areApplied() {
+        BulkImageScanApp.Options options = BulkImageScanApp.Options.parse(new String[] {"footage",
+                "--service", "tiered", "--threads", "3", "--format", "JSON", "--output", "report.json",
+                "--threshold", "72.5"});
+
+        assertEquals("tiered", options.service);
+        assertEquals(3, options.threads);
+        assertEquals("json", options.format);
+        assertEquals(Path.of("report.json"), options.output);
+        assertEquals(72.5f, options.threshold);
+    }
+
+    @Test
+    void missingDirectory_isRejected() {
+        assertMessage("Missing directory");
+        assertMessage("Missing directory", "--threads", "2");
+    }
+
+    @Test
+    void unknownOption_isRejected() {
+        assertMessage("Unknown option --verbose", "footage", "--verbose", "yes");
+    }
+
+    @Test
+    void missingValue_isRejected() {
+        assertMessage("Missing value for option --threads", "footage", "--threads");
+    }
+
+    @Test
+    void badValues_areRejected() {
+        assertMessage("Option --threads needs a number, not many", "footage", "--threads", "many");
+        assertMessage("--threads must be positive", "footage", "--threads", "0");
+        assertMessage("--threshold must be between 0 and 100", "footage", "--threshold", "150");
+        assertMessage("Unknown value gcp for option --service", "footage", "--service", "gcp");
+        assertMessage("Unknown value xml for option --format", "footage", "--format", "xml");
+    }
+
+    private static void assertMessage(String message, String... args) {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> BulkImageScanApp.Options.parse(args));
+        assertEquals(message, ex.getMessage());
+    }
+}
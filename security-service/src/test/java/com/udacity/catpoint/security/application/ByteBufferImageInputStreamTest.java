@@ -0,0 +1,90 @@
+package com.udacity.catpoint.security.application;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the stream reads, seeks and ends like a file-backed image stream and that ImageIO
+ * decodes an image from it.
+ */
+class ByteBufferImageInputStreamTest {
+
+    private final ByteBuffer buffer = ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, (byte) 0xf0});
+
+    @Test
+    void reads_advanceThroughTheBuffer() throws IOException {
+        ByteBufferImageInputStream stream = new ByteBufferImageInputStream(buffer);
+
+        assertEquals(6, stream.length());
+        assertEquals(1, stream.read());
+        byte[] bytes = new byte[3];
+        assertEquals(3, stream.read(bytes, 0, 3));
+        assertArrayEquals(new byte[] {2, 3, 4}, bytes);
+        assertEquals(4, stream.getStreamPosition());
+    }
+
+    @Test
+    void readPastTheEnd_returnsWhatIsLeftThenEndOfStream() throws IOException {
+        ByteBufferImageInputStream stream = new ByteBufferImageInputStream(buffer);
+        stream.seek(4);
+
+        byte[] bytes = new byte[4];
+        assertEquals(2, stream.read(bytes, 1, 4));
+        assertArrayEquals(new byte[] {0, 5, (byte) 0xf0, 0}, bytes);
+        assertEquals(-1, stream.read());
+        assertEquals(-1, stream.read(bytes, 0, 4));
+        assertEquals(0, stream.read(bytes, 0, 0));
+    }
+
+    @Test
+    void seek_movesBothWays() throws IOException {
+        ByteBufferImageInputStream stream = new ByteBufferImageInputStream(buffer);
+
+        stream.seek(5);
+        assertEquals(0xf0, stream.read());
+        stream.seek(0);
+        assertEquals(0x01020304, stream.readInt());
+    }
+
+    @Test
+    void readAfterReadingBits_rereadsTheWholeByte() throws IOException {
+        ByteBufferImageInputStream stream = new ByteBufferImageInputStream(buffer);
+        stream.seek(5);
+
+        assertEquals(0xf, stream.readBits(4));
+        assertEquals(0xf0, stream.read());
+        assertEquals(0, stream.getBitOffset());
+    }
+
+    @Test
+    void closedStream_rejectsReads() throws IOException {
+        ByteBufferImageInputStream stream = new ByteBufferImageInputStream(buffer);
+        stream.close();
+
+        assertThrows(IOException.class, stream::read);
+    }
+
+    @Test
+    void imageIo_decodesFromTheBuffer() throws IOException {
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(2, 1, 0x336699);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        BufferedImage decoded = ImageIO.read(new ByteBufferImageInputStream(ByteBuffer.wrap(png.toByteArray())));
+
+        assertNotNull(decoded);
+        assertEquals(5, decoded.getWidth());
+        assertEquals(0x336699, decoded.getRGB(2, 1) & 0xffffff);
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.catpoint.security.application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+/**
+ * Checks that the sensor table keeps its rows sorted, reports only the rows whose state changed
+ * and lets a second toggle act on the state the pending one asked for. Lives in the application
+ * package because the model is package-private.
+ */
+class SensorTableModelTest {
+
+    private final SensorTableModel model = new SensorTableModel();
+    private final List<TableModelEvent> events = new ArrayList<>();
+    private final Sensor door = new Sensor("door", SensorType.DOOR);
+    private final Sensor motion = new Sensor("motion", SensorType.MOTION);
+    private final Sensor window = new Sensor("window", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() {
+        model.refresh(List.of(window, door, motion));
+        model.addTableModelListener(events::add);
+    }
+
+    @Test
+    void refresh_showsSensorsInSortOrder() {
+        assertEquals(3, model.getRowCount());
+        assertSame(door, model.getSensorAt(0));
+        assertSame(motion, model.getSensorAt(1));
+        assertSame(window, model.getSensorAt(2));
+        assertEquals("Inactive", model.getValueAt(0, SensorTableModel.STATUS_COLUMN));
+        assertEquals("Activate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+    }
+
+    @Test
+    void refresh_reportsOnlyChangedRows() {
+        motion.setActive(true);
+        window.setActive(true);
+
+        model.refresh(List.of(door, motion, window));
+
+        assertEquals(1, events.size());
+        assertEquals(1, events.get(0).getFirstRow());
+        assertEquals(2, events.get(0).getLastRow());
+        assertEquals("Active", model.getValueAt(1, SensorTableModel.STATUS_COLUMN));
+
+        events.clear();
+        model.refresh(List.of(door, motion, window));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void addAndRemove_keepTheRowsSorted() {
+        Sensor garage = new Sensor("garage", SensorType.DOOR);
+
+        model.sensorAdded(garage);
+        assertSame(garage, model.getSensorAt(1));
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+
+        model.sensorRemoved(door);
+        assertSame(garage, model.getSensorAt(0));
+        assertEquals(3, model.getRowCount());
+        assertEquals(TableModelEvent.DELETE, events.get(1).getType());
+    }
+
+    @Test
+    void secondToggle_undoesThePendingOne() {
+        assertTrue(model.requestToggle(0));
+        assertEquals("Deactivate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+        // the sensor itself has not changed yet, but the second click must not ask for "active" again
+        assertFalse(model.requestToggle(0));
+        assertEquals("Activate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+    }
+
+    @Test
+    void finishedToggle_fallsBackToTheAppliedState() {
+        assertTrue(model.requestToggle(0));
+        door.setActive(true);
+
+        model.toggleFinished(door, true);
+        model.refresh(List.of(door, motion, window));
+
+        assertEquals("Active", model.getValueAt(0, SensorTableModel.STATUS_COLUMN));
+        assertFalse(model.requestToggle(0));
+    }
+
+    @Test
+    void earlierToggleFinishing_keepsTheLaterRequest() {
+        model.requestToggle(0);
+        model.requestToggle(0);
+        door.setActive(true);
+
+        // the first change is done, the second one (back to inactive) is still queued
+        model.toggleFinished(door, true);
+        model.refresh(List.of(door, motion, window));
+
+        assertEquals("Active", model.getValueAt(0, SensorTableModel.STATUS_COLUMN));
+        assertEquals("Activate", model.getValueAt(0, SensorTableModel.TOGGLE_COLUMN));
+        assertTrue(model.requestToggle(0));
+    }
+}
@@ -0,0 +1,145 @@
+package com.udacity.catpoint.security.application;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks that a burst of status changes reaches the panels as one update on the event
+ * dispatch thread carrying the latest values, and that changes after a delivery are delivered
+ * again. The event dispatch thread is held during each burst, so the whole burst falls into one
+ * frame however slow the machine is.
+ */
+class SwingStatusBridgeTest {
+
+    private static final int FRAME_MILLIS = 20;
+
+    private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(),
+            ignored -> DetectionResult.none(), new MetricsRegistry());
+    private final SwingStatusBridge bridge = new SwingStatusBridge(securityService, FRAME_MILLIS);
+    private final RecordingListener panel = new RecordingListener();
+
+    SwingStatusBridgeTest() {
+        bridge.addStatusListener(panel);
+    }
+
+    @Test
+    void burstOfChanges_isDeliveredOnceWithTheLatestValues() throws Exception {
+        withEventThreadHeld(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                bridge.notify(i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.ALARM);
+                bridge.catDetected(i % 3 == 0);
+                bridge.sensorStatusChanged();
+            }
+        });
+
+        panel.awaitCalls(3);
+        Thread.sleep(5 * FRAME_MILLIS);
+
+        assertEquals(List.of("notify ALARM", "catDetected true", "sensorStatusChanged"), panel.calls);
+        assertTrue(panel.allOnEventThread);
+    }
+
+    @Test
+    void unchangedKinds_areNotDelivered() throws Exception {
+        withEventThreadHeld(bridge::sensorStatusChanged);
+
+        panel.awaitCalls(1);
+        Thread.sleep(5 * FRAME_MILLIS);
+
+        assertEquals(List.of("sensorStatusChanged"), panel.calls);
+    }
+
+    @Test
+    void changesAfterADelivery_areDeliveredAgain() throws Exception {
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        panel.awaitCalls(1);
+
+        securityService.setAlarmStatus(AlarmStatus.ALARM);
+        panel.awaitCalls(2);
+
+        assertEquals(List.of("notify PENDING_ALARM", "notify ALARM"), panel.calls);
+    }
+
+    @Test
+    void removedListener_getsNothing() throws Exception {
+        RecordingListener other = new RecordingListener();
+        bridge.addStatusListener(other);
+        bridge.removeStatusListener(panel);
+
+        bridge.catDetected(true);
+        other.awaitCalls(1);
+
+        assertTrue(panel.calls.isEmpty());
+    }
+
+    /**
+     * Runs the changes while the event dispatch thread is busy, so no delivery can start
+     * before they are all recorded.
+     */
+    private static void withEventThreadHeld(Runnable changes) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            held.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(held.await(5, TimeUnit.SECONDS), "event dispatch thread did not start");
+        try {
+            changes.run();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static final class RecordingListener implements StatusListener {
+
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+        private volatile boolean allOnEventThread = true;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            record("notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            record("catDetected " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            record("sensorStatusChanged");
+        }
+
+        private void record(String call) {
+            allOnEventThread &= SwingUtilities.isEventDispatchThread();
+            calls.add(call);
+        }
+
+        void awaitCalls(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (calls.size() < count) {
+                assertTrue(System.nanoTime() < deadline, "expected " + count + " calls, got " + calls);
+                Thread.sleep(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.security.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks that cameras which always have a frame waiting share the classifications in
+ * proportion to their configured weights, and that the dispatcher survives a rejected
+ * classification. Lives in the camera package to give the scheduler a clock that makes every
+ * classification cost exactly a millisecond, so the shares do not depend on how busy the
+ * machine running the test is.
+ */
+class CameraSchedulerTest {
+
+    private static final int SCANS = 400;
+
+    private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(),
+            ignored -> DetectionResult.none(), new MetricsRegistry());
+    private final BufferedImage front = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    private final BufferedImage garden = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+    private final Map<BufferedImage, AtomicInteger> scans = Map.of(front, new AtomicInteger(), garden, new AtomicInteger());
+    private final AtomicInteger total = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<CameraScheduler> scheduler = new AtomicReference<>();
+    // read once before and once after each classification
+    private final AtomicLong clock = new AtomicLong();
+
+    // every classification immediately queues the camera's next frame, so both cameras
+    // always compete
+    private final IService detector = image -> {
+        scans.get(image).incrementAndGet();
+        if (total.incrementAndGet() >= SCANS) {
+            done.countDown();
+        } else {
+            scheduler.get().submit(image == front ? "front" : "garden", image);
+        }
+        return DetectionResult.none();
+    };
+
+    @AfterEach
+    void cleanUp() {
+        System.clearProperty("camera.front.weight");
+        System.clearProperty("camera.garden.weight");
+        System.clearProperty("camera.garden.armedHomeWeight");
+        if (scheduler.get() != null) {
+            scheduler.get().close();
+        }
+    }
+
+    @Test
+    void weightedCamera_getsProportionallyMoreScans() throws InterruptedException {
+        System.setProperty("camera.front.weight", "1");
+        System.setProperty("camera.garden.weight", "3");
+
+        double ratio = runBothCameras();
+
+        assertTrue(ratio > 2.4 && ratio < 3.6, () -> "garden to front ratio " + ratio);
+    }
+
+    @Test
+    void armedHomeWeight_appliesWhileArmedAtHome() throws InterruptedException {
+        System.setProperty("camera.garden.armedHomeWeight", "4");
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        double ratio = runBothCameras();
+
+        // front keeps the default armed-home weight of 2
+        assertTrue(ratio > 1.6 && ratio < 2.4, () -> "garden to front ratio " + ratio);
+    }
+
+    @Test
+    void rejectedClassification_keepsTheDispatcherRunning() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch classified = new CountDownLatch(1);
+        ExecutorService rejectingFirst = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                if (executions.getAndIncrement() == 0) {
+                    throw new RejectedExecutionException("busy");
+                }
+                pool.execute(command);
+            }
+
+            @Override
+            public void shutdown() {
+                pool.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return pool.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return pool.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return pool.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                return pool.awaitTermination(timeout, unit);
+            }
+        };
+        CameraScheduler single = new CameraScheduler(securityService, image -> {
+            classified.countDown();
+            return DetectionResult.none();
+        }, 1, 2.0, rejectingFirst);
+        scheduler.set(single);
+        single.start();
+
+        single.submit("front", front);
+        Thread.sleep(50);
+        single.submit("front", front);
+
+        assertTrue(classified.await(5, TimeUnit.SECONDS), "no classification after a rejected one");
+        assertEquals(2, executions.get());
+    }
+
+    private double runBothCameras() throws InterruptedException {
+        CameraScheduler weighted = new CameraScheduler(securityService, detector, 1, 2.0,
+                new ForkJoinPool(1), () -> clock.addAndGet(1_000_000));
+        scheduler.set(weighted);
+        weighted.loadWeights();
+        weighted.start();
+        weighted.submit("front", front);
+        weighted.submit("garden", garden);
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "scans did not finish");
+        return scans.get(garden).get() / (double) scans.get(front).get();
+    }
+}
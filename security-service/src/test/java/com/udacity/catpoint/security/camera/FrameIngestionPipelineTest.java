@@ -0,0 +1,123 @@
+package com.udacity.catpoint.security.camera;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.image.service.IService;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks that frames arriving faster than they are decoded replace each other and are counted
+ * as dropped, that only the newest frame of a camera is classified and that undecodable frames
+ * are counted rather than classified.
+ */
+class FrameIngestionPipelineTest {
+
+    // frames are told apart by their width
+    private final List<Integer> classifiedWidths = new CopyOnWriteArrayList<>();
+    private final IService detector = image -> {
+        classifiedWidths.add(image.getWidth());
+        return DetectionResult.none();
+    };
+    private final SecurityService securityService =
+            new SecurityService(new InMemorySecurityRepository(), detector, new MetricsRegistry());
+    private final FrameIngestionPipeline pipeline =
+            new FrameIngestionPipeline(1, new CameraScheduler(securityService, detector, 1, 2.0), 2, 0);
+
+    @AfterEach
+    void close() throws IOException {
+        pipeline.close();
+    }
+
+    @Test
+    void framesBeforeDecoding_replaceEachOther() throws IOException {
+        for (int width = 1; width <= 3; width++) {
+            pipeline.submit(frame("front", width));
+        }
+
+        FrameIngestionPipeline.PipelineStats stats = pipeline.getStats();
+        assertEquals(3, stats.getFramesIn());
+        assertEquals(2, stats.getDropped());
+        assertEquals(1, stats.getPending());
+    }
+
+    @Test
+    void onlyTheNewestFrame_isClassified() throws IOException {
+        for (int width = 1; width <= 3; width++) {
+            pipeline.submit(frame("front", width));
+        }
+        pipeline.submit(frame("garden", 7));
+
+        pipeline.start();
+
+        awaitTrue(() -> pipeline.getStats().getClassified() == 2);
+        // the cameras may be classified in either order
+        assertEquals(2, classifiedWidths.size());
+        assertEquals(Set.of(3, 7), Set.copyOf(classifiedWidths));
+        assertEquals(0, pipeline.getStats().getPending());
+    }
+
+    @Test
+    void cameraOverTheLimit_isDropped() throws IOException {
+        pipeline.submit(frame("front", 1));
+        pipeline.submit(frame("garden", 2));
+        pipeline.submit(frame("porch", 3));
+
+        assertEquals(1, pipeline.getStats().getDropped());
+        assertEquals(2, pipeline.getStats().getPending());
+    }
+
+    @Test
+    void undecodableFrame_isCountedNotClassified() {
+        byte[] garbage = {1, 2, 3, 4};
+        pipeline.submit(new EncodedFrame("front", garbage, garbage.length, 0));
+
+        pipeline.start();
+
+        awaitTrue(() -> pipeline.getStats().getDecodeErrors() == 1);
+        assertTrue(classifiedWidths.isEmpty());
+    }
+
+    @Test
+    void frameTaps_seeDroppedFramesToo() throws IOException {
+        AtomicInteger tapped = new AtomicInteger();
+        pipeline.addFrameTap(frame -> tapped.incrementAndGet());
+
+        for (int width = 1; width <= 3; width++) {
+            pipeline.submit(frame("front", width));
+        }
+
+        assertEquals(3, tapped.get());
+    }
+
+    private static EncodedFrame frame(String cameraId, int width) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, 1, BufferedImage.TYPE_INT_RGB), "png", png);
+        return new EncodedFrame(cameraId, png.toByteArray(), png.size(), width);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 s");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.udacity.catpoint.security.camera;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the queue keeps only the newest frame per camera, hands cameras out in the order
+ * they became ready and drops frames of cameras over the limit.
+ */
+class LatestFrameQueueTest {
+
+    private final LatestFrameQueue<String> queue = new LatestFrameQueue<>(2);
+
+    @Test
+    void newerFrame_replacesThePendingOne() throws InterruptedException {
+        assertNull(queue.offer("front", "front-1"));
+        assertEquals("front-1", queue.offer("front", "front-2"));
+
+        assertEquals(1, queue.size());
+        assertEquals("front-2", queue.take());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void cameras_areTakenInTheOrderTheyBecameReady() throws InterruptedException {
+        queue.offer("garden", "garden-1");
+        queue.offer("front", "front-1");
+        // replacing a pending frame does not move the camera to the back
+        queue.offer("garden", "garden-2");
+
+        assertEquals("garden-2", queue.take());
+        assertEquals("front-1", queue.take());
+    }
+
+    @Test
+    void takenCamera_becomesReadyAgainWithItsNextFrame() throws InterruptedException {
+        queue.offer("front", "front-1");
+        queue.take();
+
+        assertNull(queue.offer("front", "front-2"));
+        assertEquals(1, queue.size());
+        assertEquals("front-2", queue.take());
+    }
+
+    @Test
+    void cameraOverTheLimit_isDropped() throws InterruptedException {
+        queue.offer("front", "front-1");
+        queue.offer("garden", "garden-1");
+
+        assertEquals("porch-1", queue.offer("porch", "porch-1"));
+        assertEquals(2, queue.size());
+        // known cameras keep working while their slot is empty
+        queue.take();
+        assertNull(queue.offer("front", "front-2"));
+    }
+
+    @Test
+    void take_waitsForAFrame() throws Exception {
+        CompletableFuture<String> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(taken.isDone());
+
+        queue.offer("front", "front-1");
+
+        assertEquals("front-1", taken.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+package com.udacity.catpoint.security.camera;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+/**
+ * Checks that each alarm dumps the frames before it into a folder of its own and that a dump
+ * finishing while another alarm's dump is queued leaves the rings frozen. Lives in the camera
+ * package to run the dumps one at a time on the test thread.
+ */
+class PreAlarmRecorderTest {
+
+    @TempDir
+    Path folder;
+
+    private final QueuedExecutor dumper = new QueuedExecutor();
+    private PreAlarmRecorder recorder;
+
+    @BeforeEach
+    void init() {
+        recorder = new PreAlarmRecorder(folder, 3, 64, 4, dumper);
+    }
+
+    @Test
+    void alarm_dumpsThePrecedingFrames() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            recorder.record(frame("front", i));
+        }
+        recorder.record(frame("back", 0));
+
+        recorder.notify(AlarmStatus.ALARM);
+        // frames after the alarm are not part of the dump
+        recorder.record(frame("front", 4));
+        dumper.runNext();
+
+        List<Path> dumps = list(folder);
+        assertEquals(1, dumps.size());
+        assertEquals(List.of("1001-000001.jpg", "1002-000002.jpg", "1003-000003.jpg"),
+                names(dumps.get(0).resolve("front")));
+        assertEquals(1, names(dumps.get(0).resolve("back")).size());
+    }
+
+    @Test
+    void repeatedAlarmStatus_dumpsOnce() {
+        recorder.record(frame("front", 0));
+
+        recorder.notify(AlarmStatus.ALARM);
+        recorder.notify(AlarmStatus.ALARM);
+
+        assertEquals(1, dumper.tasks.size());
+    }
+
+    @Test
+    void overlappingAlarms_keepRingsFrozenUntilTheLastDump() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            recorder.record(frame("front", i));
+        }
+        recorder.notify(AlarmStatus.ALARM);
+        recorder.notify(AlarmStatus.PENDING_ALARM);
+        recorder.notify(AlarmStatus.ALARM);
+
+        dumper.runNext();
+        // the second dump has not run yet, so this frame must not replace frame 0
+        recorder.record(frame("front", 3));
+        dumper.runNext();
+
+        List<Path> dumps = list(folder);
+        assertEquals(2, dumps.size());
+        for (Path dump : dumps) {
+            assertEquals(List.of("1000-000000.jpg", "1001-000001.jpg", "1002-000002.jpg"), names(dump.resolve("front")));
+        }
+
+        // both dumps are done, so the ring records again
+        recorder.record(frame("front", 4));
+        recorder.notify(AlarmStatus.NO_ALARM);
+        recorder.notify(AlarmStatus.ALARM);
+        dumper.runNext();
+        Path third = list(folder).stream().filter(dump -> !dumps.contains(dump)).findFirst().orElseThrow();
+        assertEquals(List.of("1001-000001.jpg", "1002-000002.jpg", "1004-000003.jpg"), names(third.resolve("front")));
+    }
+
+    private static EncodedFrame frame(String cameraId, int i) {
+        byte[] data = {(byte) 0xff, (byte) 0xd8, (byte) i};
+        return new EncodedFrame(cameraId, data, data.length, 1000 + i);
+    }
+
+    private static List<String> names(Path folder) throws IOException {
+        return list(folder).stream().map(file -> file.getFileName().toString()).collect(Collectors.toList());
+    }
+
+    private static List<Path> list(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Holds the dumps until the test runs them.
+     */
+    private static final class QueuedExecutor extends AbstractExecutorService {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean shutdown;
+
+        void runNext() {
+            tasks.remove().run();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.copyOf(tasks);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.catpoint.security.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the bucket layout at the edges of each power of two and the accuracy of the reported
+ * percentiles. Lives in the metrics package to reach the package-private bucket functions.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void smallValues_haveOneBucketEach() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.lowerBoundOf(value));
+        }
+    }
+
+    @Test
+    void powersOfTwo_startANewBucket() {
+        for (int exponent = 4; exponent < 63; exponent++) {
+            long power = 1L << exponent;
+            int bucket = LatencyHistogram.bucketOf(power);
+
+            assertEquals(power, LatencyHistogram.lowerBoundOf(bucket), "2^" + exponent);
+            assertEquals(bucket - 1, LatencyHistogram.bucketOf(power - 1), "2^" + exponent + " - 1");
+            // each power of two is split into 16 buckets
+            long lastInBucket = power + (power >>> 4) - 1;
+            assertEquals(bucket, LatencyHistogram.bucketOf(lastInBucket), "end of bucket at 2^" + exponent);
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(lastInBucket + 1), "after bucket at 2^" + exponent);
+        }
+    }
+
+    @Test
+    void lowerBounds_mapBackToTheirBucket() {
+        int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        for (int bucket = 0; bucket <= last; bucket++) {
+            long lowerBound = LatencyHistogram.lowerBoundOf(bucket);
+
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowerBound), "bucket " + bucket);
+            if (bucket > 0) {
+                assertEquals(bucket - 1, LatencyHistogram.bucketOf(lowerBound - 1), "below bucket " + bucket);
+            }
+        }
+    }
+
+    @Test
+    void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertWithin(500_000, histogram.percentileNanos(0.5));
+        assertWithin(990_000, histogram.percentileNanos(0.99));
+        assertWithin(1_000, histogram.percentileNanos(0.0));
+        assertWithin(1_000_000, histogram.percentileNanos(1.0));
+        assertTrue(histogram.percentileNanos(1.0) <= histogram.getMaxNanos(), "percentile above the maximum");
+        assertEquals(1000, histogram.getCount());
+    }
+
+    @Test
+    void emptyHistogram_reportsZero() {
+        assertEquals(0, new LatencyHistogram().percentileNanos(0.99));
+    }
+
+    @Test
+    void negativeAndHugeValues_areRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.percentileNanos(0.5));
+        assertWithin(Long.MAX_VALUE, histogram.percentileNanos(1.0));
+        assertEquals(Long.MAX_VALUE, histogram.getMaxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // a bucket spans at most 1/16 of its lower bound, and the midpoint is reported
+        assertTrue(Math.abs(actual - expected) <= expected / 32 + 1,
+                () -> "expected about " + expected + " but was " + actual);
+    }
+}
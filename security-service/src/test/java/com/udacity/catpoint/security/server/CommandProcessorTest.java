@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.image.service.DetectionResult;
+import com.udacity.catpoint.security.data.InMemorySecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.SecurityService;
+
+/**
+ * Checks that the server's text commands parse their arguments, change the system and reply
+ * with the state they left behind, and that bad input gets an ERROR reply rather than an
+ * exception.
+ */
+class CommandProcessorTest {
+
+    private final SecurityService securityService = new SecurityService(new InMemorySecurityRepository(),
+            ignored -> DetectionResult.none(), new MetricsRegistry());
+    private final CommandProcessor processor = new CommandProcessor(securityService);
+
+    @Test
+    void status_describesTheSystem() {
+        assertEquals("OK alarm=NO_ALARM arming=DISARMED cat=false sensors=0 active=0", processor.execute("status"));
+    }
+
+    @Test
+    void armAndDisarm_changeTheArmingStatus() {
+        assertTrue(processor.execute("arm home").contains("arming=ARMED_HOME"));
+        assertTrue(processor.execute("  ARM   away ").contains("arming=ARMED_AWAY"));
+        assertTrue(processor.execute("disarm").contains("arming=DISARMED"));
+    }
+
+    @Test
+    void sensorAdd_repliesWithTheNewSensor() {
+        String reply = processor.execute("sensor add frontDoor door");
+
+        Sensor sensor = securityService.getSensors().iterator().next();
+        assertEquals("OK " + sensor.getSensorId() + " frontDoor DOOR inactive", reply);
+    }
+
+    @Test
+    void sensors_listsSensorsInSortOrder() {
+        processor.execute("sensor add window WINDOW");
+        processor.execute("sensor add door DOOR");
+
+        String[] lines = processor.execute("sensors").split("\n");
+
+        assertEquals(3, lines.length);
+        assertEquals("OK 2 sensors", lines[0]);
+        assertTrue(lines[1].endsWith(" door DOOR inactive"), lines[1]);
+        assertTrue(lines[2].endsWith(" window WINDOW inactive"), lines[2]);
+    }
+
+    @Test
+    void sensorActivation_findsSensorsByNameOrId() {
+        processor.execute("sensor add hall MOTION");
+        processor.execute("arm away");
+        String id = securityService.getSensors().iterator().next().getSensorId().toString();
+
+        assertEquals("OK alarm=PENDING_ALARM arming=ARMED_AWAY cat=false sensors=1 active=1",
+                processor.execute("sensor activate hall"));
+        assertEquals("OK alarm=NO_ALARM arming=ARMED_AWAY cat=false sensors=1 active=0",
+                processor.execute("sensor deactivate " + id));
+    }
+
+    @Test
+    void sensorRemove_removesTheSensor() {
+        processor.execute("sensor add hall MOTION");
+        String id = securityService.getSensors().iterator().next().getSensorId().toString();
+
+        assertEquals("OK removed " + id, processor.execute("sensor remove hall"));
+        assertTrue(securityService.getSensors().isEmpty());
+    }
+
+    @Test
+    void help_listsTheCommands() {
+        assertEquals(CommandProcessor.HELP, processor.execute("help"));
+        assertTrue(CommandProcessor.HELP.startsWith("OK "));
+    }
+
+    @Test
+    void badInput_getsAnErrorReply() {
+        assertEquals("ERROR unknown command 'launch', try help", processor.execute("launch"));
+        assertEquals("ERROR unknown command '', try help", processor.execute("   "));
+        assertEquals("ERROR missing arguments, try help", processor.execute("arm"));
+        assertEquals("ERROR missing arguments, try help", processor.execute("sensor add door"));
+        assertEquals("ERROR no sensor attic", processor.execute("sensor activate attic"));
+        assertTrue(processor.execute("arm night").startsWith("ERROR "));
+        assertTrue(processor.execute("sensor add door GARAGE").startsWith("ERROR "));
+
+        processor.execute("sensor add door DOOR");
+        assertEquals("ERROR unknown sensor action toggle", processor.execute("sensor toggle door"));
+        assertEquals("OK alarm=NO_ALARM arming=DISARMED cat=false sensors=1 active=0", processor.execute("status"));
+    }
+}
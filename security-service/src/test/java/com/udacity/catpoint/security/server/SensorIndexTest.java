@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+/**
+ * Checks the wire format round trip and how the index finds sensors, drops stale readings and
+ * picks up sensors added after it was built. Lives in the server package to reach the
+ * package-private index.
+ */
+class SensorIndexTest {
+
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    @Test
+    void frame_roundTrips() {
+        UUID id = UUID.randomUUID();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * SensorFrame.BYTES);
+        buffer.position(SensorFrame.BYTES);
+
+        SensorFrame.write(buffer, id, true, 1234L);
+
+        assertEquals(2 * SensorFrame.BYTES, buffer.position());
+        assertEquals(id.getMostSignificantBits(), SensorFrame.mostSignificantBits(buffer, SensorFrame.BYTES));
+        assertEquals(id.getLeastSignificantBits(), SensorFrame.leastSignificantBits(buffer, SensorFrame.BYTES));
+        assertEquals(1, SensorFrame.activeFlag(buffer, SensorFrame.BYTES));
+        assertEquals(1234L, SensorFrame.timestampMillis(buffer, SensorFrame.BYTES));
+    }
+
+    @Test
+    void knownSensors_areFoundAndUnknownOnesAreNot() {
+        for (int i = 0; i < 40; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.DOOR));
+        }
+        SensorIndex index = new SensorIndex(() -> sensors, Long.MAX_VALUE);
+
+        for (Sensor sensor : sensors) {
+            assertSame(sensor, index.sensorAt(find(index, sensor.getSensorId())));
+        }
+        assertEquals(-1, find(index, UUID.randomUUID()));
+    }
+
+    @Test
+    void olderReading_isStale() {
+        Sensor door = add("Door");
+        SensorIndex index = new SensorIndex(() -> sensors, Long.MAX_VALUE);
+        int slot = find(index, door.getSensorId());
+
+        assertTrue(index.advance(slot, 2_000));
+        assertFalse(index.advance(slot, 1_999));
+        assertTrue(index.advance(slot, 2_000), "a reading of the same time is not stale");
+        assertTrue(index.advance(slot, 2_001));
+    }
+
+    @Test
+    void refresh_keepsTheLatestTimestamps() {
+        Sensor door = add("Door");
+        SensorIndex index = new SensorIndex(() -> sensors, Long.MAX_VALUE);
+        index.advance(find(index, door.getSensorId()), 2_000);
+
+        for (int i = 0; i < 20; i++) {
+            add("Window " + i);
+        }
+        index.refresh();
+
+        assertFalse(index.advance(find(index, door.getSensorId()), 1_000));
+    }
+
+    @Test
+    void sensorAddedLater_isFoundOnAMiss() throws InterruptedException {
+        SensorIndex index = new SensorIndex(() -> sensors, Long.MAX_VALUE);
+        Sensor door = add("Door");
+        Thread.sleep(SensorIndex.MIN_MISS_REFRESH_NANOS / 1_000_000 + 10);
+
+        assertSame(door, index.sensorAt(find(index, door.getSensorId())));
+    }
+
+    private Sensor add(String name) {
+        Sensor sensor = new Sensor(name, SensorType.WINDOW);
+        sensors.add(sensor);
+        return sensor;
+    }
+
+    private static int find(SensorIndex index, UUID id) {
+        return index.find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+}